@@ -0,0 +1,112 @@
+package org.openrefine.snac.benchmarks;
+
+import com.google.refine.model.Record;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.apache.http.entity.StringEntity;
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openrefine.snac.benchmarks.SNACBenchmarkProjects.BenchmarkColumn;
+import org.snaccooperative.openrefine.api.SNACAPIRequest;
+import org.snaccooperative.openrefine.cache.SNACLookupCache;
+import org.snaccooperative.openrefine.exporters.SNACConstellationItem;
+import org.snaccooperative.openrefine.schema.SNACSchemaPlan;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SNACAPIRequestBenchmark {
+
+  // Writes a constellation upload request body, with a BiogHist of the given
+  // size: by parsing the serialized constellation into an org.json tree and
+  // stringifying the whole request (as before SNACAPIRequest), versus writing
+  // it through SNACAPIRequest.  JMH's gc profiler (-prof gc) compares garbage.
+
+  @Param({"1000", "100000"})
+  public int biogHistLength;
+
+  private String _constellationJSON;
+
+  private static class DiscardingOutputStream extends OutputStream {
+    long count = 0;
+
+    @Override
+    public void write(int b) {
+      count++;
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) {
+      count += len;
+    }
+  }
+
+  @Setup
+  public void setup() throws Exception {
+    SNACBenchmarkClient client = new SNACBenchmarkClient();
+
+    List<BenchmarkColumn> columns = SNACBenchmarkProjects.getColumns("constellation", 0);
+    SNACSchemaPlan plan =
+        new SNACSchemaPlan(
+            SNACBenchmarkProjects.newProject(columns, 1, 5),
+            SNACBenchmarkProjects.newSchema("constellation", columns));
+    Record record = SNACBenchmarkProjects.getRecords(plan.getProject()).get(0);
+
+    JSONObject con =
+        new JSONObject(
+            new SNACConstellationItem(plan, client, new SNACLookupCache(client), record).toJSON());
+
+    StringBuilder text = new StringBuilder(biogHistLength);
+    while (text.length() < biogHistLength) {
+      text.append("<p>Biographical \"history\" text.</p>\n");
+    }
+    text.setLength(biogHistLength);
+
+    con.put("biogHists", new JSONArray().put(new JSONObject().put("text", text.toString())));
+
+    _constellationJSON = con.toString();
+  }
+
+  @Benchmark
+  public long reparse() throws IOException {
+    JSONObject req = new JSONObject();
+
+    req.put("command", "insert_and_publish_constellation");
+    req.put("apikey", "benchmark");
+    req.put("constellation", new JSONObject(_constellationJSON));
+
+    DiscardingOutputStream out = new DiscardingOutputStream();
+    new StringEntity(req.toString(), "UTF-8").writeTo(out);
+
+    return out.count;
+  }
+
+  @Benchmark
+  public long direct() throws IOException {
+    SNACAPIRequest req =
+        new SNACAPIRequest("insert_and_publish_constellation")
+            .put("apikey", "benchmark")
+            .putJSON("constellation", _constellationJSON);
+
+    DiscardingOutputStream out = new DiscardingOutputStream();
+    req.toEntity().writeTo(out);
+
+    return out.count;
+  }
+}
@@ -0,0 +1,133 @@
+package org.openrefine.snac.benchmarks;
+
+import com.google.refine.model.Record;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openrefine.snac.benchmarks.SNACBenchmarkProjects.BenchmarkColumn;
+import org.snaccooperative.openrefine.api.SNACAPIClient;
+import org.snaccooperative.openrefine.api.SNACAPIResponse;
+import org.snaccooperative.openrefine.cache.SNACLookupCache;
+import org.snaccooperative.openrefine.exporters.SNACConstellationItem;
+import org.snaccooperative.openrefine.exporters.SNACResourceItem;
+import org.snaccooperative.openrefine.schema.SNACSchemaPlan;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SNACAPIResponseBenchmark {
+
+  // Parses typical SNAC API responses: a constellation or resource returned by
+  // an insert/update, a vocabulary query result, an elastic hit count, and an
+  // error.
+
+  private SNACAPIClient _client;
+
+  private String _constellationResponse;
+  private String _resourceResponse;
+  private String _vocabularyResponse;
+  private String _elasticResponse;
+  private String _errorResponse;
+
+  @Setup
+  public void setup() throws Exception {
+    _client = new SNACBenchmarkClient();
+
+    SNACLookupCache cache = new SNACLookupCache(_client);
+
+    // use generated items for realistically-sized constellation and resource payloads
+
+    List<BenchmarkColumn> conColumns = SNACBenchmarkProjects.getColumns("constellation", 0);
+    SNACSchemaPlan conPlan =
+        new SNACSchemaPlan(
+            SNACBenchmarkProjects.newProject(conColumns, 1, 5),
+            SNACBenchmarkProjects.newSchema("constellation", conColumns));
+    Record conRecord = SNACBenchmarkProjects.getRecords(conPlan.getProject()).get(0);
+
+    _constellationResponse =
+        successResponse(
+            "constellation",
+            new SNACConstellationItem(conPlan, _client, cache, conRecord).toJSON());
+
+    List<BenchmarkColumn> resColumns = SNACBenchmarkProjects.getColumns("resource", 0);
+    SNACSchemaPlan resPlan =
+        new SNACSchemaPlan(
+            SNACBenchmarkProjects.newProject(resColumns, 1, 1),
+            SNACBenchmarkProjects.newSchema("resource", resColumns));
+    Record resRecord = SNACBenchmarkProjects.getRecords(resPlan.getProject()).get(0);
+
+    _resourceResponse =
+        successResponse(
+            "resource", new SNACResourceItem(resPlan, _client, cache, resRecord).toJSON());
+
+    JSONArray results = new JSONArray();
+    for (int i = 0; i < 10; i++) {
+      JSONObject term = new JSONObject();
+      term.put("id", Integer.toString(i + 1));
+      term.put("term", "Term " + i);
+      term.put("type", "subject");
+      results.put(term);
+    }
+    _vocabularyResponse = new JSONObject().put("results", results).toString();
+
+    JSONObject hits = new JSONObject().put("total", new JSONObject().put("value", 1));
+    _elasticResponse =
+        new JSONObject().put("results", new JSONObject().put("hits", hits)).toString();
+
+    JSONObject error = new JSONObject();
+    error.put("type", "Validation Error");
+    error.put("message", "Constellation must have a name entry");
+    _errorResponse = new JSONObject().put("error", error).toString();
+  }
+
+  private String successResponse(String key, String json) {
+    JSONObject data = new JSONObject(json);
+    data.put("id", 12345);
+    data.put("version", 2);
+
+    JSONObject response = new JSONObject();
+    response.put("result", "success");
+    response.put(key, data);
+
+    return response.toString();
+  }
+
+  @Benchmark
+  public SNACAPIResponse parseConstellation() {
+    return new SNACAPIResponse(_client, _constellationResponse);
+  }
+
+  @Benchmark
+  public SNACAPIResponse parseResource() {
+    return new SNACAPIResponse(_client, _resourceResponse);
+  }
+
+  @Benchmark
+  public SNACAPIResponse parseVocabulary() {
+    return new SNACAPIResponse(_client, _vocabularyResponse);
+  }
+
+  @Benchmark
+  public SNACAPIResponse parseElastic() {
+    return new SNACAPIResponse(_client, _elasticResponse);
+  }
+
+  @Benchmark
+  public SNACAPIResponse parseError() {
+    return new SNACAPIResponse(_client, _errorResponse);
+  }
+}
@@ -0,0 +1,66 @@
+package org.openrefine.snac.benchmarks;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.snaccooperative.openrefine.api.SNACAPIClient;
+import org.snaccooperative.openrefine.api.SNACAPIRequest;
+import org.snaccooperative.openrefine.api.SNACAPIResponse;
+import org.snaccooperative.openrefine.preferences.SNACEnvironment;
+
+public class SNACBenchmarkClient extends SNACAPIClient {
+
+  // SNAC API client that never touches the network: vocabulary queries echo
+  // the requested term back, existence queries find everything, and anything
+  // else (validation, uploads) succeeds.
+
+  public SNACBenchmarkClient() {
+    super(
+        new SNACEnvironment(
+            "benchmark", "Benchmark", "http://localhost/snac/", "http://localhost/snac/api/"));
+  }
+
+  @Override
+  public SNACAPIResponse post(JSONObject req) {
+    return new SNACAPIResponse(this, respond(req).toString());
+  }
+
+  @Override
+  public SNACAPIResponse post(SNACAPIRequest req) {
+    return post(req.toString());
+  }
+
+  @Override
+  public SNACAPIResponse post(String req) {
+    return post(new JSONObject(req));
+  }
+
+  private JSONObject respond(JSONObject req) {
+    JSONObject response = new JSONObject();
+
+    switch (req.optString("command", "")) {
+      case "vocabulary":
+        JSONObject term = new JSONObject();
+        term.put("id", "1");
+        term.put("term", req.optString("query_string", ""));
+        term.put("type", req.optString("type", ""));
+
+        response.put("results", new JSONArray().put(term));
+        break;
+
+      case "elastic":
+        JSONObject total = new JSONObject();
+        total.put("value", 1);
+
+        JSONObject hits = new JSONObject();
+        hits.put("total", total);
+
+        response.put("results", new JSONObject().put("hits", hits));
+        break;
+
+      default:
+        response.put("result", "success");
+    }
+
+    return response;
+  }
+}
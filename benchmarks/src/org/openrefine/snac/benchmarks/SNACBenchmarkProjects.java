@@ -0,0 +1,186 @@
+package org.openrefine.snac.benchmarks;
+
+import com.google.refine.model.Cell;
+import com.google.refine.model.Column;
+import com.google.refine.model.ModelException;
+import com.google.refine.model.Project;
+import com.google.refine.model.Record;
+import com.google.refine.model.Row;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import org.snaccooperative.openrefine.schema.SNACSchema;
+
+public class SNACBenchmarkProjects {
+
+  // Synthetic OpenRefine projects for benchmarking: N records of M rows each,
+  // with one column per mapped SNAC field.  The first row of each record holds
+  // every field; later rows repeat only the multi-valued ones.  The field mix is
+  // the first so many columns of the schema type's list below.
+
+  public static class BenchmarkColumn {
+    private final String _name;
+    private final String _field;
+    private final Boolean _repeatable;
+    private final String[] _values;
+
+    private BenchmarkColumn(String name, String field, Boolean repeatable, String... values) {
+      this._name = name;
+      this._field = field;
+      this._repeatable = repeatable;
+      this._values = values;
+    }
+
+    public String getName() {
+      return _name;
+    }
+
+    public String getField() {
+      return _field;
+    }
+
+    public Boolean isRepeatable() {
+      return _repeatable;
+    }
+
+    public String getValue(int record, int row) {
+      // fixed vocabulary values cycle; free text (no values) is generated
+      if (_values.length > 0) {
+        return _values[(record + row) % _values.length];
+      }
+
+      return _name + " " + record + "-" + row;
+    }
+  }
+
+  // the first column of each list is the record key
+
+  public static final List<BenchmarkColumn> CONSTELLATION_COLUMNS =
+      Arrays.asList(
+          new BenchmarkColumn("cpf type", "CPF Type", false, "person", "corporateBody", "family"),
+          new BenchmarkColumn("name", "Name Entry", false),
+          new BenchmarkColumn("variant name", "Variant Name Entry", true),
+          new BenchmarkColumn("exist date", "Exist Date", true, "1900", "1970-05-01"),
+          new BenchmarkColumn("exist date type", "Exist Date Type", true, "Birth", "Death"),
+          new BenchmarkColumn("subject", "Subject", true, "Mathematics", "Chemistry", "Poetry"),
+          new BenchmarkColumn("place", "Place", true),
+          new BenchmarkColumn("place role", "Place Role", true, "Residence", "Birth", "Death"),
+          new BenchmarkColumn("occupation", "Occupation", true, "Teachers", "Architects"),
+          new BenchmarkColumn("activity", "Activity", true, "Collecting", "Publishing"),
+          new BenchmarkColumn("language code", "Language Code", true, "eng", "ger", "jpn"),
+          new BenchmarkColumn("script code", "Script Code", true, "Latn", "Cyrl", "Grek"),
+          new BenchmarkColumn("biog hist", "BiogHist", false),
+          new BenchmarkColumn("source citation", "Source Citation", true),
+          new BenchmarkColumn(
+              "source citation url", "Source Citation URL", true, "https://example.com/"));
+
+  public static final List<BenchmarkColumn> RELATION_COLUMNS =
+      Arrays.asList(
+          new BenchmarkColumn("cpf id", "CPF ID", false, "1001", "1002", "1003"),
+          new BenchmarkColumn("cpf type", "CPF Type", false, "person", "corporateBody", "family"),
+          new BenchmarkColumn(
+              "relation type",
+              "CPF to CPF Relation Type",
+              true,
+              "associatedWith",
+              "correspondedWith"),
+          new BenchmarkColumn("related cpf id", "Related CPF ID", true, "2001", "2002", "2003"),
+          new BenchmarkColumn(
+              "resource relation type",
+              "CPF to Resource Relation Type",
+              true,
+              "creatorOf",
+              "referencedIn"),
+          new BenchmarkColumn("resource id", "Resource ID", true, "3001", "3002", "3003"));
+
+  public static final List<BenchmarkColumn> RESOURCE_COLUMNS =
+      Arrays.asList(
+          new BenchmarkColumn(
+              "resource type", "Resource Type", false, "ArchivalResource", "BibliographicResource"),
+          new BenchmarkColumn("title", "Title", false),
+          new BenchmarkColumn("resource url", "Resource URL", false, "https://example.com/r"),
+          new BenchmarkColumn("holding repository id", "Holding Repository ID", false, "4001"),
+          new BenchmarkColumn("abstract", "Abstract", false),
+          new BenchmarkColumn("extent", "Extent", false, "1 box", "3 linear feet"),
+          new BenchmarkColumn("date", "Date", false, "1900-1950", "1923"),
+          new BenchmarkColumn("language code", "Language Code", true, "eng", "ger", "jpn"),
+          new BenchmarkColumn("script code", "Script Code", true, "Latn", "Cyrl", "Grek"));
+
+  public static List<BenchmarkColumn> getColumns(String schemaType, int fields) {
+    List<BenchmarkColumn> columns;
+
+    switch (schemaType) {
+      case "constellation":
+        columns = CONSTELLATION_COLUMNS;
+        break;
+
+      case "relation":
+        columns = RELATION_COLUMNS;
+        break;
+
+      case "resource":
+        columns = RESOURCE_COLUMNS;
+        break;
+
+      default:
+        throw new IllegalArgumentException("unknown schema type: [" + schemaType + "]");
+    }
+
+    if (fields <= 0 || fields >= columns.size()) {
+      return columns;
+    }
+
+    return columns.subList(0, fields);
+  }
+
+  public static Project newProject(List<BenchmarkColumn> columns, int records, int rowsPerRecord)
+      throws ModelException {
+    Project project = new Project();
+
+    for (int c = 0; c < columns.size(); c++) {
+      project.columnModel.addColumn(c, new Column(c, columns.get(c).getName()), false);
+    }
+
+    for (int r = 0; r < records; r++) {
+      for (int i = 0; i < rowsPerRecord; i++) {
+        Row row = new Row(columns.size());
+
+        for (int c = 0; c < columns.size(); c++) {
+          BenchmarkColumn column = columns.get(c);
+
+          // the record key must be blank on continuation rows
+          if (i == 0 || (c > 0 && column.isRepeatable())) {
+            row.setCell(c, new Cell(column.getValue(r, i), null));
+          }
+        }
+
+        project.rows.add(row);
+      }
+    }
+
+    project.update();
+
+    return project;
+  }
+
+  public static SNACSchema newSchema(String schemaType, List<BenchmarkColumn> columns) {
+    HashMap<String, String> mappings = new HashMap<String, String>();
+
+    for (BenchmarkColumn column : columns) {
+      mappings.put(column.getName(), column.getField());
+    }
+
+    return new SNACSchema(schemaType, mappings);
+  }
+
+  public static List<Record> getRecords(Project project) {
+    List<Record> records = new ArrayList<Record>(project.recordModel.getRecordCount());
+
+    for (int i = 0; i < project.recordModel.getRecordCount(); i++) {
+      records.add(project.recordModel.getRecord(i));
+    }
+
+    return records;
+  }
+}
@@ -0,0 +1,110 @@
+package org.openrefine.snac.benchmarks;
+
+import com.google.refine.model.Record;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openrefine.snac.benchmarks.SNACBenchmarkProjects.BenchmarkColumn;
+import org.snaccooperative.openrefine.api.SNACAPIClient;
+import org.snaccooperative.openrefine.cache.SNACLookupCache;
+import org.snaccooperative.openrefine.exporters.SNACAbstractItem;
+import org.snaccooperative.openrefine.exporters.SNACConstellationItem;
+import org.snaccooperative.openrefine.exporters.SNACRelationItem;
+import org.snaccooperative.openrefine.exporters.SNACResourceItem;
+import org.snaccooperative.openrefine.schema.SNACSchema;
+import org.snaccooperative.openrefine.schema.SNACSchemaPlan;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SNACItemBenchmark {
+
+  // Builds, previews and serializes every record of a synthetic project, the
+  // way preview, export and upload do, against a stubbed SNAC API client.
+
+  @Param({"constellation", "relation", "resource"})
+  public String schemaType;
+
+  @Param({"10000"})
+  public int records;
+
+  @Param({"1", "5"})
+  public int rowsPerRecord;
+
+  // number of mapped fields (0 = all of the schema type's benchmark columns)
+  @Param({"0"})
+  public int fields;
+
+  private SNACSchemaPlan _plan;
+  private SNACAPIClient _client;
+  private SNACLookupCache _cache;
+  private List<Record> _records;
+  private List<SNACAbstractItem> _items;
+
+  @Setup
+  public void setup() throws Exception {
+    List<BenchmarkColumn> columns = SNACBenchmarkProjects.getColumns(schemaType, fields);
+    SNACSchema schema = SNACBenchmarkProjects.newSchema(schemaType, columns);
+
+    _plan =
+        new SNACSchemaPlan(
+            SNACBenchmarkProjects.newProject(columns, records, rowsPerRecord), schema);
+    _client = new SNACBenchmarkClient();
+    _cache = new SNACLookupCache(_client);
+    _records = SNACBenchmarkProjects.getRecords(_plan.getProject());
+
+    _items = new ArrayList<SNACAbstractItem>(_records.size());
+    for (Record record : _records) {
+      _items.add(newItem(record));
+    }
+  }
+
+  private SNACAbstractItem newItem(Record record) {
+    switch (schemaType) {
+      case "constellation":
+        return new SNACConstellationItem(_plan, _client, _cache, record);
+
+      case "relation":
+        return new SNACRelationItem(_plan, _client, _cache, record);
+
+      default:
+        return new SNACResourceItem(_plan, _client, _cache, record);
+    }
+  }
+
+  @Benchmark
+  public void buildItems(Blackhole bh) {
+    for (Record record : _records) {
+      bh.consume(newItem(record));
+    }
+  }
+
+  @Benchmark
+  public void previewText(Blackhole bh) {
+    for (SNACAbstractItem item : _items) {
+      bh.consume(item.getPreviewText());
+    }
+  }
+
+  @Benchmark
+  public void toJSON(Blackhole bh) {
+    for (SNACAbstractItem item : _items) {
+      bh.consume(item.toJSON());
+    }
+  }
+}
@@ -0,0 +1,114 @@
+package org.openrefine.snac.benchmarks;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.snaccooperative.openrefine.exporters.SNACPreviewBuilder;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SNACPreviewBenchmark {
+
+  // Renders the preview table of one item with list-valued fields (names,
+  // dates, places...) whose values carry a datamodel toString() prefix: by
+  // regex stripping and String concatenation (as before SNACPreviewBuilder),
+  // versus through SNACPreviewBuilder.  JMH's gc profiler (-prof gc) compares garbage.
+
+  @Param({"5", "15"})
+  public int fields;
+
+  @Param({"1", "10", "100"})
+  public int valuesPerField;
+
+  private List<String> _fieldNames;
+  private List<List<String>> _values;
+
+  @Setup
+  public void setup() {
+    _fieldNames = new ArrayList<String>(fields);
+    _values = new ArrayList<List<String>>(fields);
+
+    for (int f = 0; f < fields; f++) {
+      _fieldNames.add("Field " + f);
+
+      List<String> values = new ArrayList<String>(valuesPerField);
+      for (int v = 0; v < valuesPerField; v++) {
+        values.add("Name Entry: Value " + f + "-" + v);
+      }
+      _values.add(values);
+    }
+  }
+
+  @Benchmark
+  public String concatenate() {
+    Map<String, String> outFields = new TreeMap<>();
+
+    for (int f = 0; f < fields; f++) {
+      List<String> values = new ArrayList<String>();
+      for (String value : _values.get(f)) {
+        values.add((value + " (variant)").replaceFirst("^Name Entry: ", ""));
+      }
+
+      String html = "";
+      if (values.size() > 0) {
+        html = "<ol>";
+        for (int i = 0; i < values.size(); i++) {
+          html += "<li class=\"snac-schema-preview-list-item\">" + values.get(i) + "</li>";
+        }
+        html += "</ol>";
+      }
+
+      outFields.put(_fieldNames.get(f), html);
+    }
+
+    String preview = "";
+    for (String key : outFields.keySet()) {
+      if (outFields.get(key).equals("")) {
+        continue;
+      }
+      preview +=
+          "<tr class=\"snac-schema-preview-row\">"
+              + "<td class=\"snac-schema-preview-column-field\">"
+              + key
+              + "</td>"
+              + "<td class=\"snac-schema-preview-column-value\">"
+              + outFields.get(key)
+              + "</td>"
+              + "</tr>";
+    }
+
+    return "<table><tbody>" + preview + "</tbody></table>";
+  }
+
+  @Benchmark
+  public String builder() {
+    SNACPreviewBuilder preview = new SNACPreviewBuilder();
+
+    for (int f = 0; f < fields; f++) {
+      for (String value : _values.get(f)) {
+        SNACPreviewBuilder.appendStripped(preview.listItem(), value, "Name Entry: ")
+            .append(" (variant)");
+      }
+      preview.putList(_fieldNames.get(f));
+    }
+
+    return preview.build();
+  }
+}
@@ -0,0 +1,73 @@
+package org.openrefine.snac.benchmarks;
+
+import com.google.refine.model.Project;
+import com.google.refine.model.Row;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openrefine.snac.benchmarks.SNACBenchmarkProjects.BenchmarkColumn;
+import org.snaccooperative.openrefine.schema.SNACSchema;
+import org.snaccooperative.openrefine.schema.SNACSchemaPlan;
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SNACSchemaPlanBenchmark {
+
+  // Reads every mapped cell of every row, plus the column for each mapped field,
+  // the way item building does: resolving columns by name on every read (as
+  // before the schema plan), versus through a plan built once per evaluation.
+
+  @Param({"100000"})
+  public int rows;
+
+  private Project _project;
+  private SNACSchema _schema;
+
+  @Setup
+  public void setup() throws Exception {
+    List<BenchmarkColumn> columns = SNACBenchmarkProjects.getColumns("constellation", 0);
+
+    _project = SNACBenchmarkProjects.newProject(columns, rows, 1);
+    _schema = SNACBenchmarkProjects.newSchema("constellation", columns);
+  }
+
+  @Benchmark
+  public void resolveByName(Blackhole bh) {
+    for (Row row : _project.rows) {
+      for (Map.Entry<String, String> entry : _schema.getColumnMappings().entrySet()) {
+        int cellIndex = _project.columnModel.getColumnByName(entry.getKey()).getCellIndex();
+        Object value = row.getCellValue(cellIndex);
+        bh.consume(value == null ? "" : value.toString().trim());
+        bh.consume(_schema.getColumnFromSNACField(entry.getValue()));
+      }
+    }
+  }
+
+  @Benchmark
+  public void resolveByPlan(Blackhole bh) {
+    SNACSchemaPlan plan = new SNACSchemaPlan(_project, _schema);
+
+    for (Row row : _project.rows) {
+      for (SNACSchemaPlan.Mapping mapping : plan.getMappings()) {
+        bh.consume(plan.getCellValue(row, mapping.getCellIndex()));
+        bh.consume(plan.getColumnForField(mapping.getField()));
+      }
+    }
+  }
+}
@@ -1,15 +1,15 @@
 package org.snaccooperative.openrefine.api;
 
 import java.io.IOException;
-import org.apache.http.*;
-import org.apache.http.client.methods.HttpPost;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+import org.apache.http.HttpEntity;
 import org.apache.http.entity.StringEntity;
-import org.apache.http.impl.client.CloseableHttpClient;
-import org.apache.http.impl.client.HttpClientBuilder;
-import org.apache.http.util.EntityUtils;
 import org.json.JSONObject;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.snaccooperative.openrefine.metrics.SNACMetrics;
 import org.snaccooperative.openrefine.preferences.SNACEnvironment;
 import org.snaccooperative.openrefine.preferences.SNACPreferencesManager;
 
@@ -17,32 +17,61 @@ public class SNACAPIClient {
 
   static final Logger logger = LoggerFactory.getLogger(SNACAPIClient.class);
 
+  // commands that only read data, and so can safely be retried after any transient failure
+  private static final Set<String> READ_ONLY_COMMANDS =
+      new HashSet<String>(Arrays.asList("vocabulary", "elastic", "read", "read_resource"));
+
   private SNACEnvironment _env;
 
-  private CloseableHttpClient _client;
-  private HttpPost _post;
+  private SNACHttpTransport _transport;
 
   public SNACAPIClient() {
-    this(null);
+    this((String) null);
   }
 
   public SNACAPIClient(String env) {
+    this(getEnvironment(env));
+
+    SNACPreferencesManager prefsManager = SNACPreferencesManager.getInstance();
+
+    this._transport.configure(
+        prefsManager.getMaxConnectionsPerRoute(),
+        prefsManager.getConnectTimeout(),
+        prefsManager.getSocketTimeout());
+    this._transport.configureRateLimit(
+        prefsManager.getRateLimit(), prefsManager.getRateLimitBurst());
+    this._transport.configureRetries(
+        prefsManager.getMaxRetries(),
+        prefsManager.getRetryBaseDelay(),
+        prefsManager.getRetryMaxDelay());
+  }
+
+  public SNACAPIClient(SNACEnvironment env) {
+    // uses the transport's default pool, rate limit and retry settings rather
+    // than the extension preferences (e.g. for benchmarks and tests)
+
+    this._env = env;
+    this._transport = SNACHttpTransport.getInstance(_env);
+  }
+
+  private static SNACEnvironment getEnvironment(String env) {
     SNACPreferencesManager prefsManager = SNACPreferencesManager.getInstance();
 
     if (env == null) {
-      _env = prefsManager.getEnvironment();
-    } else {
-      _env = prefsManager.getEnvironment(env);
+      return prefsManager.getEnvironment();
     }
 
-    this._client = HttpClientBuilder.create().build();
-    this._post = new HttpPost(_env.getAPIURL());
+    return prefsManager.getEnvironment(env);
   }
 
   public String id() {
     return _env.getID();
   }
 
+  public String key() {
+    return _env.getKey();
+  }
+
   public String name() {
     return _env.getName();
   }
@@ -72,21 +101,42 @@ public class SNACAPIClient {
   }
 
   public SNACAPIResponse post(JSONObject req) {
-    return post(req.toString());
+    String command = req.optString("command", "");
+    return post(command, req.toString(), READ_ONLY_COMMANDS.contains(command));
+  }
+
+  public SNACAPIResponse post(SNACAPIRequest req) {
+    String command = req.getCommand();
+    return post(command, req.toEntity(), READ_ONLY_COMMANDS.contains(command));
   }
 
   public SNACAPIResponse post(String req) {
+    return post("", req, false);
+  }
+
+  private SNACAPIResponse post(String command, String req, Boolean idempotent) {
+    return post(command, new StringEntity(req, "UTF-8"), idempotent);
+  }
+
+  private SNACAPIResponse post(String command, HttpEntity req, Boolean idempotent) {
+    long start = System.nanoTime();
+    SNACAPIResponse response;
+
     try {
-      // logger.debug("API POST data: [" + req + "]");
-      StringEntity apiCasted = new StringEntity(req, "UTF-8");
-      _post.setEntity(apiCasted);
-      HttpResponse res = _client.execute(_post);
-      String result = EntityUtils.toString(res.getEntity());
+      String result = _transport.post(apiURL(), req, idempotent);
       // logger.debug("API response: [" + result + "]");
-      return new SNACAPIResponse(this, result);
+      response = new SNACAPIResponse(this, result);
     } catch (IOException e) {
       logger.error(e.toString());
-      return new SNACAPIResponse(this, e.toString());
+      response = new SNACAPIResponse(this, e.toString());
     }
+
+    SNACMetrics.getInstance()
+        .recordRequest(
+            command.equals("") ? "unknown" : command,
+            System.nanoTime() - start,
+            response.isSuccess());
+
+    return response;
   }
 }
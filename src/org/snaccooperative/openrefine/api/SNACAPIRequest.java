@@ -0,0 +1,129 @@
+package org.snaccooperative.openrefine.api;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import org.apache.http.HttpEntity;
+import org.apache.http.entity.ByteArrayEntity;
+import org.apache.http.entity.ContentType;
+
+public class SNACAPIRequest {
+
+  // A SNAC API request: the command envelope (command, api key, ids) plus any
+  // already-serialized JSON payloads (e.g. Constellation.toJSON()).  Payloads
+  // are written into the request body as-is, so they are never parsed back into
+  // a JSON tree and re-serialized.  The body is serialized once, straight to
+  // UTF-8 bytes, and sent with a Content-Length just as the StringEntity it
+  // replaces was.
+
+  private static final JsonFactory JSON_FACTORY =
+      new JsonFactory().disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+
+  // same content type as the StringEntity that requests were previously sent as
+  private static final ContentType CONTENT_TYPE =
+      ContentType.create("text/plain", StandardCharsets.UTF_8);
+
+  private static class Field {
+    final String key;
+    final Object value;
+    final Boolean raw;
+
+    Field(String key, Object value, Boolean raw) {
+      this.key = key;
+      this.value = value;
+      this.raw = raw;
+    }
+  }
+
+  private final String _command;
+  private final List<Field> _fields;
+
+  public SNACAPIRequest(String command) {
+    this._command = command;
+    this._fields = new ArrayList<Field>();
+  }
+
+  public String getCommand() {
+    return _command;
+  }
+
+  public SNACAPIRequest put(String key, String value) {
+    _fields.add(new Field(key, value, false));
+    return this;
+  }
+
+  public SNACAPIRequest put(String key, int value) {
+    _fields.add(new Field(key, value, false));
+    return this;
+  }
+
+  public SNACAPIRequest putJSON(String key, String json) {
+    // json must be a complete, valid JSON value; it is not checked
+    _fields.add(new Field(key, json, true));
+    return this;
+  }
+
+  private void write(JsonGenerator gen) throws IOException {
+    gen.writeStartObject();
+
+    gen.writeStringField("command", _command);
+
+    for (Field field : _fields) {
+      gen.writeFieldName(field.key);
+
+      if (field.value == null) {
+        gen.writeNull();
+      } else if (field.raw) {
+        gen.writeRawValue((String) field.value);
+      } else if (field.value instanceof Integer) {
+        gen.writeNumber((Integer) field.value);
+      } else {
+        gen.writeString((String) field.value);
+      }
+    }
+
+    gen.writeEndObject();
+    gen.flush();
+  }
+
+  public void writeTo(OutputStream out) throws IOException {
+    try (JsonGenerator gen = JSON_FACTORY.createGenerator(out, JsonEncoding.UTF8)) {
+      write(gen);
+    }
+  }
+
+  public HttpEntity toEntity() {
+    ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+    try {
+      writeTo(out);
+    } catch (IOException e) {
+      // cannot happen when writing to memory
+      throw new UncheckedIOException(e);
+    }
+
+    return new ByteArrayEntity(out.toByteArray(), CONTENT_TYPE);
+  }
+
+  @Override
+  public String toString() {
+    StringWriter out = new StringWriter();
+
+    try (JsonGenerator gen = JSON_FACTORY.createGenerator(out)) {
+      write(gen);
+    } catch (IOException e) {
+      // cannot happen when writing to a string
+      throw new UncheckedIOException(e);
+    }
+
+    return out.toString();
+  }
+}
@@ -1,12 +1,18 @@
 package org.snaccooperative.openrefine.api;
 
-import org.json.JSONArray;
-import org.json.JSONException;
-import org.json.JSONObject;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.StreamReadFeature;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.snaccooperative.data.Constellation;
 import org.snaccooperative.data.Resource;
+import org.snaccooperative.data.Term;
 
 public class SNACAPIResponse {
 
@@ -21,6 +27,32 @@ public class SNACAPIResponse {
   private int _id;
   private int _version;
 
+  // elasticsearch hit count, or null if the response had none
+  private Integer _hitCount;
+
+  // vocabulary query results, or null if the response had no results array
+  private List<Term> _terms;
+
+  // as strict as the org.json parser that responses used to be read with, which
+  // rejects duplicate keys; trailing content after the response is also rejected
+  private static final JsonFactory JSON_FACTORY =
+      JsonFactory.builder().enable(StreamReadFeature.STRICT_DUPLICATE_DETECTION).build();
+
+  private static class ParsedFields {
+    // the parts of a response that we use, as found while parsing it
+    String result = null;
+    String messageText = null;
+    Boolean error = false;
+    String errorType = "";
+    String errorMessage = "";
+    Boolean resultsObject = false;
+    Boolean relatedConstellations = false;
+    Integer hitCount = null;
+    List<Term> terms = null;
+    String resourceJSON = null;
+    String constellationJSON = null;
+  }
+
   public SNACAPIResponse(String apiResponse) {
     this((SNACAPIClient) null, apiResponse);
   }
@@ -46,83 +78,316 @@ public class SNACAPIResponse {
     // attempt to parse json; if it does not parse, it's either
     // a badly-formed response or (most likely) an exception
 
+    ParsedFields fields;
+    Resource resource = null;
+    Constellation constellation = null;
+
     try {
-      JSONObject jsonResponse = new JSONObject(apiResponse);
-
-      Object result = jsonResponse.opt("result");
-      Object message = jsonResponse.opt("message");
-      Object error = jsonResponse.opt("error");
-      Object resource = jsonResponse.opt("resource");
-      Object constellation = jsonResponse.opt("constellation");
-      Object results = jsonResponse.opt("results");
-      Object relatedConstellations = jsonResponse.opt("related_constellations");
-
-      // populate result/message
-      if (result instanceof String) {
-        // result = "success", "success-notice", etc. -- could contain optional message
-        this._result = result.toString();
-        if (message instanceof JSONObject) {
-          this._message = ((JSONObject) message).optString("text", "");
+      fields = parse(apiResponse);
+
+      // the datamodel parses any resource/constellation straight from its span
+      // of the response text
+      if (fields.resourceJSON != null) {
+        resource = Resource.fromJSON(fields.resourceJSON);
+        if (resource == null) {
+          throw new IOException("unreadable resource");
         }
-      } else {
-        if (error instanceof JSONObject) {
-          // result = "error", plus any error type/message
-          String errorType = ((JSONObject) error).optString("type", "");
-          String errorMessage = ((JSONObject) error).optString("message", "");
-          String errorFull = "";
-
-          if (!errorType.equals("")) {
-            errorFull = errorType;
-            if (!errorMessage.equals("")) {
-              errorFull += " - " + errorMessage;
-            }
-          } else {
-            errorFull = errorMessage;
+      } else if (fields.constellationJSON != null) {
+        constellation = Constellation.fromJSON(fields.constellationJSON);
+        if (constellation == null) {
+          throw new IOException("unreadable constellation");
+        }
+      }
+    } catch (IOException | RuntimeException e) {
+      // assume apiResponse is an exception string, not a badly-formed API response
+      this._result = "exception";
+      this._message = apiResponse;
+      return;
+    }
+
+    // populate result/message
+    if (fields.result != null) {
+      // result = "success", "success-notice", etc. -- could contain optional message
+      this._result = fields.result;
+      if (fields.messageText != null) {
+        this._message = fields.messageText;
+      }
+    } else {
+      if (fields.error) {
+        // result = "error", plus any error type/message
+        String errorFull = "";
+
+        if (!fields.errorType.equals("")) {
+          errorFull = fields.errorType;
+          if (!fields.errorMessage.equals("")) {
+            errorFull += " - " + fields.errorMessage;
           }
+        } else {
+          errorFull = fields.errorMessage;
+        }
 
-          this._result = "error";
-          this._message = errorFull;
+        this._result = "error";
+        this._message = errorFull;
+      } else {
+        // in the absence of other evidence, the presence of some fields can indicate success:
+        // "results": returned by vocabulary lookups or elasticsearch queries
+        // "related_constellations": returned by a "read_resource" for a non-existent resource
+        if (fields.resultsObject || fields.relatedConstellations) {
+          this._result = "success";
         } else {
-          // in the absence of other evidence, the presence of some fields can indicate success:
-          // "results": returned by vocabulary lookups or elasticsearch queries
-          // "related_constellations": returned by a "read_resource" for a non-existent resource
-          if ((results instanceof JSONObject) || (relatedConstellations instanceof JSONArray)) {
-            this._result = "success";
-          } else {
-            this._result = "unknown";
-            this._message = "Unable to determine result";
-          }
+          this._result = "unknown";
+          this._message = "Unable to determine result";
+        }
+      }
+    }
+
+    this._hitCount = fields.hitCount;
+    this._terms = fields.terms;
+
+    // populate any resource/constellation, plus id/version
+
+    if (resource != null) {
+      this._resource = resource;
+      this._id = resource.getID();
+      this._version = resource.getVersion();
+      this._uri = client.urlForResourceID(resource.getID());
+    } else if (constellation != null) {
+      this._constellation = constellation;
+      this._id = constellation.getID();
+      this._version = constellation.getVersion();
+
+      // only use ARK for prod CPF, since they are only valid there
+      if (client.isProd()) {
+        this._uri = constellation.getArk();
+      } else {
+        this._uri = client.urlForConstellationID(constellation.getID());
+      }
+    }
+  }
+
+  private static ParsedFields parse(String apiResponse) throws IOException {
+    // single streaming pass over the response, keeping only the fields we use:
+    // no tree is built, and nested resource/constellation objects are kept as
+    // their original text for the datamodel to parse
+
+    ParsedFields fields = new ParsedFields();
+
+    try (JsonParser parser = JSON_FACTORY.createParser(apiResponse)) {
+      if (parser.nextToken() != JsonToken.START_OBJECT) {
+        throw new JsonParseException(parser, "API response is not a JSON object");
+      }
+
+      while (parser.nextToken() == JsonToken.FIELD_NAME) {
+        String field = parser.getCurrentName();
+        JsonToken token = parser.nextToken();
+
+        switch (field) {
+          case "result":
+            if (token == JsonToken.VALUE_STRING) {
+              fields.result = parser.getText();
+            } else {
+              parser.skipChildren();
+            }
+            break;
+
+          case "message":
+            if (token == JsonToken.START_OBJECT) {
+              fields.messageText = readObjectString(parser, "text");
+            } else {
+              parser.skipChildren();
+            }
+            break;
+
+          case "error":
+            if (token == JsonToken.START_OBJECT) {
+              fields.error = true;
+              parseError(parser, fields);
+            } else {
+              parser.skipChildren();
+            }
+            break;
+
+          case "resource":
+            fields.resourceJSON = readObjectText(parser, apiResponse);
+            break;
+
+          case "constellation":
+            fields.constellationJSON = readObjectText(parser, apiResponse);
+            break;
+
+          case "results":
+            if (token == JsonToken.START_OBJECT) {
+              fields.resultsObject = true;
+              parseHits(parser, fields);
+            } else if (token == JsonToken.START_ARRAY) {
+              parseTerms(parser, fields);
+            } else {
+              parser.skipChildren();
+            }
+            break;
+
+          case "related_constellations":
+            fields.relatedConstellations = (token == JsonToken.START_ARRAY);
+            parser.skipChildren();
+            break;
+
+          default:
+            parser.skipChildren();
         }
       }
 
-      // populate any resource/constellation, plus id/version
-
-      if (resource instanceof JSONObject) {
-        Resource res = Resource.fromJSON(((JSONObject) resource).toString());
-        this._resource = res;
-        this._id = res.getID();
-        this._version = res.getVersion();
-        this._uri = client.urlForResourceID(res.getID());
-      } else if (constellation instanceof JSONObject) {
-        Constellation con = Constellation.fromJSON(((JSONObject) constellation).toString());
-        this._constellation = con;
-        this._id = con.getID();
-        this._version = con.getVersion();
-
-        // only use ARK for prod CPF, since they are only valid there
-        if (client.isProd()) {
-          this._uri = con.getArk();
+      if (parser.nextToken() != null) {
+        throw new JsonParseException(parser, "unexpected content after API response");
+      }
+    }
+
+    return fields;
+  }
+
+  private static String readObjectText(JsonParser parser, String apiResponse) throws IOException {
+    // text of the object starting at the current token, or null if it is not an object
+
+    if (parser.getCurrentToken() != JsonToken.START_OBJECT) {
+      parser.skipChildren();
+      return null;
+    }
+
+    int start = (int) parser.getTokenLocation().getCharOffset();
+    parser.skipChildren();
+    int end = (int) parser.getCurrentLocation().getCharOffset();
+
+    return apiResponse.substring(start, end);
+  }
+
+  private static String readObjectString(JsonParser parser, String name) throws IOException {
+    // value of a scalar field of the object starting at the current token
+
+    String value = null;
+
+    while (parser.nextToken() == JsonToken.FIELD_NAME) {
+      String field = parser.getCurrentName();
+      JsonToken token = parser.nextToken();
+
+      if (field.equals(name) && token.isScalarValue()) {
+        value = parser.getValueAsString();
+      } else {
+        parser.skipChildren();
+      }
+    }
+
+    return value;
+  }
+
+  private static void parseError(JsonParser parser, ParsedFields fields) throws IOException {
+    while (parser.nextToken() == JsonToken.FIELD_NAME) {
+      String field = parser.getCurrentName();
+      JsonToken token = parser.nextToken();
+
+      if (field.equals("type") && token.isScalarValue()) {
+        fields.errorType = parser.getValueAsString("");
+      } else if (field.equals("message") && token.isScalarValue()) {
+        fields.errorMessage = parser.getValueAsString("");
+      } else {
+        parser.skipChildren();
+      }
+    }
+  }
+
+  private static void parseHits(JsonParser parser, ParsedFields fields) throws IOException {
+    // elasticsearch results: { "hits": { "total": { "value": N } (or "total": N), ... }, ... }
+
+    while (parser.nextToken() == JsonToken.FIELD_NAME) {
+      String field = parser.getCurrentName();
+      JsonToken token = parser.nextToken();
+
+      if (!field.equals("hits") || token != JsonToken.START_OBJECT) {
+        parser.skipChildren();
+        continue;
+      }
+
+      while (parser.nextToken() == JsonToken.FIELD_NAME) {
+        String hitsField = parser.getCurrentName();
+        JsonToken hitsToken = parser.nextToken();
+
+        if (!hitsField.equals("total")) {
+          parser.skipChildren();
+        } else if (hitsToken == JsonToken.VALUE_NUMBER_INT) {
+          fields.hitCount = parser.getIntValue();
+        } else if (hitsToken == JsonToken.START_OBJECT) {
+          String value = readObjectString(parser, "value");
+          if (value != null) {
+            try {
+              fields.hitCount = Integer.parseInt(value);
+            } catch (NumberFormatException e) {
+              throw new JsonParseException(parser, "invalid hit count: [" + value + "]");
+            }
+          }
         } else {
-          this._uri = client.urlForConstellationID(con.getID());
+          parser.skipChildren();
         }
       }
-    } catch (JSONException e) {
-      // assume apiResponse is an exception string, not a badly-formed API response
-      this._result = "exception";
-      this._message = apiResponse;
     }
   }
 
+  private static void parseTerms(JsonParser parser, ParsedFields fields) throws IOException {
+    // vocabulary results: [ { "id": ..., "type": ..., "term": ..., "description": ... }, ... ]
+    // entries that are not objects are kept as nulls
+
+    fields.terms = new ArrayList<Term>();
+
+    JsonToken token;
+    while ((token = parser.nextToken()) != JsonToken.END_ARRAY) {
+      if (token != JsonToken.START_OBJECT) {
+        parser.skipChildren();
+        fields.terms.add(null);
+        continue;
+      }
+
+      Term term = new Term();
+
+      while (parser.nextToken() == JsonToken.FIELD_NAME) {
+        String field = parser.getCurrentName();
+        JsonToken fieldToken = parser.nextToken();
+
+        if (!fieldToken.isScalarValue()) {
+          parser.skipChildren();
+          continue;
+        }
+
+        switch (field) {
+          case "type":
+            term.setType(parser.getValueAsString());
+            break;
+
+          case "term":
+            term.setTerm(parser.getValueAsString());
+            break;
+
+          case "description":
+            term.setDescription(parser.getValueAsString());
+            break;
+        }
+      }
+
+      fields.terms.add(term);
+    }
+  }
+
+  public SNACAPIResponse(String result, String message, int id, int version, String uri) {
+    // reconstructs the outcome of an earlier request (e.g. from an upload journal)
+    // when the original API response itself is no longer available
+
+    this._apiResponse = "";
+
+    this._result = result;
+    this._message = message;
+    this._resource = null;
+    this._constellation = null;
+    this._id = id;
+    this._uri = uri;
+    this._version = version;
+  }
+
   public SNACAPIResponse(SNACAPIResponse other, String apiResponse) {
     // returns copy of existing API response, with its apiResponse field overridden
     // with an alternate value.  this is useful for scenarios such as constellation
@@ -180,6 +445,14 @@ public class SNACAPIResponse {
     return "";
   }
 
+  public Integer getHitCount() {
+    return _hitCount;
+  }
+
+  public List<Term> getTerms() {
+    return _terms;
+  }
+
   public Resource getResource() {
     return _resource;
   }
@@ -0,0 +1,272 @@
+package org.snaccooperative.openrefine.api;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.ConnectException;
+import java.net.SocketTimeoutException;
+import java.net.UnknownHostException;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import javax.net.ssl.SSLException;
+import org.apache.http.Header;
+import org.apache.http.HttpEntity;
+import org.apache.http.HttpHeaders;
+import org.apache.http.HttpResponse;
+import org.apache.http.HttpStatus;
+import org.apache.http.client.ClientProtocolException;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.HttpPost;
+import org.apache.http.conn.ConnectTimeoutException;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.DefaultConnectionKeepAliveStrategy;
+import org.apache.http.impl.client.HttpClientBuilder;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.apache.http.util.EntityUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.snaccooperative.openrefine.preferences.SNACEnvironment;
+
+public class SNACHttpTransport {
+
+  static final Logger logger = LoggerFactory.getLogger(SNACHttpTransport.class);
+
+  public static final int DEFAULT_MAX_CONNECTIONS_PER_ROUTE = 8;
+  public static final int DEFAULT_CONNECT_TIMEOUT = 10000;
+  public static final int DEFAULT_SOCKET_TIMEOUT = 300000;
+  public static final double DEFAULT_RATE_LIMIT = 20;
+  public static final int DEFAULT_RATE_BURST = 40;
+  public static final int DEFAULT_MAX_RETRIES = 3;
+  public static final int DEFAULT_RETRY_BASE_DELAY = 500;
+  public static final int DEFAULT_RETRY_MAX_DELAY = 30000;
+
+  private static final int VALIDATE_AFTER_INACTIVITY = 2000;
+  private static final int IDLE_CONNECTION_TIMEOUT = 30;
+
+  // one transport (and therefore one connection pool) per SNAC environment,
+  // shared by every API client created for that environment
+  private static final Map<String, SNACHttpTransport> _transports =
+      new ConcurrentHashMap<String, SNACHttpTransport>();
+
+  private final String _key;
+  private final PoolingHttpClientConnectionManager _connectionManager;
+  private final CloseableHttpClient _client;
+
+  private final SNACRateLimiter _rateLimiter;
+
+  private volatile RequestConfig _requestConfig;
+  private int _maxConnectionsPerRoute;
+  private int _connectTimeout;
+  private int _socketTimeout;
+
+  private volatile int _maxRetries;
+  private volatile int _retryBaseDelay;
+  private volatile int _retryMaxDelay;
+
+  private SNACHttpTransport(String key) {
+    this._key = key;
+
+    this._connectionManager = new PoolingHttpClientConnectionManager();
+    this._connectionManager.setValidateAfterInactivity(VALIDATE_AFTER_INACTIVITY);
+
+    this._client =
+        HttpClientBuilder.create()
+            .setConnectionManager(_connectionManager)
+            .setKeepAliveStrategy(DefaultConnectionKeepAliveStrategy.INSTANCE)
+            .evictExpiredConnections()
+            .evictIdleConnections(IDLE_CONNECTION_TIMEOUT, TimeUnit.SECONDS)
+            .build();
+
+    this._rateLimiter = new SNACRateLimiter(DEFAULT_RATE_LIMIT, DEFAULT_RATE_BURST);
+
+    configure(DEFAULT_MAX_CONNECTIONS_PER_ROUTE, DEFAULT_CONNECT_TIMEOUT, DEFAULT_SOCKET_TIMEOUT);
+    configureRetries(DEFAULT_MAX_RETRIES, DEFAULT_RETRY_BASE_DELAY, DEFAULT_RETRY_MAX_DELAY);
+  }
+
+  public static SNACHttpTransport getInstance(SNACEnvironment env) {
+    return _transports.computeIfAbsent(env.getKey(), key -> new SNACHttpTransport(key));
+  }
+
+  public synchronized void configure(
+      int maxConnectionsPerRoute, int connectTimeout, int socketTimeout) {
+    // pool limits and timeouts can be changed on the fly; any in-flight
+    // requests keep the settings they started with
+
+    if (maxConnectionsPerRoute == _maxConnectionsPerRoute
+        && connectTimeout == _connectTimeout
+        && socketTimeout == _socketTimeout) {
+      return;
+    }
+
+    logger.info(
+        "["
+            + _key
+            + "] http transport: max connections per route: ["
+            + maxConnectionsPerRoute
+            + "]  connect timeout: ["
+            + connectTimeout
+            + " ms]  socket timeout: ["
+            + socketTimeout
+            + " ms]");
+
+    _maxConnectionsPerRoute = maxConnectionsPerRoute;
+    _connectTimeout = connectTimeout;
+    _socketTimeout = socketTimeout;
+
+    // all requests for an environment go to a single route (the API URL)
+    _connectionManager.setDefaultMaxPerRoute(maxConnectionsPerRoute);
+    _connectionManager.setMaxTotal(maxConnectionsPerRoute);
+
+    _requestConfig =
+        RequestConfig.custom()
+            .setConnectTimeout(connectTimeout)
+            .setSocketTimeout(socketTimeout)
+            .build();
+  }
+
+  public void configureRateLimit(double rate, int burst) {
+    _rateLimiter.configure(rate, burst);
+  }
+
+  public void configureRetries(int maxRetries, int baseDelay, int maxDelay) {
+    _maxRetries = Math.max(0, maxRetries);
+    _retryBaseDelay = Math.max(1, baseDelay);
+    _retryMaxDelay = Math.max(_retryBaseDelay, maxDelay);
+  }
+
+  private Boolean isTransientStatus(int status, Boolean idempotent) {
+    // requests that change data are only retried if the server clearly did not
+    // process them; otherwise a retry could, for example, insert a duplicate
+
+    if (status == HttpStatus.SC_TOO_MANY_REQUESTS || status == HttpStatus.SC_SERVICE_UNAVAILABLE) {
+      return true;
+    }
+
+    return idempotent && status >= 500;
+  }
+
+  private Boolean isTransientException(IOException e, Boolean idempotent) {
+    // connection failures mean the request was never sent, so are always safe to retry
+
+    if (e instanceof ConnectException || e instanceof ConnectTimeoutException) {
+      return true;
+    }
+
+    if (!idempotent) {
+      return false;
+    }
+
+    // timeouts, resets and dropped connections; but not e.g. unknown hosts or bad
+    // certificates, which will not fix themselves
+
+    return !(e instanceof UnknownHostException
+        || e instanceof SSLException
+        || e instanceof ClientProtocolException
+        || (e instanceof InterruptedIOException && !(e instanceof SocketTimeoutException)));
+  }
+
+  private long retryDelay(int attempt, HttpResponse res) {
+    // exponential backoff with full jitter, unless the server says how long to wait
+
+    long cap = Math.min(_retryMaxDelay, (long) _retryBaseDelay << Math.min(attempt, 20));
+    long delay = ThreadLocalRandom.current().nextLong(cap + 1);
+
+    Header retryAfter = (res == null ? null : res.getFirstHeader(HttpHeaders.RETRY_AFTER));
+
+    if (retryAfter != null) {
+      try {
+        long seconds = Long.parseLong(retryAfter.getValue().trim());
+        delay = Math.min(_retryMaxDelay, Math.max(delay, TimeUnit.SECONDS.toMillis(seconds)));
+      } catch (NumberFormatException e) {
+        // http-date form; fall back to our own delay
+      }
+    }
+
+    return delay;
+  }
+
+  private void backoff(int attempt, long delay, String reason) throws IOException {
+    _rateLimiter.onOverload();
+
+    logger.warn(
+        "["
+            + _key
+            + "] transient failure ("
+            + reason
+            + "); retry "
+            + (attempt + 1)
+            + " of "
+            + _maxRetries
+            + " in "
+            + delay
+            + " ms");
+
+    try {
+      Thread.sleep(delay);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException("interrupted while waiting to retry request");
+    }
+  }
+
+  public String post(String url, HttpEntity entity) throws IOException {
+    return post(url, entity, false);
+  }
+
+  public String post(String url, HttpEntity entity, Boolean idempotent) throws IOException {
+    // requests are rate limited per environment, and transient failures are retried
+    // with backoff.  idempotent requests (e.g. lookups) can be retried after any
+    // transient failure; others only when the server cannot have processed them.
+    // the entity must be repeatable if it may be retried.
+
+    int maxRetries = entity.isRepeatable() ? _maxRetries : 0;
+
+    for (int attempt = 0; ; attempt++) {
+      _rateLimiter.acquire();
+
+      // a new request object is used for every call so that concurrent callers can
+      // share this transport (the underlying client and pool are thread-safe)
+
+      HttpPost post = new HttpPost(url);
+      post.setConfig(_requestConfig);
+      post.setEntity(entity);
+
+      String body;
+      int status;
+      long delay;
+
+      try {
+        // closing the response returns the connection to the pool for reuse
+        try (CloseableHttpResponse res = _client.execute(post)) {
+          status = res.getStatusLine().getStatusCode();
+          body = EntityUtils.toString(res.getEntity(), StandardCharsets.UTF_8);
+          delay = retryDelay(attempt, res);
+        }
+      } catch (IOException e) {
+        // never retry once this thread has been interrupted (e.g. the upload was canceled)
+        if (Thread.currentThread().isInterrupted()
+            || !isTransientException(e, idempotent)
+            || attempt >= maxRetries) {
+          throw e;
+        }
+
+        backoff(attempt, retryDelay(attempt, null), e.toString());
+        continue;
+      }
+
+      if (isTransientStatus(status, idempotent) && attempt < maxRetries) {
+        backoff(attempt, delay, "http status " + status);
+        continue;
+      }
+
+      if (status < 500 && status != HttpStatus.SC_TOO_MANY_REQUESTS) {
+        _rateLimiter.onSuccess();
+      }
+
+      return body;
+    }
+  }
+}
@@ -0,0 +1,97 @@
+package org.snaccooperative.openrefine.api;
+
+import java.io.InterruptedIOException;
+import java.util.concurrent.TimeUnit;
+
+public class SNACRateLimiter {
+
+  // Token bucket limiting the rate of requests to one SNAC environment.
+  // Tokens accrue at the current rate up to the burst size; each request takes
+  // one, waiting for it if none are left.  The current rate adapts to the server:
+  // it is halved whenever the server signals overload (throttling, timeouts,
+  // unavailability) and creeps back up to the configured rate on success.
+
+  private static final double MIN_RATE = 0.5;
+  private static final double RECOVERY_FRACTION = 0.05;
+
+  private double _maxRate;
+  private double _rate;
+  private double _burst;
+  private double _tokens;
+  private long _lastRefill;
+
+  public SNACRateLimiter(double rate, int burst) {
+    this._lastRefill = System.nanoTime();
+    configure(rate, burst);
+    this._tokens = _burst;
+  }
+
+  public synchronized void configure(double rate, int burst) {
+    // a rate of zero or less disables limiting
+
+    if (rate == _maxRate && burst == _burst) {
+      return;
+    }
+
+    _maxRate = rate;
+    _rate = rate;
+    _burst = Math.max(1, burst);
+    _tokens = Math.min(_tokens, _burst);
+  }
+
+  public synchronized double getRate() {
+    return _rate;
+  }
+
+  private void refill(long now) {
+    _tokens = Math.min(_burst, _tokens + (now - _lastRefill) * _rate / TimeUnit.SECONDS.toNanos(1));
+    _lastRefill = now;
+  }
+
+  public void acquire() throws InterruptedIOException {
+    long wait;
+
+    synchronized (this) {
+      if (_maxRate <= 0) {
+        return;
+      }
+
+      refill(System.nanoTime());
+
+      // reserve a token even if it is not available yet, so that waiting
+      // callers are served in turn rather than all waking at once
+      _tokens -= 1;
+
+      if (_tokens >= 0) {
+        return;
+      }
+
+      wait = (long) Math.ceil(-_tokens * TimeUnit.SECONDS.toNanos(1) / _rate);
+    }
+
+    try {
+      TimeUnit.NANOSECONDS.sleep(wait);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException("interrupted while waiting to send request");
+    }
+  }
+
+  public synchronized void onSuccess() {
+    if (_maxRate <= 0 || _rate >= _maxRate) {
+      return;
+    }
+
+    refill(System.nanoTime());
+    _rate = Math.min(_maxRate, _rate + _maxRate * RECOVERY_FRACTION);
+  }
+
+  public synchronized void onOverload() {
+    if (_maxRate <= 0) {
+      return;
+    }
+
+    refill(System.nanoTime());
+    _rate = Math.max(Math.min(MIN_RATE, _maxRate), _rate / 2);
+  }
+}
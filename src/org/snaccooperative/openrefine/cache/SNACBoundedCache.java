@@ -0,0 +1,107 @@
+package org.snaccooperative.openrefine.cache;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.ToLongFunction;
+import org.snaccooperative.openrefine.metrics.SNACMetrics;
+
+public class SNACBoundedCache<K, V> {
+
+  // Thread-safe map holding at most a fixed number of entries, evicting the
+  // least recently used entry to make room for a new one.  Evictions and sizes
+  // are reported per cache name in the metrics, so that an undersized (or
+  // oversized) cache shows up there.
+  // Caches of values that vary widely in size (e.g. rendered text) can also be
+  // bounded by the total weight of their values.
+
+  private final String _name;
+  private final int _maxEntries;
+  private final long _maxWeight;
+  private final ToLongFunction<V> _weigher;
+  private final LinkedHashMap<K, V> _entries;
+
+  private long _weight;
+
+  public SNACBoundedCache(String name, int maxEntries) {
+    this(name, maxEntries, 0, null);
+  }
+
+  public SNACBoundedCache(String name, int maxEntries, long maxWeight, ToLongFunction<V> weigher) {
+    // a maxWeight of zero or less (or no weigher) bounds the number of entries only
+    this._name = name;
+    this._maxEntries = Math.max(1, maxEntries);
+    this._maxWeight = (weigher == null ? 0 : maxWeight);
+    this._weigher = weigher;
+    this._weight = 0;
+    this._entries =
+        new LinkedHashMap<K, V>(16, 0.75f, true) {
+          @Override
+          protected boolean removeEldestEntry(Map.Entry<K, V> eldest) {
+            if (size() <= _maxEntries) {
+              return false;
+            }
+
+            SNACMetrics.getInstance().recordEviction(_name);
+            _weight -= weigh(eldest.getValue());
+            return true;
+          }
+        };
+  }
+
+  private long weigh(V value) {
+    if (_maxWeight <= 0 || value == null) {
+      return 0;
+    }
+
+    return _weigher.applyAsLong(value);
+  }
+
+  public int getMaxEntries() {
+    return _maxEntries;
+  }
+
+  public synchronized V get(K key) {
+    return _entries.get(key);
+  }
+
+  public synchronized void put(K key, V value) {
+    _weight += weigh(value);
+    _weight -= weigh(_entries.put(key, value));
+
+    if (_maxWeight > 0) {
+      // the entry just added is the most recently used, so it is evicted last
+      // (and only if it alone exceeds the bound)
+      Iterator<V> it = _entries.values().iterator();
+
+      while (_weight > _maxWeight && it.hasNext()) {
+        _weight -= weigh(it.next());
+        it.remove();
+        SNACMetrics.getInstance().recordEviction(_name);
+      }
+    }
+
+    SNACMetrics.getInstance().recordSize(_name, _entries.size());
+  }
+
+  public synchronized V remove(K key) {
+    V value = _entries.remove(key);
+    _weight -= weigh(value);
+    SNACMetrics.getInstance().recordSize(_name, _entries.size());
+    return value;
+  }
+
+  public synchronized int size() {
+    return _entries.size();
+  }
+
+  public synchronized long weight() {
+    return _weight;
+  }
+
+  public synchronized void clear() {
+    _entries.clear();
+    _weight = 0;
+    SNACMetrics.getInstance().recordSize(_name, 0);
+  }
+}
@@ -0,0 +1,137 @@
+package org.snaccooperative.openrefine.cache;
+
+import java.util.Arrays;
+import org.snaccooperative.openrefine.metrics.SNACMetrics;
+
+public class SNACExistenceSet {
+
+  // Known existence of SNAC ids (constellations, resources): an id is known to
+  // exist, known not to exist, or not known yet.  Kept in an open-addressing
+  // hash table of primitive ids rather than a map of boxed ids, so each known
+  // id costs around ten bytes instead of ~100, and memory grows with the number
+  // of ids looked up rather than with the largest id seen.
+  //
+  // The table holds at most a fixed number of ids.  It keeps no recency order to
+  // evict by, so once full it is emptied and starts over: forgotten ids are just
+  // looked up again.  Evictions and size are reported per name in the metrics,
+  // like those of a SNACBoundedCache.
+
+  public static final int DEFAULT_MAX_ENTRIES = 1 << 20;
+
+  private static final int EMPTY = -1;
+  private static final int INITIAL_CAPACITY = 1024;
+
+  private final String _name;
+  private final int _maxEntries;
+
+  private int[] _ids;
+  private boolean[] _exists;
+  private int _size;
+
+  public SNACExistenceSet(String name) {
+    this(name, DEFAULT_MAX_ENTRIES);
+  }
+
+  public SNACExistenceSet(String name, int maxEntries) {
+    this._name = name;
+    this._maxEntries = Math.max(1, maxEntries);
+    reset();
+  }
+
+  private void reset() {
+    this._ids = newTable(INITIAL_CAPACITY);
+    this._exists = new boolean[INITIAL_CAPACITY];
+    this._size = 0;
+  }
+
+  private static int[] newTable(int capacity) {
+    int[] ids = new int[capacity];
+    Arrays.fill(ids, EMPTY);
+    return ids;
+  }
+
+  private static int slot(int[] ids, int id) {
+    // slot holding id, or the empty slot where it would go.  the table is
+    // never more than half full, so probing always finds one or the other
+
+    int mask = ids.length - 1;
+    int h = id * 0x9E3779B9;
+    int i = (h ^ (h >>> 16)) & mask;
+
+    while (ids[i] != EMPTY && ids[i] != id) {
+      i = (i + 1) & mask;
+    }
+
+    return i;
+  }
+
+  public synchronized Boolean get(int id) {
+    // null if not known
+
+    if (id < 0) {
+      return null;
+    }
+
+    int i = slot(_ids, id);
+
+    if (_ids[i] == EMPTY) {
+      return null;
+    }
+
+    return _exists[i];
+  }
+
+  public Boolean contains(int id) {
+    return get(id) != null;
+  }
+
+  public synchronized void put(int id, Boolean exists) {
+    if (id < 0 || exists == null) {
+      return;
+    }
+
+    int i = slot(_ids, id);
+
+    if (_ids[i] == EMPTY) {
+      if (_size >= _maxEntries) {
+        SNACMetrics.getInstance().recordEvictions(_name, _size);
+        reset();
+        i = slot(_ids, id);
+      } else if ((_size + 1) * 2 > _ids.length) {
+        grow();
+        i = slot(_ids, id);
+      }
+
+      _ids[i] = id;
+      _size++;
+
+      SNACMetrics.getInstance().recordSize(_name, _size);
+    }
+
+    _exists[i] = exists;
+  }
+
+  private void grow() {
+    int[] ids = newTable(_ids.length * 2);
+    boolean[] exists = new boolean[ids.length];
+
+    for (int i = 0; i < _ids.length; i++) {
+      if (_ids[i] != EMPTY) {
+        int j = slot(ids, _ids[i]);
+        ids[j] = _ids[i];
+        exists[j] = _exists[i];
+      }
+    }
+
+    _ids = ids;
+    _exists = exists;
+  }
+
+  public int getMaxEntries() {
+    return _maxEntries;
+  }
+
+  public synchronized int size() {
+    return _size;
+  }
+}
@@ -1,15 +1,30 @@
 package org.snaccooperative.openrefine.cache;
 
-import java.util.HashMap;
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
 import org.json.JSONArray;
 import org.json.JSONException;
 import org.json.JSONObject;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.snaccooperative.data.Language;
+import org.snaccooperative.data.Resource;
 import org.snaccooperative.data.Term;
 import org.snaccooperative.openrefine.api.SNACAPIClient;
 import org.snaccooperative.openrefine.api.SNACAPIResponse;
+import org.snaccooperative.openrefine.metrics.SNACMetrics;
 
 public class SNACLookupCache {
 
@@ -52,21 +67,28 @@ public class SNACLookupCache {
 
   static final Logger logger = LoggerFactory.getLogger(SNACLookupCache.class);
 
+  // number of constellation IDs per batched elastic existence query
+  private static final int CONSTELLATION_CHUNK_SIZE = 250;
+
   private SNACAPIClient _client;
-  private SNACAPIClient _termClient;
-  private HashMap<String, Language> _languageCodes;
-  private HashMap<Integer, Boolean> _constellationExists;
-  private HashMap<Integer, Boolean> _resourceExists;
-  private HashMap<TermType, SNACTermCache> _termCaches;
+  private Map<String, Language> _languageCodes;
+  private SNACExistenceSet _constellationExists;
+  private SNACExistenceSet _resourceExists;
+  // concurrent existence checks for the same id share a single API request
+  private SNACRequestCoalescer<Integer, Boolean> _constellationLookups;
+  private SNACRequestCoalescer<Integer, Boolean> _resourceLookups;
+  // fixed at construction, so safe to read concurrently
+  private final Map<TermType, SNACTermCache> _termCaches;
 
   public SNACLookupCache(SNACAPIClient client) {
     this._client = client;
-    this._termClient = null;
-
-    this._languageCodes = new HashMap<String, Language>();
-    this._constellationExists = new HashMap<Integer, Boolean>();
-    this._resourceExists = new HashMap<Integer, Boolean>();
-    this._termCaches = new HashMap<TermType, SNACTermCache>();
+    // all lookup maps may be shared by concurrent validation/upload workers
+    this._languageCodes = new ConcurrentHashMap<String, Language>();
+    this._constellationExists = new SNACExistenceSet("existence.constellation");
+    this._resourceExists = new SNACExistenceSet("existence.resource");
+    this._constellationLookups = new SNACRequestCoalescer<Integer, Boolean>("constellation");
+    this._resourceLookups = new SNACRequestCoalescer<Integer, Boolean>("resource");
+    this._termCaches = new EnumMap<TermType, SNACTermCache>(TermType.class);
 
     for (TermType term : TermType.values()) {
       if (term != TermType.NONE) {
@@ -80,71 +102,281 @@ public class SNACLookupCache {
     _termCaches.put(term, termCache);
   }
 
-  public void disableTermCache() {
-    _termClient = null;
+  public void usePersistentTerms(File dir, long ttl) {
+    // back each term cache with an on-disk store for the client's server,
+    // so that terms resolved in earlier runs do not need to be looked up again
+    for (Map.Entry<TermType, SNACTermCache> entry : _termCaches.entrySet()) {
+      entry
+          .getValue()
+          .setStore(SNACTermStore.getInstance(dir, _client.key(), entry.getKey().getType(), ttl));
+    }
   }
 
-  public void enableTermCache() {
-    _termClient = _client;
+  public void setNegativeTermTTL(long ttl) {
+    for (SNACTermCache termCache : _termCaches.values()) {
+      termCache.setMissingTTL(ttl);
+    }
   }
 
-  public Term getTerm(TermType term, String key) {
-    return _termCaches.get(term).getTerm(_termClient, key);
+  public Term getTerm(TermType term, String key, Boolean lookup) {
+    // without lookup, the term is taken verbatim from the key (e.g. for previews);
+    // with lookup, it is resolved against SNAC and cached
+
+    return _termCaches.get(term).getTerm(lookup ? _client : null, key);
   }
 
-  private Boolean lookupConstellation(Integer id) {
-    // query existence of constellation ID via elasticsearch for speed
+  private <T> void runConcurrently(Collection<T> tasks, int workers, Consumer<T> task) {
+    // run a batch of independent lookups across a bounded number of workers,
+    // returning once they have all completed
+
+    ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, workers));
+
+    for (T t : tasks) {
+      executor.execute(() -> task.accept(t));
+    }
+
+    executor.shutdown();
+
+    try {
+      executor.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+    } catch (InterruptedException e) {
+      executor.shutdownNow();
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  public void prefetchTerms(TermType term, Collection<String> keys, int workers) {
+    // resolve a batch of distinct terms ahead of item building so that later
+    // lookups are served from the cache.  SNAC has no multi-term vocabulary
+    // query, so the lookups are spread across a bounded number of workers.
+
+    if (term == TermType.NONE || keys.size() == 0) {
+      return;
+    }
+
+    SNACTermCache termCache = _termCaches.get(term);
+
+    AtomicInteger found = new AtomicInteger();
+
+    runConcurrently(
+        keys,
+        workers,
+        key -> {
+          if (termCache.getTerm(_client, key) != null) {
+            found.incrementAndGet();
+          }
+        });
+
+    logger.info(
+        "prefetched "
+            + found.get()
+            + " of "
+            + keys.size()
+            + " distinct ["
+            + term.getType()
+            + "] terms");
+  }
+
+  public void prefetchConstellations(Collection<Integer> ids, int workers) {
+    // resolve existence of a batch of constellation IDs ahead of item building.
+    // each elastic ids query covers a chunk of IDs; a chunk whose hit count does
+    // not match its size is split until the missing IDs are isolated.
+
+    List<Integer> unknown = new ArrayList<Integer>();
+
+    for (Integer id : new LinkedHashSet<Integer>(ids)) {
+      if (!_constellationExists.contains(id)) {
+        unknown.add(id);
+      }
+    }
+
+    if (unknown.size() == 0) {
+      return;
+    }
+
+    List<List<Integer>> chunks = new ArrayList<List<Integer>>();
+
+    for (int i = 0; i < unknown.size(); i += CONSTELLATION_CHUNK_SIZE) {
+      chunks.add(unknown.subList(i, Math.min(i + CONSTELLATION_CHUNK_SIZE, unknown.size())));
+    }
+
+    runConcurrently(chunks, workers, chunk -> resolveConstellations(chunk));
+
+    int found = 0;
+    for (Integer id : unknown) {
+      if (Boolean.TRUE.equals(_constellationExists.get(id))) {
+        found++;
+      }
+    }
+
+    logger.info(
+        "prefetched existence of "
+            + unknown.size()
+            + " distinct constellation IDs ("
+            + found
+            + " found) in "
+            + chunks.size()
+            + " chunks");
+  }
+
+  private void resolveConstellations(List<Integer> ids) {
+    if (ids.size() == 0) {
+      return;
+    }
+
+    Integer count = countConstellations(ids);
+
+    // no definitive answer; leave these for individual lookups later on
+    if (count == null) {
+      return;
+    }
+
+    if (count == ids.size() || count == 0) {
+      for (Integer id : ids) {
+        _constellationExists.put(id, count > 0);
+      }
+      return;
+    }
+
+    // a single id with an unexpected hit count cannot be split any further;
+    // leave it for an individual lookup to decide
+    if (ids.size() == 1) {
+      logger.warn(
+          "constellation lookup returned [" + count + "] hits for id: [" + ids.get(0) + "]");
+      return;
+    }
+
+    int mid = ids.size() / 2;
+
+    resolveConstellations(ids.subList(0, mid));
+    resolveConstellations(ids.subList(mid, ids.size()));
+  }
+
+  public void prefetchResources(Collection<Integer> ids, int workers) {
+    // resolve existence of a batch of resource IDs ahead of item building.
+    // SNAC has no multi-resource query, so the reads are spread across a
+    // bounded number of workers.
+
+    List<Integer> unknown = new ArrayList<Integer>();
+
+    for (Integer id : new LinkedHashSet<Integer>(ids)) {
+      if (!_resourceExists.contains(id)) {
+        unknown.add(id);
+      }
+    }
+
+    if (unknown.size() == 0) {
+      return;
+    }
+
+    AtomicInteger found = new AtomicInteger();
+
+    runConcurrently(
+        unknown,
+        workers,
+        id -> {
+          Boolean exists = lookupResource(id);
+          if (exists != null) {
+            _resourceExists.put(id, exists);
+            if (exists) {
+              found.incrementAndGet();
+            }
+          }
+        });
+
+    logger.info(
+        "prefetched existence of "
+            + unknown.size()
+            + " distinct resource IDs ("
+            + found.get()
+            + " found)");
+  }
+
+  private Integer countConstellations(List<Integer> ids) {
+    // query existence of constellation IDs via elasticsearch for speed,
+    // returning the number of IDs that matched
 
     try {
       JSONObject req = new JSONObject();
 
       req.put("command", "elastic");
       req.put(
-          "query",
-          new JSONObject().put("ids", new JSONObject().put("values", new JSONArray().put(id))));
+          "query", new JSONObject().put("ids", new JSONObject().put("values", new JSONArray(ids))));
       req.put("size", 0);
 
       SNACAPIResponse lookupResponse = _client.post(req);
 
       logger.debug(
-          "lookupConstellation(): API response: [" + lookupResponse.getAPIResponse() + "]");
+          "countConstellations(): API response: [" + lookupResponse.getAPIResponse() + "]");
 
       // if we don't have a definitive answer, bail out now
       if (!lookupResponse.isSuccess()) {
         logger.debug(
-            "lookupConstellation(): got unsuccessful API result: ["
+            "countConstellations(): got unsuccessful API result: ["
                 + lookupResponse.getResult()
                 + "]");
         return null;
       }
 
-      // existence check: verify that the total number of hits for this id is 1
+      Integer count = lookupResponse.getHitCount();
 
-      JSONObject results =
-          (JSONObject) new JSONObject(lookupResponse.getAPIResponse()).get("results");
-      JSONObject hits = (JSONObject) results.get("hits");
-      JSONObject total = (JSONObject) hits.get("total");
-      Integer value = (Integer) (((Number) total.get("value")).intValue());
-      return (value == 1);
+      if (count == null) {
+        logger.warn("constellation lookup response is missing hit count");
+      }
+
+      return count;
     } catch (JSONException e) {
-      logger.warn("constellation lookup response parse failure: [" + e + "]");
+      logger.warn("constellation lookup request failure: [" + e + "]");
+      return null;
+    }
+  }
+
+  private Boolean lookupConstellation(Integer id) {
+    // existence check: verify that the total number of hits for this id is 1
+
+    Integer count = countConstellations(Collections.singletonList(id));
+
+    if (count == null) {
       return null;
     }
+
+    return (count == 1);
+  }
+
+  private Boolean lookupConstellationOnce(Integer id) {
+    // a lookup for this id may have completed since the cache was checked.
+    // definitive answers (including "does not exist") are cached; failed
+    // lookups (null) are not, so that a later check can retry
+
+    Boolean exists = _constellationExists.get(id);
+
+    if (exists != null) {
+      return exists;
+    }
+
+    exists = lookupConstellation(id);
+
+    if (exists != null) {
+      _constellationExists.put(id, exists);
+    }
+
+    return exists;
   }
 
   public Boolean constellationExists(Integer id) {
     Boolean exists = _constellationExists.get(id);
 
+    SNACMetrics.getInstance().recordExistenceCheck("constellation", exists != null);
+
     if (exists != null) {
       logger.info("constellation " + id + " existence: cached: " + exists);
       return exists;
     }
 
-    exists = lookupConstellation(id);
+    exists = _constellationLookups.get(id, () -> lookupConstellationOnce(id));
 
     if (exists != null) {
       logger.info("constellation " + id + " existence: lookup: " + exists);
-      _constellationExists.put(id, exists);
       return exists;
     }
 
@@ -176,34 +408,56 @@ public class SNACLookupCache {
       // existence check: it's probably sufficient that a resource was returned, but
       // we go the extra inch and verify that its id equals the one we requested
 
-      JSONObject resource =
-          (JSONObject) new JSONObject(lookupResponse.getAPIResponse()).get("resource");
+      Resource resource = lookupResponse.getResource();
 
+      // a successful response without a resource (just "related_constellations")
+      // is how SNAC answers for a resource that does not exist
       if (resource == null) {
+        logger.debug("lookupResource(): no resource returned for id: [" + id + "]");
         return false;
       }
 
-      Integer resid = Integer.parseInt((String) resource.get("id"));
-      return resid.equals(id);
+      return id.equals(resource.getID());
     } catch (JSONException e) {
-      logger.warn("resource lookup response parse failure: [" + e + "]");
+      logger.warn("resource lookup request failure: [" + e + "]");
       return null;
     }
   }
 
+  private Boolean lookupResourceOnce(Integer id) {
+    // a lookup for this id may have completed since the cache was checked.
+    // definitive answers (including "does not exist") are cached; failed
+    // lookups (null) are not, so that a later check can retry
+
+    Boolean exists = _resourceExists.get(id);
+
+    if (exists != null) {
+      return exists;
+    }
+
+    exists = lookupResource(id);
+
+    if (exists != null) {
+      _resourceExists.put(id, exists);
+    }
+
+    return exists;
+  }
+
   public Boolean resourceExists(Integer id) {
     Boolean exists = _resourceExists.get(id);
 
+    SNACMetrics.getInstance().recordExistenceCheck("resource", exists != null);
+
     if (exists != null) {
       logger.info("resource " + id + " existence: cached: " + exists);
       return exists;
     }
 
-    exists = lookupResource(id);
+    exists = _resourceLookups.get(id, () -> lookupResourceOnce(id));
 
     if (exists != null) {
       logger.info("resource " + id + " existence: lookup: " + exists);
-      _resourceExists.put(id, exists);
       return exists;
     }
 
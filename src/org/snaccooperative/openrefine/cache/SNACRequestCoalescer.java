@@ -0,0 +1,45 @@
+package org.snaccooperative.openrefine.cache;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+import org.snaccooperative.openrefine.metrics.SNACMetrics;
+
+public class SNACRequestCoalescer<K, V> {
+
+  // Single-flight lookups: the first caller for a key performs the lookup, and
+  // any callers asking for the same key while it is in flight share its result
+  // instead of sending their own (identical) request.  Results are not kept
+  // once the lookup completes; caching them is up to the caller.
+
+  private final String _name;
+  private final Map<K, CompletableFuture<V>> _inflight;
+
+  public SNACRequestCoalescer(String name) {
+    this._name = name;
+    this._inflight = new ConcurrentHashMap<K, CompletableFuture<V>>();
+  }
+
+  public V get(K key, Supplier<V> lookup) {
+    CompletableFuture<V> flight = new CompletableFuture<V>();
+    CompletableFuture<V> pending = _inflight.putIfAbsent(key, flight);
+
+    if (pending != null) {
+      SNACMetrics.getInstance().recordCoalesced(_name);
+      return pending.join();
+    }
+
+    V value = null;
+
+    try {
+      value = lookup.get();
+    } finally {
+      // if the lookup threw, waiting callers see no result (null)
+      flight.complete(value);
+      _inflight.remove(key, flight);
+    }
+
+    return value;
+  }
+}
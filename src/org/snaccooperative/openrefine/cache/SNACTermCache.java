@@ -1,100 +1,216 @@
 package org.snaccooperative.openrefine.cache;
 
-import java.util.HashMap;
-import org.json.JSONArray;
-import org.json.JSONException;
+import java.util.List;
 import org.json.JSONObject;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.snaccooperative.data.Term;
 import org.snaccooperative.openrefine.api.SNACAPIClient;
 import org.snaccooperative.openrefine.api.SNACAPIResponse;
+import org.snaccooperative.openrefine.metrics.SNACMetrics;
 
 public class SNACTermCache {
 
   static final Logger logger = LoggerFactory.getLogger(SNACTermCache.class);
 
+  private static final int MAX_TERMS = 50000;
+  private static final int MAX_MISSING = 10000;
+
   private String _type;
 
-  private HashMap<String, Term> _terms;
+  // lowercased term/description => term, least recently used evicted first
+  private SNACBoundedCache<String, Term> _terms;
+
+  // lowercased key => time SNAC definitively had no term for it, so that rows
+  // repeating an unknown value do not each send another lookup.  Bounded, and
+  // entries expire after a ttl in case the term is added to the vocabulary;
+  // failed lookups are never recorded here.
+  private final SNACBoundedCache<String, Long> _missing;
+  private volatile long _missingTTL;
+
+  // concurrent callers asking for the same term share a single API request
+  private SNACRequestCoalescer<String, Term> _lookups;
+
+  private volatile SNACTermStore _store;
+  private volatile Boolean _storeLoaded;
 
   public SNACTermCache(String type) {
     this._type = type;
-    this._terms = new HashMap<String, Term>();
+    this._store = null;
+    this._storeLoaded = false;
+    // term map may be shared by concurrent upload workers
+    this._terms = new SNACBoundedCache<String, Term>("terms." + type, MAX_TERMS);
+    this._missingTTL = 0;
+    this._missing = new SNACBoundedCache<String, Long>("missing_terms." + type, MAX_MISSING);
+    this._lookups = new SNACRequestCoalescer<String, Term>("term");
+  }
+
+  public void setStore(SNACTermStore store) {
+    this._store = store;
+    this._storeLoaded = false;
+  }
+
+  public void setMissingTTL(long ttl) {
+    // zero or less disables caching of terms that were not found
+    _missingTTL = ttl;
+
+    if (ttl <= 0) {
+      _missing.clear();
+    }
+  }
+
+  private void putMissing(String key) {
+    SNACMetrics.getInstance().recordTermNotFound(_type);
+
+    if (_missingTTL <= 0) {
+      return;
+    }
+
+    _missing.put(key.toLowerCase(), System.currentTimeMillis());
+  }
+
+  private Boolean isMissing(String key) {
+    if (_missingTTL <= 0) {
+      return false;
+    }
+
+    String k = key.toLowerCase();
+
+    Long time = _missing.get(k);
+
+    if (time == null) {
+      return false;
+    }
+
+    if (System.currentTimeMillis() - time >= _missingTTL) {
+      _missing.remove(k);
+      return false;
+    }
+
+    return true;
+  }
+
+  private void putTerm(Term term) {
+    _terms.put(term.getTerm().toLowerCase(), term);
+
+    // map description too, if it exists
+    if (term.getDescription() != null) {
+      _terms.put(term.getDescription().toLowerCase(), term);
+    }
+  }
+
+  private void loadStore() {
+    // persistent terms are only read the first time this cache misses
+
+    if (_store == null || _storeLoaded) {
+      return;
+    }
+
+    synchronized (this) {
+      if (_storeLoaded) {
+        return;
+      }
+
+      for (Term term : _store.load()) {
+        putTerm(term);
+      }
+
+      _storeLoaded = true;
+    }
   }
 
   private Term lookupTerm(SNACAPIClient client, String key) {
-    try {
-      JSONObject req = new JSONObject();
+    JSONObject req = new JSONObject();
+
+    req.put("command", "vocabulary");
+    req.put("query_string", key);
+    req.put("type", _type);
+
+    SNACAPIResponse lookupResponse = client.post(req);
+
+    List<Term> results = lookupResponse.getTerms();
+
+    // no results array means an error response (or one that could not be
+    // parsed), not an answer; don't remember it
+    if (results == null) {
+      SNACMetrics.getInstance().recordTermFailure(_type);
+      logger.error(
+          "vocabulary ["
+              + _type
+              + "] query failed for term: ["
+              + key
+              + "]: ["
+              + lookupResponse.getMessage()
+              + "]");
+      return null;
+    }
 
-      req.put("command", "vocabulary");
-      req.put("query_string", key);
-      req.put("type", _type);
+    if (results.size() <= 0) {
+      logger.error("vocabulary [" + _type + "] query returned no results for term: [" + key + "]");
+      putMissing(key);
+      return null;
+    }
+
+    for (int i = 0; i < results.size(); i++) {
+      Term term = results.get(i);
+      if (term == null) {
+        logger.warn(
+            "vocabulary [" + _type + "] query response contained missing/invalid array object");
+        continue;
+      }
 
-      SNACAPIResponse lookupResponse = client.post(req);
+      if (term.getTerm() == null) {
+        logger.warn(
+            "vocabulary ["
+                + _type
+                + "] query response contained missing/invalid term in array object");
+        continue;
+      }
 
-      JSONArray results = new JSONObject(lookupResponse.getAPIResponse()).optJSONArray("results");
+      if (!term.getTerm().equalsIgnoreCase(key)) {
+        continue;
+      }
 
-      if (results == null || results.length() <= 0) {
-        logger.error(
-            "vocabulary [" + _type + "] query returned no results for term: [" + key + "]");
-        return null;
+      if (term.getType() == null) {
+        logger.warn(
+            "vocabulary ["
+                + _type
+                + "] query response contained missing/invalid type in array object");
+        continue;
       }
 
-      for (int i = 0; i < results.length(); i++) {
-        JSONObject result = results.optJSONObject(i);
-        if (result == null) {
-          logger.warn(
-              "vocabulary [" + _type + "] query response contained missing/invalid array object");
-          continue;
-        }
-
-        String gotTerm = result.optString("term", null);
-        if (gotTerm == null) {
-          logger.warn(
-              "vocabulary ["
-                  + _type
-                  + "] query response contained missing/invalid term in array object");
-          continue;
-        }
-
-        if (!gotTerm.equalsIgnoreCase(key)) {
-          continue;
-        }
-
-        // Integer gotID = Integer.parseInt(result.optString("id", "0"));
-        String gotType = result.optString("type", null);
-        if (gotType == null) {
-          logger.warn(
-              "vocabulary ["
-                  + _type
-                  + "] query response contained missing/invalid type in array object");
-          continue;
-        }
-
-        String gotDesc = result.optString("description", null);
-
-        Term term = new Term();
-        term.setType(gotType);
-        term.setTerm(gotTerm);
-
-        _terms.put(gotTerm.toLowerCase(), term);
-
-        // store and map description, if it exists
-        if (gotDesc != null) {
-          term.setDescription(gotDesc);
-          _terms.put(gotDesc.toLowerCase(), term);
-        }
-
-        return term;
+      putTerm(term);
+
+      if (_store != null) {
+        _store.append(term);
       }
-    } catch (JSONException e) {
-      logger.error("vocabulary [" + _type + "] query response parse failure: [" + e + "]");
+
+      return term;
     }
 
+    // results, but none matching this term
+    putMissing(key);
+
     return null;
   }
 
+  private Term lookupTermOnce(SNACAPIClient client, String key) {
+    String k = key.toLowerCase();
+
+    return _lookups.get(
+        k,
+        () -> {
+          // a lookup for this key may have completed since the cache was checked
+          Term term = _terms.get(k);
+
+          if (term != null || isMissing(k)) {
+            return term;
+          }
+
+          return lookupTerm(client, key);
+        });
+  }
+
   private Term dummyTerm(String key) {
     Term term = new Term();
     term.setType(_type);
@@ -128,10 +244,28 @@ public class SNACTermCache {
     Term term = _terms.get(key.toLowerCase());
 
     if (term != null) {
+      SNACMetrics.getInstance().recordTermLookup(_type, true);
+      return term;
+    }
+
+    loadStore();
+
+    term = _terms.get(key.toLowerCase());
+
+    if (term != null) {
+      SNACMetrics.getInstance().recordTermLookup(_type, true);
       return term;
     }
 
-    term = lookupTerm(client, key);
+    if (isMissing(key)) {
+      SNACMetrics.getInstance().recordTermNegativeHit(_type);
+      logger.debug("type [" + _type + "] key [" + key + "] mapping: cached as not found");
+      return null;
+    }
+
+    SNACMetrics.getInstance().recordTermLookup(_type, false);
+
+    term = lookupTermOnce(client, key);
 
     if (term != null) {
       return term;
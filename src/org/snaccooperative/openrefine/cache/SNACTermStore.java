@@ -0,0 +1,177 @@
+package org.snaccooperative.openrefine.cache;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.snaccooperative.data.Term;
+
+public class SNACTermStore {
+
+  // Persistent, append-only store of resolved vocabulary terms for one
+  // SNAC environment and term type.  Each line is a small JSON object:
+  //
+  //   {"term": "...", "type": "...", "description": "...", "time": <epoch millis>}
+  //
+  // Entries older than the ttl are ignored when loading (and so get looked up
+  // again and re-appended); the file is compacted when it is mostly dead weight.
+
+  static final Logger logger = LoggerFactory.getLogger(SNACTermStore.class);
+
+  private static final String FILE_EXTENSION = ".jsonl";
+
+  // one store per file, so that concurrent runs share a single writer lock
+  private static final Map<String, SNACTermStore> _stores =
+      new ConcurrentHashMap<String, SNACTermStore>();
+
+  private final File _file;
+  private long _ttl;
+
+  private SNACTermStore(File file) {
+    this._file = file;
+  }
+
+  public static SNACTermStore getInstance(File dir, String envKey, String type, long ttl) {
+    File file = new File(new File(dir, envKey), type + FILE_EXTENSION);
+
+    SNACTermStore store =
+        _stores.computeIfAbsent(file.getAbsolutePath(), path -> new SNACTermStore(file));
+
+    store.setTTL(ttl);
+
+    return store;
+  }
+
+  private synchronized void setTTL(long ttl) {
+    _ttl = ttl;
+  }
+
+  private boolean isFresh(long time, long now) {
+    return _ttl <= 0 || now - time < _ttl;
+  }
+
+  public synchronized List<Term> load() {
+    List<Term> terms = new ArrayList<Term>();
+
+    if (!_file.exists()) {
+      return terms;
+    }
+
+    // later lines win, so re-validated terms replace their older entries
+    Map<String, JSONObject> fresh = new LinkedHashMap<String, JSONObject>();
+    int lines = 0;
+    long now = System.currentTimeMillis();
+
+    try (BufferedReader reader = Files.newBufferedReader(_file.toPath(), StandardCharsets.UTF_8)) {
+      String line;
+      while ((line = reader.readLine()) != null) {
+        if (line.trim().equals("")) {
+          continue;
+        }
+
+        lines++;
+
+        try {
+          JSONObject entry = new JSONObject(line);
+
+          String term = entry.optString("term", null);
+          if (term == null || !isFresh(entry.optLong("time", 0), now)) {
+            continue;
+          }
+
+          fresh.put(term.toLowerCase(), entry);
+        } catch (JSONException e) {
+          // most likely a partially-written line from an interrupted run
+          logger.warn("skipping unreadable term store entry in [" + _file + "]");
+        }
+      }
+    } catch (IOException e) {
+      logger.warn("unable to read term store [" + _file + "]: [" + e + "]");
+      return terms;
+    }
+
+    for (JSONObject entry : fresh.values()) {
+      Term term = new Term();
+      term.setType(entry.optString("type", ""));
+      term.setTerm(entry.optString("term", ""));
+
+      String desc = entry.optString("description", null);
+      if (desc != null) {
+        term.setDescription(desc);
+      }
+
+      terms.add(term);
+    }
+
+    logger.info("loaded " + terms.size() + " terms (" + lines + " entries) from [" + _file + "]");
+
+    if (lines > 2 * fresh.size()) {
+      compact(fresh.values());
+    }
+
+    return terms;
+  }
+
+  private void compact(Iterable<JSONObject> entries) {
+    File tmp = new File(_file.getPath() + ".tmp");
+
+    try (BufferedWriter writer = Files.newBufferedWriter(tmp.toPath(), StandardCharsets.UTF_8)) {
+      for (JSONObject entry : entries) {
+        writer.write(entry.toString());
+        writer.newLine();
+      }
+    } catch (IOException e) {
+      logger.warn("unable to compact term store [" + _file + "]: [" + e + "]");
+      tmp.delete();
+      return;
+    }
+
+    try {
+      Files.move(tmp.toPath(), _file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+      logger.info("compacted term store [" + _file + "]");
+    } catch (IOException e) {
+      logger.warn("unable to replace term store [" + _file + "]: [" + e + "]");
+      tmp.delete();
+    }
+  }
+
+  public synchronized void append(Term term) {
+    JSONObject entry = new JSONObject();
+
+    entry.put("term", term.getTerm());
+    entry.put("type", term.getType());
+    if (term.getDescription() != null) {
+      entry.put("description", term.getDescription());
+    }
+    entry.put("time", System.currentTimeMillis());
+
+    try {
+      _file.getParentFile().mkdirs();
+
+      try (BufferedWriter writer =
+          Files.newBufferedWriter(
+              _file.toPath(),
+              StandardCharsets.UTF_8,
+              StandardOpenOption.CREATE,
+              StandardOpenOption.APPEND)) {
+        writer.write(entry.toString());
+        writer.newLine();
+      }
+    } catch (IOException e) {
+      logger.warn("unable to append to term store [" + _file + "]: [" + e + "]");
+    }
+  }
+}
@@ -0,0 +1,81 @@
+package org.snaccooperative.openrefine.cache;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+public class SNACValidationCache {
+
+  // Remembers which records recently validated successfully, keyed on SNAC
+  // environment, schema fingerprint and record content hash, so that an upload
+  // following a validation does not repeat the related ID existence checks for
+  // records that have not changed since.  Entries expire after a ttl, since
+  // related constellations/resources (and vocabularies) can change in SNAC;
+  // only the most recent entries are kept.
+
+  static final Logger logger = LoggerFactory.getLogger(SNACValidationCache.class);
+
+  private static final int MAX_ENTRIES = 100000;
+
+  private static final SNACValidationCache instance = new SNACValidationCache();
+
+  public static SNACValidationCache getInstance() {
+    return instance;
+  }
+
+  private long _ttl;
+
+  // key => time of successful validation
+  private final SNACBoundedCache<String, Long> _validated;
+
+  private SNACValidationCache() {
+    this._ttl = 0;
+    this._validated = new SNACBoundedCache<String, Long>("validations", MAX_ENTRIES);
+  }
+
+  private static String key(String envKey, String schemaFingerprint, String contentHash) {
+    return envKey + "\0" + schemaFingerprint + "\0" + contentHash;
+  }
+
+  public synchronized void setTTL(long ttl) {
+    // zero or less disables the cache
+    _ttl = ttl;
+
+    if (_ttl <= 0) {
+      _validated.clear();
+    }
+  }
+
+  public synchronized void putValid(String envKey, String schemaFingerprint, String contentHash) {
+    if (_ttl <= 0) {
+      return;
+    }
+
+    String key = key(envKey, schemaFingerprint, contentHash);
+
+    _validated.put(key, System.currentTimeMillis());
+  }
+
+  public synchronized Boolean isValid(String envKey, String schemaFingerprint, String contentHash) {
+    if (_ttl <= 0) {
+      return false;
+    }
+
+    String key = key(envKey, schemaFingerprint, contentHash);
+    Long time = _validated.get(key);
+
+    if (time == null) {
+      return false;
+    }
+
+    if (System.currentTimeMillis() - time >= _ttl) {
+      _validated.remove(key);
+      return false;
+    }
+
+    return true;
+  }
+
+  public synchronized void invalidate(String envKey, String schemaFingerprint, String contentHash) {
+    _validated.remove(key(envKey, schemaFingerprint, contentHash));
+  }
+}
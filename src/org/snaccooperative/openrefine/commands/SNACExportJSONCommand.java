@@ -25,25 +25,48 @@
 package org.snaccooperative.openrefine.commands;
 
 import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.util.MinimalPrettyPrinter;
 import com.google.refine.browsing.Engine;
 import com.google.refine.commands.Command;
 import com.google.refine.model.Project;
 import com.google.refine.util.ParsingUtilities;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
 import java.io.Writer;
-import java.util.List;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.zip.GZIPOutputStream;
 import javax.servlet.ServletException;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.snaccooperative.openrefine.exporters.SNACAbstractItem;
+import org.snaccooperative.openrefine.model.SNACAbstractModel.ModelType;
+import org.snaccooperative.openrefine.preferences.SNACPreferencesManager;
 import org.snaccooperative.openrefine.schema.SNACSchema;
 
 public class SNACExportJSONCommand extends Command {
 
   static final Logger logger = LoggerFactory.getLogger(SNACExportJSONCommand.class);
 
+  // export formats: a single JSON document (the default), or newline-delimited
+  // JSON with one item per line, which consumers can also read incrementally
+  private static final String FORMAT_JSON = "json";
+  private static final String FORMAT_NDJSON = "ndjson";
+
+  private static final String DESTINATION_WORKSPACE = "workspace";
+
+  private static final int BUFFER_SIZE = 65536;
+
   @Override
   public void doPost(HttpServletRequest request, HttpServletResponse response)
       throws ServletException, IOException {
@@ -54,8 +77,25 @@ public class SNACExportJSONCommand extends Command {
       Project project = getProject(request);
       Engine engine = getEngine(request, project);
 
-      response.setCharacterEncoding("UTF-8");
-      response.setHeader("Content-Type", "application/json");
+      String format = request.getParameter("format");
+      if (format == null || format.equals("")) {
+        format = FORMAT_JSON;
+      }
+      if (!format.equals(FORMAT_JSON) && !format.equals(FORMAT_NDJSON)) {
+        logger.error("SNAC JSON export: unknown format: [" + format + "]");
+        respondStatusError(response, "Unknown SNAC export format: " + format);
+        return;
+      }
+
+      Boolean gzip = "true".equals(request.getParameter("gzip"));
+      Boolean toWorkspace = DESTINATION_WORKSPACE.equals(request.getParameter("destination"));
+
+      // writing to the workspace changes server state, unlike a download
+      if (toWorkspace && !hasValidCSRFToken(request)) {
+        logger.error("SNAC JSON export: invalid CSRF token");
+        respondCSRFError(response);
+        return;
+      }
 
       String schemaJSON = request.getParameter("schema");
 
@@ -77,38 +117,207 @@ public class SNACExportJSONCommand extends Command {
         return;
       }
 
-      List<SNACAbstractItem> items = schema.evaluateRecords(project, engine);
+      // the schema may come from the request, so only a known type goes into the file name
+      ModelType modelType = ModelType.fromString(schema.getSchemaType());
+      if (modelType == null || modelType == ModelType.NONE) {
+        logger.error("SNAC JSON export: unknown schema type: [" + schema.getSchemaType() + "]");
+        respondStatusError(response, "Unknown SNAC schema type.");
+        return;
+      }
+
+      String fileName =
+          new SimpleDateFormat("yyyy-MM-dd").format(new Date())
+              + "-SNAC-export-"
+              + modelType.getType()
+              + "s."
+              + format
+              + (gzip ? ".gz" : "");
+
+      int count;
+
+      if (toWorkspace) {
+        File dir = SNACPreferencesManager.getInstance().getExportDirectory();
+        if (dir == null) {
+          logger.error("SNAC JSON export: no workspace directory available");
+          respondStatusError(response, "No workspace directory available for SNAC export.");
+          return;
+        }
+
+        dir.mkdirs();
+
+        removeExpiredExports(dir);
+
+        File file = new File(dir, project.id + "-" + System.currentTimeMillis() + "-" + fileName);
+        File partial = new File(file.getPath() + ".part");
+
+        // write to a partial file first, so that an interrupted export is never
+        // mistaken for a complete one
+        try (Writer w = newWriter(new FileOutputStream(partial), gzip)) {
+          count = exportItems(project, engine, schema, format, w);
+        } catch (IOException e) {
+          partial.delete();
+          throw e;
+        }
+
+        Files.move(partial.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+
+        logger.info("wrote SNAC export to [" + file + "]");
+
+        response.setCharacterEncoding("UTF-8");
+        response.setHeader("Content-Type", "application/json");
+
+        Writer w = response.getWriter();
+        JsonGenerator writer = ParsingUtilities.mapper.getFactory().createGenerator(w);
+
+        writer.writeStartObject();
+        writer.writeStringField("code", "ok");
+        // relative to the workspace directory; the server's own paths are not exposed
+        writer.writeStringField("file", dir.getName() + "/" + file.getName());
+        writer.writeNumberField("items", count);
+        writer.writeEndObject();
+
+        writer.flush();
+        writer.close();
+        w.flush();
+        w.close();
+      } else if (gzip) {
+        response.setHeader("Content-Type", "application/gzip");
+        response.setHeader("Content-Disposition", "attachment; filename=\"" + fileName + "\"");
+
+        try (Writer w = newWriter(response.getOutputStream(), true)) {
+          count = exportItems(project, engine, schema, format, w);
+        }
+      } else {
+        response.setCharacterEncoding("UTF-8");
+        if (format.equals(FORMAT_NDJSON)) {
+          response.setHeader("Content-Type", "application/x-ndjson");
+          response.setHeader("Content-Disposition", "attachment; filename=\"" + fileName + "\"");
+        } else {
+          response.setHeader("Content-Type", "application/json");
+        }
+
+        try (Writer w = response.getWriter()) {
+          count = exportItems(project, engine, schema, format, w);
+        }
+      }
 
       logger.info(
           "generated "
-              + items.size()
+              + count
               + " (out of "
               + project.recordModel.getRecordCount()
               + ") export items");
 
-      Writer w = response.getWriter();
-      JsonGenerator writer = ParsingUtilities.mapper.getFactory().createGenerator(w);
+      logger.info("SNAC JSON export succeeded");
+    } catch (Exception e) {
+      logger.error("SNAC JSON export: exception: [" + e + "]");
+      respondException(response, e);
+    }
+  }
 
-      writer.writeStartObject();
+  private void removeExpiredExports(File dir) {
+    // workspace exports (and partial files left by interrupted ones) are removed
+    // once they are older than the retention period
+
+    long retention = SNACPreferencesManager.getInstance().getExportRetention();
+
+    if (retention <= 0) {
+      return;
+    }
+
+    File[] files = dir.listFiles();
+
+    if (files == null) {
+      return;
+    }
+
+    long cutoff = System.currentTimeMillis() - retention;
+
+    for (File file : files) {
+      if (file.isFile() && file.lastModified() < cutoff) {
+        if (file.delete()) {
+          logger.info("removed expired SNAC export [" + file.getName() + "]");
+        } else {
+          logger.warn("could not remove expired SNAC export [" + file.getName() + "]");
+        }
+      }
+    }
+  }
+
+  private Writer newWriter(OutputStream out, Boolean gzip) throws IOException {
+    if (gzip) {
+      out = new GZIPOutputStream(out, BUFFER_SIZE);
+    }
+
+    return new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), BUFFER_SIZE);
+  }
+
+  private int exportItems(
+      Project project, Engine engine, SNACSchema schema, String format, Writer w)
+      throws IOException {
+    // items are built lazily and written out one at a time, so only a single
+    // item is ever held in memory.  the datamodel only serializes items to a
+    // string, so each item is written as a raw value rather than re-parsed.
 
+    JsonGenerator writer = ParsingUtilities.mapper.getFactory().createGenerator(w);
+    writer.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+
+    Boolean ndjson = format.equals(FORMAT_NDJSON);
+
+    if (ndjson) {
+      // one item per line, separated by newlines rather than commas
+      writer.setPrettyPrinter(new MinimalPrettyPrinter("\n"));
+    } else {
+      writer.writeStartObject();
       writer.writeFieldName(schema.getSchemaType() + "s");
       writer.writeStartArray();
-      for (int i = 0; i < items.size(); i++) {
-        writer.writeRaw(items.get(i).toJSON());
+    }
+
+    int[] count = {0};
+
+    try {
+      schema.visitItems(
+          project,
+          engine,
+          0,
+          false,
+          item -> {
+            try {
+              String json = item.toJSON();
+
+              if (ndjson && json.indexOf('\n') >= 0) {
+                // re-emit multi-line items compactly, to keep to one item per line
+                try (JsonParser parser = ParsingUtilities.mapper.getFactory().createParser(json)) {
+                  parser.nextToken();
+                  writer.copyCurrentStructure(parser);
+                }
+              } else {
+                writer.writeRawValue(json);
+              }
+            } catch (IOException e) {
+              throw new UncheckedIOException(e);
+            }
+
+            count[0]++;
+
+            return false;
+          });
+    } catch (UncheckedIOException e) {
+      throw e.getCause();
+    }
+
+    if (ndjson) {
+      if (count[0] > 0) {
+        writer.writeRaw('\n');
       }
+    } else {
       writer.writeEndArray();
-
       writer.writeEndObject();
+    }
 
-      writer.flush();
-      writer.close();
-      w.flush();
-      w.close();
+    writer.flush();
+    writer.close();
 
-      logger.info("SNAC JSON export succeeded");
-    } catch (Exception e) {
-      logger.error("SNAC JSON export: exception: [" + e + "]");
-      respondException(response, e);
-    }
+    return count[0];
   }
 }
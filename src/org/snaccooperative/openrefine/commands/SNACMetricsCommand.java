@@ -0,0 +1,41 @@
+package org.snaccooperative.openrefine.commands;
+
+import com.google.refine.commands.Command;
+import java.io.IOException;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.snaccooperative.openrefine.metrics.SNACMetrics;
+
+public class SNACMetricsCommand extends Command {
+
+  static final Logger logger = LoggerFactory.getLogger(SNACMetricsCommand.class);
+
+  @Override
+  public void doPost(HttpServletRequest request, HttpServletResponse response)
+      throws ServletException, IOException {
+    if (!hasValidCSRFToken(request)) {
+      logger.error("SNAC metrics: invalid CSRF token");
+      respondCSRFError(response);
+      return;
+    }
+
+    if ("true".equals(request.getParameter("reset"))) {
+      logger.info("resetting SNAC metrics");
+      SNACMetrics.getInstance().reset();
+    }
+
+    doGet(request, response);
+  }
+
+  @Override
+  public void doGet(HttpServletRequest request, HttpServletResponse response)
+      throws ServletException, IOException {
+    response.setCharacterEncoding("UTF-8");
+    response.setHeader("Content-Type", "application/json");
+
+    respondJSON(response, SNACMetrics.getInstance());
+  }
+}
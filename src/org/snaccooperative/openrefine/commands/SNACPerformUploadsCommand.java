@@ -16,6 +16,8 @@ public class SNACPerformUploadsCommand extends EngineDependentCommand {
   @Override
   protected AbstractOperation createOperation(
       Project project, HttpServletRequest request, EngineConfig engineConfig) throws Exception {
-    return new SNACPerformUploadsOperation(engineConfig);
+    Boolean resume = "true".equals(request.getParameter("resume"));
+
+    return new SNACPerformUploadsOperation(engineConfig, resume);
   }
 }
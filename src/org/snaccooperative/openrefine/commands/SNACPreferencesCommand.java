@@ -35,7 +35,8 @@ public class SNACPreferencesCommand extends Command {
           request.getParameter("snackeydev"),
           request.getParameter("snackeyprod"),
           request.getParameter("snacmaxpreviewitems"),
-          request.getParameter("snacincludeapiresponse"));
+          request.getParameter("snacincludeapiresponse"),
+          request.getParameter("snacuploadworkers"));
       logger.info("SNAC preferences saved successfully");
     }
 
@@ -69,6 +70,8 @@ public class SNACPreferencesCommand extends Command {
 
     writer.writeObjectFieldStart("upload");
     writer.writeBooleanField("api_response", prefsManager.includeAPIResponse());
+    writer.writeNumberField("workers", prefsManager.getUploadWorkers());
+    writer.writeNumberField("max_workers", prefsManager.getMaxUploadWorkers());
     writer.writeEndObject();
 
     writer.writeEndObject();
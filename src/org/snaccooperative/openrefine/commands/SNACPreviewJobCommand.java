@@ -0,0 +1,179 @@
+package org.snaccooperative.openrefine.commands;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.google.refine.browsing.Engine;
+import com.google.refine.commands.Command;
+import com.google.refine.model.Project;
+import com.google.refine.util.ParsingUtilities;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.List;
+import javax.servlet.ServletException;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.snaccooperative.openrefine.preferences.SNACPreferencesManager;
+import org.snaccooperative.openrefine.preview.SNACPreviewJob;
+import org.snaccooperative.openrefine.preview.SNACPreviewJobs;
+import org.snaccooperative.openrefine.schema.SNACSchema;
+
+public class SNACPreviewJobCommand extends Command {
+
+  // Paged, asynchronous schema preview:
+  //
+  //   POST project, [schema], [engine], offset, limit
+  //     starts rendering filtered records [offset, offset + limit); returns the job
+  //   GET job_id, [from]
+  //     returns the job status plus the items rendered so far, starting at item
+  //     index "from" within the page, so that a client can fetch them as they come
+  //   POST job_id, cancel=true
+  //     cancels a job that is still rendering
+
+  static final Logger logger = LoggerFactory.getLogger(SNACPreviewJobCommand.class);
+
+  private static final int MAX_PAGE_SIZE = 1000;
+
+  @Override
+  public void doPost(HttpServletRequest request, HttpServletResponse response)
+      throws ServletException, IOException {
+
+    response.setCharacterEncoding("UTF-8");
+    response.setHeader("Content-Type", "application/json");
+
+    if ("true".equals(request.getParameter("cancel"))) {
+      if (!hasValidCSRFToken(request)) {
+        logger.error("SNAC preview job: invalid CSRF token");
+        respondCSRFError(response);
+        return;
+      }
+
+      String id = request.getParameter("job_id");
+
+      if (!SNACPreviewJobs.getInstance().cancel(id)) {
+        respondStatusError(response, "Unknown SNAC preview job.");
+        return;
+      }
+
+      logger.info("canceled preview job [" + id + "]");
+
+      respondJSON(response, SNACPreviewJobs.getInstance().get(id));
+      return;
+    }
+
+    try {
+      Project project = getProject(request);
+      Engine engine = getEngine(request, project);
+
+      String schemaJSON = request.getParameter("schema");
+
+      SNACSchema schema = null;
+      if (schemaJSON != null) {
+        try {
+          schema = SNACSchema.reconstruct(schemaJSON);
+        } catch (IOException e) {
+          logger.error("SNAC preview job: could not reconstruct schema: [" + e + "]");
+          respondStatusError(response, "SNAC schema could not be parsed.");
+          return;
+        }
+      } else {
+        schema = (SNACSchema) project.overlayModels.get("snacSchema");
+      }
+      if (schema == null) {
+        logger.error("SNAC preview job: missing schema");
+        respondStatusError(response, "No SNAC schema provided.");
+        return;
+      }
+
+      int offset = Math.max(0, intParameter(request, "offset", 0));
+      int limit =
+          intParameter(request, "limit", SNACPreferencesManager.getInstance().getMaxPreviewItems());
+
+      if (limit <= 0 || limit > MAX_PAGE_SIZE) {
+        limit = MAX_PAGE_SIZE;
+      }
+
+      SNACPreviewJob job =
+          SNACPreviewJobs.getInstance()
+              .start(project, engine, request.getParameter("engine"), schema, offset, limit);
+
+      logger.info(
+          "started preview job ["
+              + job.getID()
+              + "] for records "
+              + offset
+              + " to "
+              + (offset + limit - 1));
+
+      respondJSON(response, job);
+    } catch (Exception e) {
+      logger.error("SNAC preview job: exception: [" + e + "]");
+      respondException(response, e);
+    }
+  }
+
+  @Override
+  public void doGet(HttpServletRequest request, HttpServletResponse response)
+      throws ServletException, IOException {
+
+    response.setCharacterEncoding("UTF-8");
+    response.setHeader("Content-Type", "application/json");
+
+    SNACPreviewJob job = SNACPreviewJobs.getInstance().get(request.getParameter("job_id"));
+
+    if (job == null) {
+      respondStatusError(response, "Unknown SNAC preview job.");
+      return;
+    }
+
+    int from = Math.max(0, intParameter(request, "from", 0));
+
+    // read status before items, so that a finished status implies all items are included
+    String status = job.getStatusName();
+    List<String> items = job.getItems(from);
+
+    Writer w = response.getWriter();
+    JsonGenerator writer = ParsingUtilities.mapper.getFactory().createGenerator(w);
+
+    writer.writeStartObject();
+
+    writer.writeStringField("job_id", job.getID());
+    writer.writeStringField("status", status);
+    writer.writeNumberField("offset", job.getOffset());
+    writer.writeNumberField("limit", job.getLimit());
+    writer.writeNumberField("total", job.getTotal());
+    writer.writeNumberField("from", from);
+
+    if (job.getError() != null) {
+      writer.writeStringField("error", job.getError());
+    }
+
+    writer.writeFieldName("preview");
+    writer.writeStartArray();
+    for (String item : items) {
+      writer.writeString(item);
+    }
+    writer.writeEndArray();
+
+    writer.writeEndObject();
+
+    writer.flush();
+    writer.close();
+    w.flush();
+    w.close();
+  }
+
+  private int intParameter(HttpServletRequest request, String name, int defaultValue) {
+    String value = request.getParameter(name);
+
+    if (value == null || value.trim().equals("")) {
+      return defaultValue;
+    }
+
+    try {
+      return Integer.parseInt(value.trim());
+    } catch (NumberFormatException e) {
+      return defaultValue;
+    }
+  }
+}
@@ -37,8 +37,9 @@ import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.snaccooperative.openrefine.exporters.SNACAbstractItem;
 import org.snaccooperative.openrefine.preferences.SNACPreferencesManager;
+import org.snaccooperative.openrefine.preview.SNACPreviewCache;
+import org.snaccooperative.openrefine.preview.SNACPreviewRenderer;
 import org.snaccooperative.openrefine.schema.SNACSchema;
 
 public class SNACPreviewSchemaCommand extends Command {
@@ -82,8 +83,20 @@ public class SNACPreviewSchemaCommand extends Command {
 
       int recordCount = project.recordModel.getRecordCount();
 
-      List<SNACAbstractItem> items =
-          schema.evaluateRecords(project, engine, prefsManager.getMaxPreviewItems());
+      // an offset previews a later page of records; see also the "preview-job" command
+      int offset = 0;
+      try {
+        offset = Math.max(0, Integer.parseInt(request.getParameter("offset")));
+      } catch (NumberFormatException e) {
+        // missing or invalid offset: first page
+      }
+
+      // repeat previews of an unchanged project/schema/filter are served from cache
+      SNACPreviewCache.Page page =
+          new SNACPreviewRenderer(project, engine, request.getParameter("engine"), schema)
+              .render(offset, prefsManager.getMaxPreviewItems(), item -> {}, () -> false);
+
+      List<String> items = page.getItems();
 
       logger.info(
           "generated "
@@ -100,11 +113,12 @@ public class SNACPreviewSchemaCommand extends Command {
       writer.writeFieldName("preview");
       writer.writeStartArray();
       for (int i = 0; i < items.size(); i++) {
-        writer.writeString(items.get(i).getPreviewText());
+        writer.writeString(items.get(i));
       }
       writer.writeEndArray();
 
       writer.writeNumberField("total", project.recordModel.getRecordCount());
+      writer.writeNumberField("offset", offset);
 
       writer.writeEndObject();
 
@@ -8,11 +8,15 @@ import java.util.List;
 import java.util.Map;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.snaccooperative.data.Language;
+import org.snaccooperative.data.Term;
 import org.snaccooperative.openrefine.api.SNACAPIClient;
 import org.snaccooperative.openrefine.api.SNACAPIResponse;
 import org.snaccooperative.openrefine.cache.SNACLookupCache;
+import org.snaccooperative.openrefine.cache.SNACValidationCache;
 import org.snaccooperative.openrefine.model.SNACAbstractModel.ModelType;
 import org.snaccooperative.openrefine.schema.SNACSchema;
+import org.snaccooperative.openrefine.schema.SNACSchemaPlan;
 import org.snaccooperative.openrefine.schema.SNACSchemaUtilities;
 
 public abstract class SNACAbstractItem {
@@ -29,6 +33,9 @@ public abstract class SNACAbstractItem {
   protected SNACSchemaUtilities _utils;
   protected SNACValidationErrors _errors;
 
+  // set while building, for the field validator: whether terms are looked up in SNAC
+  protected Boolean _lookupTerms;
+
   protected Integer _id;
   protected Map<ModelType, List<Integer>> _relatedIDs;
 
@@ -38,15 +45,21 @@ public abstract class SNACAbstractItem {
       SNACAPIClient client,
       SNACLookupCache cache,
       Record record) {
-    this._project = project;
-    this._schema = schema;
+    this(new SNACSchemaPlan(project, schema), client, cache, record);
+  }
+
+  public SNACAbstractItem(
+      SNACSchemaPlan plan, SNACAPIClient client, SNACLookupCache cache, Record record) {
+    this._project = plan.getProject();
+    this._schema = plan.getSchema();
     this._client = client;
     this._cache = cache;
     this._record = record;
 
     this._modelType = ModelType.fromString(_schema.getSchemaType());
-    this._utils = new SNACSchemaUtilities(_project, _schema);
+    this._utils = new SNACSchemaUtilities(plan);
     this._errors = null;
+    this._lookupTerms = false;
 
     this._id = null;
     this._relatedIDs = new HashMap<ModelType, List<Integer>>();
@@ -71,13 +84,19 @@ public abstract class SNACAbstractItem {
     return _record.fromRowIndex;
   }
 
+  public String contentHash() {
+    // hash of the record's values in every mapped column, used to recognize
+    // the same record again in a later run (e.g. after rows have been reordered)
+    return _utils.getPlan().getRecordHash(_record);
+  }
+
   protected void buildItemVerbatim() {
-    _cache.disableTermCache();
+    _lookupTerms = false;
     buildItem();
   }
 
   protected void buildItemAgainstSNAC() {
-    _cache.enableTermCache();
+    _lookupTerms = true;
     buildItem();
   }
 
@@ -165,49 +184,71 @@ public abstract class SNACAbstractItem {
       return new SNACAPIResponse(_client, _errors.getAccumulatedErrorString());
     }
 
+    SNACValidationCache.getInstance()
+        .putValid(_client.key(), _utils.getPlan().getFingerprint(), contentHash());
+
     return new SNACAPIResponse("success");
   }
 
-  // preview text helpers
+  protected SNACAPIResponse performValidationForUpload() {
+    // records that validated successfully against this environment and schema
+    // recently, and have not changed since, skip the related ID existence checks.
+    // the item must still be built against SNAC, so that it is uploaded with
+    // the resolved vocabulary terms (which the lookup cache usually holds by now)
 
-  protected String htmlTable(String s) {
-    return "<table><tbody>" + s + "</tbody></table>";
-  }
+    if (!SNACValidationCache.getInstance()
+        .isValid(_client.key(), _utils.getPlan().getFingerprint(), contentHash())) {
+      return performValidation();
+    }
 
-  protected String htmlTableRow(String s) {
-    return "<tr class=\"snac-schema-preview-row\">" + s + "</tr>";
-  }
+    logger.info("record at row " + rowIndex() + " was recently validated; not rechecking IDs");
+
+    buildItemAgainstSNAC();
 
-  protected String htmlTableColumn(String s, String attr) {
-    String html = "<td";
-    if (attr != null) {
-      html += " " + attr;
+    if (_errors.hasErrors()) {
+      return new SNACAPIResponse(_client, _errors.getAccumulatedErrorString());
     }
-    html += ">" + s + "</td>";
-    return html;
-  }
 
-  protected String htmlTableColumnField(String s) {
-    return htmlTableColumn(s, "class=\"snac-schema-preview-column-field\"");
+    return new SNACAPIResponse("success");
   }
 
-  protected String htmlTableColumnValue(String s) {
-    return htmlTableColumn(s, "class=\"snac-schema-preview-column-value\"");
-  }
+  // preview text helpers
 
-  protected String htmlOrderedList(List<String> s) {
-    if (s.size() == 0) {
-      return "";
-    }
-    String html = "<ol>";
-    for (int i = 0; i < s.size(); i++) {
-      html += "<li class=\"snac-schema-preview-list-item\">" + s.get(i) + "</li>";
+  protected void putLanguagesPreview(
+      SNACPreviewBuilder preview, String field, List<Language> languages) {
+    for (int i = 0; i < languages.size(); i++) {
+      Term lang = languages.get(i).getLanguage();
+      Term script = languages.get(i).getScript();
+
+      // no language or script?  shouldn't happen
+      if (lang == null && script == null) {
+        continue;
+      }
+
+      StringBuilder item = preview.listItem();
+
+      if (lang != null) {
+        appendTermPreview(item.append("Language: "), lang);
+        if (script != null) {
+          item.append(" / ");
+        }
+      }
+
+      if (script != null) {
+        appendTermPreview(item.append("Script: "), script);
+      }
     }
-    html += "</ol>";
-    return html;
+
+    preview.putList(field);
   }
 
-  protected String htmlLink(String url, String title) {
-    return "<a href=\"" + url + "\" target=\"_blank\">" + title + "</a>";
+  private void appendTermPreview(StringBuilder sb, Term term) {
+    // code, plus description if there is one
+    sb.append(term.getTerm());
+
+    String desc = term.getDescription();
+    if (desc != null && !desc.equals("")) {
+      sb.append(" (").append(desc).append(")");
+    }
   }
 }
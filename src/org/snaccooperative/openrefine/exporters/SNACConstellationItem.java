@@ -3,11 +3,8 @@ package org.snaccooperative.openrefine.exporters;
 import com.google.refine.model.Project;
 import com.google.refine.model.Record;
 import com.google.refine.model.Row;
-import java.util.ArrayList;
 import java.util.LinkedList;
 import java.util.List;
-import java.util.Map;
-import java.util.TreeMap;
 import org.json.JSONObject;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -25,6 +22,7 @@ import org.snaccooperative.data.Source;
 import org.snaccooperative.data.Subject;
 import org.snaccooperative.data.Term;
 import org.snaccooperative.openrefine.api.SNACAPIClient;
+import org.snaccooperative.openrefine.api.SNACAPIRequest;
 import org.snaccooperative.openrefine.api.SNACAPIResponse;
 import org.snaccooperative.openrefine.cache.SNACLookupCache;
 import org.snaccooperative.openrefine.cache.SNACLookupCache.TermType;
@@ -32,6 +30,7 @@ import org.snaccooperative.openrefine.model.SNACConstellationModel;
 import org.snaccooperative.openrefine.model.SNACConstellationModel.ConstellationFieldType;
 import org.snaccooperative.openrefine.model.SNACModelField;
 import org.snaccooperative.openrefine.schema.SNACSchema;
+import org.snaccooperative.openrefine.schema.SNACSchemaPlan;
 
 public class SNACConstellationItem extends SNACAbstractItem {
 
@@ -39,6 +38,9 @@ public class SNACConstellationItem extends SNACAbstractItem {
 
   private Constellation _item;
 
+  // models are immutable once built, so all items share one
+  private static final SNACConstellationModel _sharedModel = new SNACConstellationModel();
+
   private SNACConstellationModel _model;
 
   public SNACConstellationItem(
@@ -47,9 +49,14 @@ public class SNACConstellationItem extends SNACAbstractItem {
       SNACAPIClient client,
       SNACLookupCache cache,
       Record record) {
-    super(project, schema, client, cache, record);
+    this(new SNACSchemaPlan(project, schema), client, cache, record);
+  }
+
+  public SNACConstellationItem(
+      SNACSchemaPlan plan, SNACAPIClient client, SNACLookupCache cache, Record record) {
+    super(plan, client, cache, record);
 
-    this._model = new SNACConstellationModel();
+    this._model = _sharedModel;
 
     buildItemVerbatim();
   }
@@ -59,18 +66,22 @@ public class SNACConstellationItem extends SNACAbstractItem {
     this._errors = new SNACValidationErrors();
 
     SNACFieldValidator<ConstellationFieldType> validator =
-        new SNACFieldValidator<ConstellationFieldType>(_model, _schema, _utils, _cache, _errors);
+        new SNACFieldValidator<ConstellationFieldType>(
+            _model, _utils, _cache, _errors, _lookupTerms);
 
     validator.ensureRequiredFieldsInSchema();
 
     Constellation con = new Constellation();
     con.setOperation(AbstractData.OPERATION_INSERT);
 
-    for (Map.Entry<String, String> entry : _schema.getColumnMappings().entrySet()) {
-      String csvColumn = entry.getKey();
-      String snacField = entry.getValue();
+    List<SNACSchemaPlan.Mapping> mappings = _utils.getPlan().getMappings();
+    List<ConstellationFieldType> fieldTypes = _utils.getPlan().getFieldTypes(_model);
 
-      ConstellationFieldType fieldType = _model.getFieldType(snacField);
+    for (int m = 0; m < mappings.size(); m++) {
+      String snacField = mappings.get(m).getField();
+      int cellIndex = mappings.get(m).getCellIndex();
+
+      ConstellationFieldType fieldType = fieldTypes.get(m);
       SNACModelField<ConstellationFieldType> modelField = _model.getModelField(fieldType);
 
       // initialize field tracker
@@ -79,7 +90,7 @@ public class SNACConstellationItem extends SNACAbstractItem {
       for (int i = _record.fromRowIndex; i < _record.toRowIndex; i++) {
         Row row = _project.rows.get(i);
 
-        String cellValue = validator.getCellValue(row, csvColumn);
+        String cellValue = validator.getCellValue(row, cellIndex);
 
         if (cellValue.equals("")) {
           continue;
@@ -398,203 +409,139 @@ public class SNACConstellationItem extends SNACAbstractItem {
 
     _item = con;
 
-    logger.debug("built constellation: [" + toJSON() + "]");
+    // avoid serializing the whole item unless it will actually be logged
+    if (logger.isDebugEnabled()) {
+      logger.debug("built constellation: [" + toJSON() + "]");
+    }
   }
 
   public String getPreviewText() {
-    Map<String, String> outFields = new TreeMap<>();
+    SNACPreviewBuilder preview = new SNACPreviewBuilder();
+
+    List<SNACSchemaPlan.Mapping> mappings = _utils.getPlan().getMappings();
+    List<ConstellationFieldType> fieldTypes = _utils.getPlan().getFieldTypes(_model);
 
-    for (Map.Entry<String, String> entry : _schema.getColumnMappings().entrySet()) {
-      String snacField = entry.getValue();
+    for (int m = 0; m < mappings.size(); m++) {
+      String snacField = mappings.get(m).getField();
 
-      ConstellationFieldType fieldType = _model.getFieldType(snacField);
+      ConstellationFieldType fieldType = fieldTypes.get(m);
 
       switch (fieldType) {
         case CPF_TYPE:
           Term previewTerm = _item.getEntityType();
           if (previewTerm != null) {
-            outFields.put(snacField, previewTerm.getTerm());
+            preview.put(snacField, previewTerm.getTerm());
           }
           continue;
 
         case NAME_ENTRY:
-          List<String> namesAndPreferenceScores = new ArrayList<String>();
           for (int i = 0; i < _item.getNameEntries().size(); i++) {
             NameEntry name = _item.getNameEntries().get(i);
-            String nameAndPreferenceScore = name.toString();
-            if (name.getPreferenceScore() == 99) {
-              nameAndPreferenceScore += " (preferred)";
-            } else {
-              nameAndPreferenceScore += " (variant)";
-            }
-            namesAndPreferenceScores.add(nameAndPreferenceScore.replaceFirst("^Name Entry: ", ""));
+            SNACPreviewBuilder.appendStripped(preview.listItem(), name.toString(), "Name Entry: ")
+                .append(name.getPreferenceScore() == 99 ? " (preferred)" : " (variant)");
           }
-          outFields.put(snacField, htmlOrderedList(namesAndPreferenceScores));
+          preview.putList(snacField);
           continue;
 
         case EXIST_DATE:
-          List<String> dates = new ArrayList<String>();
           for (int i = 0; i < _item.getDateList().size(); i++) {
-            dates.add(_item.getDateList().get(i).toString().replaceFirst("^Date: ", ""));
+            SNACPreviewBuilder.appendStripped(
+                preview.listItem(), _item.getDateList().get(i).toString(), "Date: ");
           }
-          outFields.put(snacField, htmlOrderedList(dates));
+          preview.putList(snacField);
           continue;
 
         case SUBJECT:
-          List<String> subjects = new ArrayList<String>();
           for (int i = 0; i < _item.getSubjects().size(); i++) {
-            subjects.add(_item.getSubjects().get(i).getTerm().getTerm());
+            preview.listItem().append(_item.getSubjects().get(i).getTerm().getTerm());
           }
-          outFields.put(snacField, htmlOrderedList(subjects));
+          preview.putList(snacField);
           continue;
 
         case PLACE:
-          List<String> placesAndRoles = new ArrayList<String>();
           for (int i = 0; i < _item.getPlaces().size(); i++) {
             Place place = _item.getPlaces().get(i);
             // assumes we are not working with geo terms
-            String placeAndRoleAndType = place.toString();
+            StringBuilder placeAndRoleAndType =
+                SNACPreviewBuilder.appendStripped(preview.listItem(), place.toString(), "Place: ");
             if (place.getRole() != null) {
-              placeAndRoleAndType += " (" + place.getRole().getTerm() + ")";
+              placeAndRoleAndType.append(" (").append(place.getRole().getTerm()).append(")");
             }
             if (place.getType() != null) {
-              placeAndRoleAndType += " (" + place.getType().getTerm() + ")";
+              placeAndRoleAndType.append(" (").append(place.getType().getTerm()).append(")");
             }
-            placesAndRoles.add(placeAndRoleAndType.replaceFirst("^Place: ", ""));
           }
-          outFields.put(snacField, htmlOrderedList(placesAndRoles));
+          preview.putList(snacField);
           continue;
 
         case OCCUPATION:
-          List<String> occupations = new ArrayList<String>();
           for (int i = 0; i < _item.getOccupations().size(); i++) {
-            occupations.add(_item.getOccupations().get(i).getTerm().getTerm());
+            preview.listItem().append(_item.getOccupations().get(i).getTerm().getTerm());
           }
-          outFields.put(snacField, htmlOrderedList(occupations));
+          preview.putList(snacField);
           continue;
 
         case ACTIVITY:
-          List<String> activities = new ArrayList<String>();
           for (int i = 0; i < _item.getActivities().size(); i++) {
-            activities.add(_item.getActivities().get(i).getTerm().getTerm());
+            preview.listItem().append(_item.getActivities().get(i).getTerm().getTerm());
           }
-          outFields.put(snacField, htmlOrderedList(activities));
+          preview.putList(snacField);
           continue;
 
         case LANGUAGE_CODE:
-          List<String> langList = new ArrayList<>();
-          for (int i = 0; i < _item.getLanguagesUsed().size(); i++) {
-            Term lang = _item.getLanguagesUsed().get(i).getLanguage();
-
-            String langFull = "";
-
-            if (lang != null) {
-              String langCode = lang.getTerm();
-              String langDesc = lang.getDescription();
-
-              langFull = langCode;
-              if (!langDesc.equals("")) {
-                langFull += " (" + langDesc + ")";
-              }
-            }
-
-            Term script = _item.getLanguagesUsed().get(i).getScript();
-
-            String scriptFull = "";
-
-            if (script != null) {
-              String scriptCode = script.getTerm();
-              String scriptDesc = script.getDescription();
-
-              scriptFull = scriptCode;
-              if (!scriptDesc.equals("")) {
-                scriptFull += " (" + scriptDesc + ")";
-              }
-            }
-
-            if (langFull.equals("")) {
-              if (scriptFull.equals("")) {
-                // no language or script?  shouldn't happen
-              } else {
-                langList.add("Script: " + scriptFull);
-              }
-            } else {
-              if (scriptFull.equals("")) {
-                langList.add("Language: " + langFull);
-              } else {
-                langList.add("Language: " + langFull + " / Script: " + scriptFull);
-              }
-            }
-          }
-
-          if (langList.size() > 0) {
-            outFields.put(snacField, htmlOrderedList(langList));
-          }
-
+          putLanguagesPreview(preview, snacField, _item.getLanguagesUsed());
           continue;
 
         case BIOG_HIST:
-          List<String> bioghists = new ArrayList<String>();
           for (int i = 0; i < _item.getBiogHists().size(); i++) {
-            bioghists.add(_item.getBiogHists().get(i).getText());
+            preview.listItem().append(_item.getBiogHists().get(i).getText());
           }
-          outFields.put(snacField, htmlOrderedList(bioghists));
+          preview.putList(snacField);
           continue;
 
         case SOURCE_CITATION:
-          List<String> sources = new ArrayList<String>();
           for (int i = 0; i < _item.getSources().size(); i++) {
             Source source = _item.getSources().get(i);
-            String sourceAndFoundData = source.getCitation();
+            StringBuilder sourceAndFoundData = preview.listItem().append(source.getCitation());
             if (source.getURI() != null) {
-              sourceAndFoundData += " (" + htmlLink(source.getURI(), source.getURI()) + ")";
+              sourceAndFoundData.append(" (");
+              SNACPreviewBuilder.appendLink(sourceAndFoundData, source.getURI(), source.getURI());
+              sourceAndFoundData.append(")");
             }
             if (source.getText() != null) {
-              sourceAndFoundData += " (Found Data: " + source.getText() + ")";
+              sourceAndFoundData.append(" (Found Data: ").append(source.getText()).append(")");
             }
-            sources.add(sourceAndFoundData);
           }
-          outFields.put(snacField, htmlOrderedList(sources));
+          preview.putList(snacField);
           continue;
 
         case EXTERNAL_RELATED_CPF_URL:
-          List<String> sameAsURIs = new ArrayList<String>();
           for (int i = 0; i < _item.getSameAsRelations().size(); i++) {
             SameAs sameAs = _item.getSameAsRelations().get(i);
-            sameAsURIs.add(htmlLink(sameAs.getURI(), sameAs.getURI()));
+            SNACPreviewBuilder.appendLink(preview.listItem(), sameAs.getURI(), sameAs.getURI());
           }
-          outFields.put(snacField, htmlOrderedList(sameAsURIs));
+          preview.putList(snacField);
           continue;
       }
     }
 
     if (_item.getOperation().equals(AbstractData.OPERATION_UPDATE)) {
-      outFields.put(
+      preview.put(
           "*** Operation ***",
-          "Edit Constellation with ID: "
-              + htmlLink(
-                  _client.urlForConstellationID(_item.getID()), Integer.toString(_item.getID())));
+          SNACPreviewBuilder.appendLink(
+                  new StringBuilder("Edit Constellation with ID: "),
+                  _client.urlForConstellationID(_item.getID()),
+                  Integer.toString(_item.getID()))
+              .toString());
     } else {
-      outFields.put("*** Operation ***", "Insert new Constellation");
+      preview.put("*** Operation ***", "Insert new Constellation");
     }
 
     if (_errors.hasErrors()) {
-      outFields.put("Validation Errors", htmlOrderedList(_errors.getErrors()));
-    }
-
-    String preview = "";
-    // FIXME: output in predetermined order (not just alphabetical)?
-    for (String key : outFields.keySet()) {
-      String out = outFields.get(key);
-      if (out == null || out.equals("")) {
-        continue;
-      }
-      preview += htmlTableRow(htmlTableColumnField(key) + htmlTableColumnValue(out));
-      // logger.info(key + " => " + out);
+      preview.putList("Validation Errors", _errors.getErrors());
     }
-    preview = htmlTable(preview);
 
-    return preview;
+    return preview.build();
   }
 
   public String toJSON() {
@@ -605,7 +552,7 @@ public class SNACConstellationItem extends SNACAbstractItem {
     logger.info("preparing to upload constellation to SNAC...");
 
     // validate constellation data before uploading
-    SNACAPIResponse validationError = performValidation();
+    SNACAPIResponse validationError = performValidationForUpload();
     if (validationError != null && !validationError.getResult().equals("success")) {
       return validationError;
     }
@@ -646,11 +593,10 @@ public class SNACConstellationItem extends SNACAbstractItem {
 
     logger.info("uploading constellation...");
 
-    JSONObject req = new JSONObject();
-
-    req.put("command", "insert_and_publish_constellation");
-    req.put("apikey", _client.apiKey());
-    req.put("constellation", new JSONObject(toJSON()));
+    SNACAPIRequest req =
+        new SNACAPIRequest("insert_and_publish_constellation")
+            .put("apikey", _client.apiKey())
+            .putJSON("constellation", toJSON());
 
     SNACAPIResponse updateResponse = _client.post(req);
 
@@ -13,7 +13,6 @@ import org.snaccooperative.openrefine.model.SNACAbstractModel;
 import org.snaccooperative.openrefine.model.SNACModelField;
 import org.snaccooperative.openrefine.model.SNACModelField.FieldOccurence;
 import org.snaccooperative.openrefine.model.SNACModelFieldType;
-import org.snaccooperative.openrefine.schema.SNACSchema;
 import org.snaccooperative.openrefine.schema.SNACSchemaUtilities;
 
 public class SNACFieldValidator<E extends Enum<E> & SNACModelFieldType> {
@@ -21,24 +20,26 @@ public class SNACFieldValidator<E extends Enum<E> & SNACModelFieldType> {
   static final Logger logger = LoggerFactory.getLogger(SNACFieldValidator.class);
 
   private SNACAbstractModel<E> _model;
-  private SNACSchema _schema;
   private SNACSchemaUtilities _utils;
   private SNACLookupCache _cache;
   private SNACValidationErrors _errors;
 
+  // whether terms are looked up in SNAC, or taken verbatim from the cell values
+  private Boolean _lookupTerms;
+
   private Map<E, SNACFieldTracker> _fields;
 
   public SNACFieldValidator(
       SNACAbstractModel<E> model,
-      SNACSchema schema,
       SNACSchemaUtilities utils,
       SNACLookupCache cache,
-      SNACValidationErrors errors) {
+      SNACValidationErrors errors,
+      Boolean lookupTerms) {
     this._model = model;
-    this._schema = schema;
     this._utils = utils;
     this._cache = cache;
     this._errors = errors;
+    this._lookupTerms = lookupTerms;
 
     this._fields = new HashMap<E, SNACFieldTracker>();
   }
@@ -226,7 +227,7 @@ public class SNACFieldValidator<E extends Enum<E> & SNACModelFieldType> {
   // helpers for getting column names
 
   public String getColumn(String field) {
-    return _schema.getColumnFromSNACField(field);
+    return _utils.getColumnForField(field);
   }
 
   public String getColumn(E fieldType) {
@@ -239,6 +240,10 @@ public class SNACFieldValidator<E extends Enum<E> & SNACModelFieldType> {
     return _utils.getCellValueForRowByColumnName(row, column);
   }
 
+  public String getCellValue(Row row, int cellIndex) {
+    return _utils.getCellValueForRowByCellIndex(row, cellIndex);
+  }
+
   public String getCellValue(Row row, E fieldType) {
     return getCellValue(row, fieldType.getName());
   }
@@ -266,7 +271,7 @@ public class SNACFieldValidator<E extends Enum<E> & SNACModelFieldType> {
   // helpers for getting terms
 
   public Term getTerm(E fieldType, String fieldValue, TermType termType) {
-    Term term = _cache.getTerm(termType, fieldValue);
+    Term term = _cache.getTerm(termType, fieldValue, _lookupTerms);
 
     if (term == null) {
       if (fieldType != null) {
@@ -299,7 +304,7 @@ public class SNACFieldValidator<E extends Enum<E> & SNACModelFieldType> {
       return null;
     }
 
-    Term term = _cache.getTerm(termType, relatedValue);
+    Term term = _cache.getTerm(termType, relatedValue, _lookupTerms);
 
     if (term == null) {
       _errors.addInvalidVocabularyFieldError(
@@ -0,0 +1,121 @@
+package org.snaccooperative.openrefine.exporters;
+
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+public class SNACPreviewBuilder {
+
+  // Builds the HTML table shown for an item in the schema preview tab: one row
+  // per field, in field name order, holding text, a link or an ordered list.
+  // List values are appended into a single buffer that is reused for every
+  // field, and the table is written into one presized buffer at the end.
+
+  private static final String LIST_ITEM_START = "<li class=\"snac-schema-preview-list-item\">";
+
+  private final Map<String, String> _fields;
+  private final StringBuilder _value;
+
+  public SNACPreviewBuilder() {
+    this._fields = new TreeMap<String, String>();
+    this._value = new StringBuilder(256);
+  }
+
+  public void put(String field, String value) {
+    // null or empty values are not shown
+    _fields.put(field, value);
+  }
+
+  public void putLink(String field, String url, String title) {
+    _value.setLength(0);
+    put(field, appendLink(_value, url, title).toString());
+  }
+
+  public StringBuilder listItem() {
+    // starts a new item of the list being built, and returns the buffer to append
+    // its content to; the list is completed by putList(field)
+
+    if (_value.length() == 0) {
+      _value.append("<ol>");
+    } else {
+      _value.append("</li>");
+    }
+
+    return _value.append(LIST_ITEM_START);
+  }
+
+  public void putList(String field) {
+    // an empty list is not shown
+
+    if (_value.length() == 0) {
+      put(field, "");
+      return;
+    }
+
+    _value.append("</li></ol>");
+    put(field, _value.toString());
+    _value.setLength(0);
+  }
+
+  public void putList(String field, List<String> items) {
+    _value.setLength(0);
+
+    for (int i = 0; i < items.size(); i++) {
+      listItem().append(items.get(i));
+    }
+
+    putList(field);
+  }
+
+  public String build() {
+    // FIXME: output in predetermined order (not just alphabetical)?
+
+    int size = 32;
+    for (Map.Entry<String, String> entry : _fields.entrySet()) {
+      if (entry.getValue() != null) {
+        size += entry.getKey().length() + entry.getValue().length() + 160;
+      }
+    }
+
+    StringBuilder html = new StringBuilder(size);
+
+    html.append("<table><tbody>");
+
+    for (Map.Entry<String, String> entry : _fields.entrySet()) {
+      String out = entry.getValue();
+      if (out == null || out.equals("")) {
+        continue;
+      }
+
+      html.append("<tr class=\"snac-schema-preview-row\">");
+      html.append("<td class=\"snac-schema-preview-column-field\">").append(entry.getKey());
+      html.append("</td>");
+      html.append("<td class=\"snac-schema-preview-column-value\">").append(out);
+      html.append("</td>");
+      html.append("</tr>");
+    }
+
+    html.append("</tbody></table>");
+
+    return html.toString();
+  }
+
+  public static StringBuilder appendLink(StringBuilder sb, String url, String title) {
+    return sb.append("<a href=\"")
+        .append(url)
+        .append("\" target=\"_blank\">")
+        .append(title)
+        .append("</a>");
+  }
+
+  public static StringBuilder appendStripped(StringBuilder sb, String s, String prefix) {
+    // appends s without a leading prefix (e.g. the "Name Entry: " that some
+    // datamodel toString() methods start with), without a regex or a substring
+
+    if (s.startsWith(prefix)) {
+      return sb.append(s, prefix.length(), s.length());
+    }
+
+    return sb.append(s);
+  }
+}
@@ -3,11 +3,8 @@ package org.snaccooperative.openrefine.exporters;
 import com.google.refine.model.Project;
 import com.google.refine.model.Record;
 import com.google.refine.model.Row;
-import java.util.ArrayList;
 import java.util.LinkedList;
 import java.util.List;
-import java.util.Map;
-import java.util.TreeMap;
 import org.json.JSONObject;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -18,6 +15,7 @@ import org.snaccooperative.data.Resource;
 import org.snaccooperative.data.ResourceRelation;
 import org.snaccooperative.data.Term;
 import org.snaccooperative.openrefine.api.SNACAPIClient;
+import org.snaccooperative.openrefine.api.SNACAPIRequest;
 import org.snaccooperative.openrefine.api.SNACAPIResponse;
 import org.snaccooperative.openrefine.cache.SNACLookupCache;
 import org.snaccooperative.openrefine.cache.SNACLookupCache.TermType;
@@ -26,6 +24,7 @@ import org.snaccooperative.openrefine.model.SNACModelField;
 import org.snaccooperative.openrefine.model.SNACRelationModel;
 import org.snaccooperative.openrefine.model.SNACRelationModel.RelationFieldType;
 import org.snaccooperative.openrefine.schema.SNACSchema;
+import org.snaccooperative.openrefine.schema.SNACSchemaPlan;
 
 public class SNACRelationItem extends SNACAbstractItem {
 
@@ -33,6 +32,9 @@ public class SNACRelationItem extends SNACAbstractItem {
 
   private Constellation _item;
 
+  // models are immutable once built, so all items share one
+  private static final SNACRelationModel _sharedModel = new SNACRelationModel();
+
   private SNACRelationModel _model;
 
   public SNACRelationItem(
@@ -41,9 +43,14 @@ public class SNACRelationItem extends SNACAbstractItem {
       SNACAPIClient client,
       SNACLookupCache cache,
       Record record) {
-    super(project, schema, client, cache, record);
+    this(new SNACSchemaPlan(project, schema), client, cache, record);
+  }
+
+  public SNACRelationItem(
+      SNACSchemaPlan plan, SNACAPIClient client, SNACLookupCache cache, Record record) {
+    super(plan, client, cache, record);
 
-    this._model = new SNACRelationModel();
+    this._model = _sharedModel;
 
     buildItemVerbatim();
   }
@@ -55,18 +62,21 @@ public class SNACRelationItem extends SNACAbstractItem {
     this._relatedIDs.put(ModelType.RESOURCE, new LinkedList<Integer>());
 
     SNACFieldValidator<RelationFieldType> validator =
-        new SNACFieldValidator<RelationFieldType>(_model, _schema, _utils, _cache, _errors);
+        new SNACFieldValidator<RelationFieldType>(_model, _utils, _cache, _errors, _lookupTerms);
 
     validator.ensureRequiredFieldsInSchema();
 
     Constellation con = new Constellation();
     con.setOperation(AbstractData.OPERATION_INSERT);
 
-    for (Map.Entry<String, String> entry : _schema.getColumnMappings().entrySet()) {
-      String csvColumn = entry.getKey();
-      String snacField = entry.getValue();
+    List<SNACSchemaPlan.Mapping> mappings = _utils.getPlan().getMappings();
+    List<RelationFieldType> fieldTypes = _utils.getPlan().getFieldTypes(_model);
+
+    for (int m = 0; m < mappings.size(); m++) {
+      String snacField = mappings.get(m).getField();
+      int cellIndex = mappings.get(m).getCellIndex();
 
-      RelationFieldType fieldType = _model.getFieldType(snacField);
+      RelationFieldType fieldType = fieldTypes.get(m);
       SNACModelField<RelationFieldType> modelField = _model.getModelField(fieldType);
 
       // initialize field tracker
@@ -75,7 +85,7 @@ public class SNACRelationItem extends SNACAbstractItem {
       for (int i = _record.fromRowIndex; i < _record.toRowIndex; i++) {
         Row row = _project.rows.get(i);
 
-        String cellValue = validator.getCellValue(row, csvColumn);
+        String cellValue = validator.getCellValue(row, cellIndex);
 
         if (cellValue.equals("")) {
           continue;
@@ -193,86 +203,85 @@ public class SNACRelationItem extends SNACAbstractItem {
 
     _item = con;
 
-    logger.debug("built constellation: [" + toJSON() + "]");
+    // avoid serializing the whole item unless it will actually be logged
+    if (logger.isDebugEnabled()) {
+      logger.debug("built constellation: [" + toJSON() + "]");
+    }
   }
 
   public String getPreviewText() {
-    Map<String, String> outFields = new TreeMap<>();
+    SNACPreviewBuilder preview = new SNACPreviewBuilder();
 
-    for (Map.Entry<String, String> entry : _schema.getColumnMappings().entrySet()) {
-      String snacField = entry.getValue();
+    List<SNACSchemaPlan.Mapping> mappings = _utils.getPlan().getMappings();
+    List<RelationFieldType> fieldTypes = _utils.getPlan().getFieldTypes(_model);
 
-      RelationFieldType fieldType = _model.getFieldType(snacField);
+    for (int m = 0; m < mappings.size(); m++) {
+      String snacField = mappings.get(m).getField();
+
+      RelationFieldType fieldType = fieldTypes.get(m);
 
       switch (fieldType) {
         case CPF_TYPE:
           Term previewTerm = _item.getEntityType();
           if (previewTerm != null) {
-            outFields.put(snacField, previewTerm.getTerm());
+            preview.put(snacField, previewTerm.getTerm());
           }
           continue;
 
         case RELATED_CPF_ID:
-          List<String> relations = new ArrayList<String>();
           for (int i = 0; i < _item.getRelations().size(); i++) {
             ConstellationRelation relation = _item.getRelations().get(i);
             int relationID = relation.getTargetConstellation();
-            String relationAndType =
-                htmlLink(_client.urlForConstellationID(relationID), Integer.toString(relationID));
+            StringBuilder relationAndType =
+                SNACPreviewBuilder.appendLink(
+                    preview.listItem(),
+                    _client.urlForConstellationID(relationID),
+                    Integer.toString(relationID));
             if (relation.getType() != null) {
-              relationAndType += " (" + relation.getType().getTerm() + ")";
+              relationAndType.append(" (").append(relation.getType().getTerm()).append(")");
             }
-            relations.add(relationAndType);
           }
-          outFields.put(snacField, htmlOrderedList(relations));
+          preview.putList(snacField);
           continue;
 
         case RELATED_RESOURCE_ID:
-          List<String> resourceRelations = new ArrayList<String>();
           for (int i = 0; i < _item.getResourceRelations().size(); i++) {
             ResourceRelation resourceRelation = _item.getResourceRelations().get(i);
             int resourceRelationID = resourceRelation.getResource().getID();
-            String resourceRelationAndRole =
-                htmlLink(
+            StringBuilder resourceRelationAndRole =
+                SNACPreviewBuilder.appendLink(
+                    preview.listItem(),
                     _client.urlForResourceID(resourceRelationID),
                     Integer.toString(resourceRelationID));
             if (resourceRelation.getRole() != null) {
-              resourceRelationAndRole += " (" + resourceRelation.getRole().getTerm() + ")";
+              resourceRelationAndRole
+                  .append(" (")
+                  .append(resourceRelation.getRole().getTerm())
+                  .append(")");
             }
-            resourceRelations.add(resourceRelationAndRole);
           }
-          outFields.put(snacField, htmlOrderedList(resourceRelations));
+          preview.putList(snacField);
           continue;
       }
     }
 
     if (_item.getOperation().equals(AbstractData.OPERATION_UPDATE)) {
-      outFields.put(
+      preview.put(
           "*** Operation ***",
-          "Edit Constellation with ID: "
-              + htmlLink(
-                  _client.urlForConstellationID(_item.getID()), Integer.toString(_item.getID())));
+          SNACPreviewBuilder.appendLink(
+                  new StringBuilder("Edit Constellation with ID: "),
+                  _client.urlForConstellationID(_item.getID()),
+                  Integer.toString(_item.getID()))
+              .toString());
     } else {
-      outFields.put("*** Operation ***", "Insert new Constellation");
+      preview.put("*** Operation ***", "Insert new Constellation");
     }
 
     if (_errors.hasErrors()) {
-      outFields.put("Validation Errors", htmlOrderedList(_errors.getErrors()));
+      preview.putList("Validation Errors", _errors.getErrors());
     }
 
-    String preview = "";
-    // FIXME: output in predetermined order (not just alphabetical)?
-    for (String key : outFields.keySet()) {
-      String out = outFields.get(key);
-      if (out == null || out.equals("")) {
-        continue;
-      }
-      preview += htmlTableRow(htmlTableColumnField(key) + htmlTableColumnValue(out));
-      // logger.info(key + " => " + out);
-    }
-    preview = htmlTable(preview);
-
-    return preview;
+    return preview.build();
   }
 
   public String toJSON() {
@@ -283,7 +292,7 @@ public class SNACRelationItem extends SNACAbstractItem {
     logger.info("preparing to upload constellation to SNAC...");
 
     // validate constellation data before uploading
-    SNACAPIResponse validationError = performValidation();
+    SNACAPIResponse validationError = performValidationForUpload();
     if (validationError != null && !validationError.getResult().equals("success")) {
       return validationError;
     }
@@ -324,11 +333,10 @@ public class SNACRelationItem extends SNACAbstractItem {
 
     logger.info("uploading constellation...");
 
-    JSONObject req = new JSONObject();
-
-    req.put("command", "insert_and_publish_constellation");
-    req.put("apikey", _client.apiKey());
-    req.put("constellation", new JSONObject(toJSON()));
+    SNACAPIRequest req =
+        new SNACAPIRequest("insert_and_publish_constellation")
+            .put("apikey", _client.apiKey())
+            .putJSON("constellation", toJSON());
 
     SNACAPIResponse updateResponse = _client.post(req);
 
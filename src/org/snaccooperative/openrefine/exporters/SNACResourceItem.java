@@ -3,12 +3,8 @@ package org.snaccooperative.openrefine.exporters;
 import com.google.refine.model.Project;
 import com.google.refine.model.Record;
 import com.google.refine.model.Row;
-import java.util.ArrayList;
 import java.util.LinkedList;
 import java.util.List;
-import java.util.Map;
-import java.util.TreeMap;
-import org.json.JSONObject;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.snaccooperative.data.AbstractData;
@@ -17,6 +13,7 @@ import org.snaccooperative.data.Language;
 import org.snaccooperative.data.Resource;
 import org.snaccooperative.data.Term;
 import org.snaccooperative.openrefine.api.SNACAPIClient;
+import org.snaccooperative.openrefine.api.SNACAPIRequest;
 import org.snaccooperative.openrefine.api.SNACAPIResponse;
 import org.snaccooperative.openrefine.cache.SNACLookupCache;
 import org.snaccooperative.openrefine.cache.SNACLookupCache.TermType;
@@ -25,6 +22,7 @@ import org.snaccooperative.openrefine.model.SNACModelField;
 import org.snaccooperative.openrefine.model.SNACResourceModel;
 import org.snaccooperative.openrefine.model.SNACResourceModel.ResourceFieldType;
 import org.snaccooperative.openrefine.schema.SNACSchema;
+import org.snaccooperative.openrefine.schema.SNACSchemaPlan;
 
 public class SNACResourceItem extends SNACAbstractItem {
 
@@ -32,6 +30,9 @@ public class SNACResourceItem extends SNACAbstractItem {
 
   private Resource _item;
 
+  // models are immutable once built, so all items share one
+  private static final SNACResourceModel _sharedModel = new SNACResourceModel();
+
   private SNACResourceModel _model;
 
   public SNACResourceItem(
@@ -40,9 +41,14 @@ public class SNACResourceItem extends SNACAbstractItem {
       SNACAPIClient client,
       SNACLookupCache cache,
       Record record) {
-    super(project, schema, client, cache, record);
+    this(new SNACSchemaPlan(project, schema), client, cache, record);
+  }
+
+  public SNACResourceItem(
+      SNACSchemaPlan plan, SNACAPIClient client, SNACLookupCache cache, Record record) {
+    super(plan, client, cache, record);
 
-    this._model = new SNACResourceModel();
+    this._model = _sharedModel;
 
     buildItemVerbatim();
   }
@@ -53,18 +59,21 @@ public class SNACResourceItem extends SNACAbstractItem {
     this._relatedIDs.put(ModelType.CONSTELLATION, new LinkedList<Integer>());
 
     SNACFieldValidator<ResourceFieldType> validator =
-        new SNACFieldValidator<ResourceFieldType>(_model, _schema, _utils, _cache, _errors);
+        new SNACFieldValidator<ResourceFieldType>(_model, _utils, _cache, _errors, _lookupTerms);
 
     validator.ensureRequiredFieldsInSchema();
 
     Resource res = new Resource();
     res.setOperation(AbstractData.OPERATION_INSERT);
 
-    for (Map.Entry<String, String> entry : _schema.getColumnMappings().entrySet()) {
-      String csvColumn = entry.getKey();
-      String snacField = entry.getValue();
+    List<SNACSchemaPlan.Mapping> mappings = _utils.getPlan().getMappings();
+    List<ResourceFieldType> fieldTypes = _utils.getPlan().getFieldTypes(_model);
 
-      ResourceFieldType fieldType = _model.getFieldType(snacField);
+    for (int m = 0; m < mappings.size(); m++) {
+      String snacField = mappings.get(m).getField();
+      int cellIndex = mappings.get(m).getCellIndex();
+
+      ResourceFieldType fieldType = fieldTypes.get(m);
       SNACModelField<ResourceFieldType> modelField = _model.getModelField(fieldType);
 
       // initialize field tracker
@@ -73,7 +82,7 @@ public class SNACResourceItem extends SNACAbstractItem {
       for (int i = _record.fromRowIndex; i < _record.toRowIndex; i++) {
         Row row = _project.rows.get(i);
 
-        String cellValue = validator.getCellValue(row, csvColumn);
+        String cellValue = validator.getCellValue(row, cellIndex);
 
         if (cellValue.equals("")) {
           continue;
@@ -211,96 +220,53 @@ public class SNACResourceItem extends SNACAbstractItem {
 
     _item = res;
 
-    logger.debug("built resource: [" + toJSON() + "]");
+    // avoid serializing the whole item unless it will actually be logged
+    if (logger.isDebugEnabled()) {
+      logger.debug("built resource: [" + toJSON() + "]");
+    }
   }
 
   public String getPreviewText() {
-    Map<String, String> outFields = new TreeMap<>();
+    SNACPreviewBuilder preview = new SNACPreviewBuilder();
+
+    List<SNACSchemaPlan.Mapping> mappings = _utils.getPlan().getMappings();
+    List<ResourceFieldType> fieldTypes = _utils.getPlan().getFieldTypes(_model);
 
-    for (Map.Entry<String, String> entry : _schema.getColumnMappings().entrySet()) {
-      String snacField = entry.getValue();
+    for (int m = 0; m < mappings.size(); m++) {
+      String snacField = mappings.get(m).getField();
 
-      ResourceFieldType fieldType = _model.getFieldType(snacField);
+      ResourceFieldType fieldType = fieldTypes.get(m);
 
       switch (fieldType) {
         case RESOURCE_TYPE:
           Term previewTerm = _item.getDocumentType();
           if (previewTerm != null) {
-            outFields.put(snacField, previewTerm.getTerm());
+            preview.put(snacField, previewTerm.getTerm());
           }
           continue;
 
         case TITLE:
-          outFields.put(snacField, _item.getTitle());
+          preview.put(snacField, _item.getTitle());
           continue;
 
         case RESOURCE_URL:
-          outFields.put(snacField, htmlLink(_item.getLink(), _item.getLink()));
+          preview.putLink(snacField, _item.getLink(), _item.getLink());
           continue;
 
         case ABSTRACT:
-          outFields.put(snacField, _item.getAbstract());
+          preview.put(snacField, _item.getAbstract());
           continue;
 
         case EXTENT:
-          outFields.put(snacField, _item.getExtent());
+          preview.put(snacField, _item.getExtent());
           continue;
 
         case DATE:
-          outFields.put(snacField, _item.getDate());
+          preview.put(snacField, _item.getDate());
           continue;
 
         case LANGUAGE_CODE:
-          List<String> langList = new ArrayList<>();
-
-          for (int i = 0; i < _item.getLanguages().size(); i++) {
-            Term lang = _item.getLanguages().get(i).getLanguage();
-
-            String langFull = "";
-
-            if (lang != null) {
-              String langCode = lang.getTerm();
-              String langDesc = lang.getDescription();
-
-              langFull = langCode;
-              if (!langDesc.equals("")) {
-                langFull += " (" + langDesc + ")";
-              }
-            }
-
-            Term script = _item.getLanguages().get(i).getScript();
-
-            String scriptFull = "";
-
-            if (script != null) {
-              String scriptCode = script.getTerm();
-              String scriptDesc = script.getDescription();
-
-              scriptFull = scriptCode;
-              if (!scriptDesc.equals("")) {
-                scriptFull += " (" + scriptDesc + ")";
-              }
-            }
-
-            if (langFull.equals("")) {
-              if (scriptFull.equals("")) {
-                // no language or script?  shouldn't happen
-              } else {
-                langList.add("Script: " + scriptFull);
-              }
-            } else {
-              if (scriptFull.equals("")) {
-                langList.add("Language: " + langFull);
-              } else {
-                langList.add("Language: " + langFull + " / Script: " + scriptFull);
-              }
-            }
-          }
-
-          if (langList.size() > 0) {
-            outFields.put(snacField, htmlOrderedList(langList));
-          }
-
+          putLanguagesPreview(preview, snacField, _item.getLanguages());
           continue;
 
         case HOLDING_REPOSITORY_ID:
@@ -308,9 +274,8 @@ public class SNACResourceItem extends SNACAbstractItem {
           if (_item.getRepository() != null) {
             int repo_id = _item.getRepository().getID();
             if (repo_id != 0) {
-              outFields.put(
-                  snacField,
-                  htmlLink(_client.urlForConstellationID(repo_id), Integer.toString(repo_id)));
+              preview.putLink(
+                  snacField, _client.urlForConstellationID(repo_id), Integer.toString(repo_id));
             }
           }
           continue;
@@ -318,31 +283,22 @@ public class SNACResourceItem extends SNACAbstractItem {
     }
 
     if (_item.getOperation().equals(AbstractData.OPERATION_UPDATE)) {
-      outFields.put(
+      preview.put(
           "*** Operation ***",
-          "Edit Resource with ID: "
-              + htmlLink(_client.urlForResourceID(_item.getID()), Integer.toString(_item.getID())));
+          SNACPreviewBuilder.appendLink(
+                  new StringBuilder("Edit Resource with ID: "),
+                  _client.urlForResourceID(_item.getID()),
+                  Integer.toString(_item.getID()))
+              .toString());
     } else {
-      outFields.put("*** Operation ***", "Insert new Resource");
+      preview.put("*** Operation ***", "Insert new Resource");
     }
 
     if (_errors.hasErrors()) {
-      outFields.put("Validation Errors", htmlOrderedList(_errors.getErrors()));
-    }
-
-    String preview = "";
-    // FIXME: output in predetermined order (not just alphabetical)?
-    for (String key : outFields.keySet()) {
-      String out = outFields.get(key);
-      if (out == null || out.equals("")) {
-        continue;
-      }
-      preview += htmlTableRow(htmlTableColumnField(key) + htmlTableColumnValue(out));
-      // logger.info(key + " => " + out);
+      preview.putList("Validation Errors", _errors.getErrors());
     }
-    preview = htmlTable(preview);
 
-    return preview;
+    return preview.build();
   }
 
   public String toJSON() {
@@ -353,16 +309,15 @@ public class SNACResourceItem extends SNACAbstractItem {
     logger.info("preparing to upload resource to SNAC...");
 
     // validate resource data before uploading
-    SNACAPIResponse validationError = performValidation();
+    SNACAPIResponse validationError = performValidationForUpload();
     if (validationError != null && !validationError.getResult().equals("success")) {
       return validationError;
     }
 
-    JSONObject req = new JSONObject();
-
-    req.put("command", "insert_resource");
-    req.put("apikey", _client.apiKey());
-    req.put("resource", new JSONObject(toJSON()));
+    SNACAPIRequest req =
+        new SNACAPIRequest("insert_resource")
+            .put("apikey", _client.apiKey())
+            .putJSON("resource", toJSON());
 
     SNACAPIResponse insertResponse = _client.post(req);
 
@@ -0,0 +1,128 @@
+package org.snaccooperative.openrefine.metrics;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.annotation.JsonPropertyOrder;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+@JsonPropertyOrder({"count", "total_ms", "mean_ms", "p50_ms", "p95_ms", "p99_ms", "max_ms"})
+public class SNACLatencyHistogram {
+
+  // Lock-free latency histogram with logarithmic buckets: four buckets per power
+  // of two microseconds, so reported percentiles are within about 20% of the
+  // true value, in fixed memory regardless of the number of samples.
+
+  private static final int SUB_BUCKET_BITS = 2;
+  private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+  private static final int BUCKETS = (64 - SUB_BUCKET_BITS) * SUB_BUCKETS;
+
+  private final AtomicLongArray _buckets;
+  private final LongAdder _count;
+  private final LongAdder _totalMicros;
+  private final AtomicLong _maxMicros;
+
+  public SNACLatencyHistogram() {
+    this._buckets = new AtomicLongArray(BUCKETS);
+    this._count = new LongAdder();
+    this._totalMicros = new LongAdder();
+    this._maxMicros = new AtomicLong();
+  }
+
+  private static int bucketFor(long micros) {
+    if (micros < SUB_BUCKETS) {
+      return (int) Math.max(0, micros);
+    }
+
+    int log = 63 - Long.numberOfLeadingZeros(micros);
+    int sub = (int) ((micros >>> (log - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1));
+
+    return ((log - SUB_BUCKET_BITS + 1) << SUB_BUCKET_BITS) + sub;
+  }
+
+  private static long upperBoundOf(int bucket) {
+    if (bucket < SUB_BUCKETS) {
+      return bucket;
+    }
+
+    int log = (bucket >> SUB_BUCKET_BITS) + SUB_BUCKET_BITS - 1;
+    int sub = bucket & (SUB_BUCKETS - 1);
+
+    return ((long) (SUB_BUCKETS + sub + 1) << (log - SUB_BUCKET_BITS)) - 1;
+  }
+
+  public void record(long nanos) {
+    long micros = TimeUnit.NANOSECONDS.toMicros(nanos);
+
+    _buckets.incrementAndGet(bucketFor(micros));
+    _count.increment();
+    _totalMicros.add(micros);
+    _maxMicros.accumulateAndGet(micros, Math::max);
+  }
+
+  private static double millis(long micros) {
+    return micros / 1000.0;
+  }
+
+  public double getPercentile(double p) {
+    long count = _count.sum();
+
+    if (count == 0) {
+      return 0;
+    }
+
+    long rank = (long) Math.ceil(p * count);
+    long seen = 0;
+
+    for (int i = 0; i < BUCKETS; i++) {
+      seen += _buckets.get(i);
+      if (seen >= rank) {
+        return millis(Math.min(upperBoundOf(i), _maxMicros.get()));
+      }
+    }
+
+    return millis(_maxMicros.get());
+  }
+
+  @JsonProperty("count")
+  public long getCount() {
+    return _count.sum();
+  }
+
+  @JsonProperty("total_ms")
+  public double getTotal() {
+    return millis(_totalMicros.sum());
+  }
+
+  @JsonProperty("mean_ms")
+  public double getMean() {
+    long count = _count.sum();
+
+    if (count == 0) {
+      return 0;
+    }
+
+    return millis(_totalMicros.sum() / count);
+  }
+
+  @JsonProperty("p50_ms")
+  public double getP50() {
+    return getPercentile(0.50);
+  }
+
+  @JsonProperty("p95_ms")
+  public double getP95() {
+    return getPercentile(0.95);
+  }
+
+  @JsonProperty("p99_ms")
+  public double getP99() {
+    return getPercentile(0.99);
+  }
+
+  @JsonProperty("max_ms")
+  public double getMax() {
+    return millis(_maxMicros.get());
+  }
+}
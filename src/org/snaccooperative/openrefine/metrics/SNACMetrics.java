@@ -0,0 +1,298 @@
+package org.snaccooperative.openrefine.metrics;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.annotation.JsonPropertyOrder;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+
+@JsonPropertyOrder({
+  "uptime_ms",
+  "requests",
+  "terms",
+  "existence",
+  "coalesced",
+  "evictions",
+  "sizes",
+  "previews",
+  "records"
+})
+public class SNACMetrics {
+
+  // Process-wide counters and latency histograms for SNAC API traffic, lookup
+  // caches and processed records, so that a slow validation or upload can be
+  // broken down into where its time goes.  Served by the "metrics" command, and
+  // included in the progress of running SNAC processes.
+
+  @JsonPropertyOrder({"count", "failures", "latency"})
+  public static class RequestStats {
+    private final LongAdder _count = new LongAdder();
+    private final LongAdder _failures = new LongAdder();
+    private final SNACLatencyHistogram _latency = new SNACLatencyHistogram();
+
+    @JsonProperty("count")
+    public long getCount() {
+      return _count.sum();
+    }
+
+    @JsonProperty("failures")
+    public long getFailures() {
+      return _failures.sum();
+    }
+
+    @JsonProperty("latency")
+    public SNACLatencyHistogram getLatency() {
+      return _latency;
+    }
+  }
+
+  @JsonPropertyOrder({"hits", "misses", "hit_ratio"})
+  public static class CacheStats {
+    private final LongAdder _hits = new LongAdder();
+    private final LongAdder _misses = new LongAdder();
+
+    @JsonProperty("hits")
+    public long getHits() {
+      return _hits.sum();
+    }
+
+    @JsonProperty("misses")
+    public long getMisses() {
+      return _misses.sum();
+    }
+
+    @JsonProperty("hit_ratio")
+    public double getHitRatio() {
+      long hits = _hits.sum();
+      long total = hits + _misses.sum();
+
+      if (total == 0) {
+        return 0;
+      }
+
+      return (double) hits / total;
+    }
+  }
+
+  @JsonPropertyOrder({"hits", "misses", "hit_ratio", "negative_hits", "not_found", "failures"})
+  public static class TermStats extends CacheStats {
+    private final LongAdder _negativeHits = new LongAdder();
+    private final LongAdder _notFound = new LongAdder();
+    private final LongAdder _failures = new LongAdder();
+
+    // hits answered by remembering that SNAC has no such term
+    @JsonProperty("negative_hits")
+    public long getNegativeHits() {
+      return _negativeHits.sum();
+    }
+
+    // lookups SNAC answered with no matching term
+    @JsonProperty("not_found")
+    public long getNotFound() {
+      return _notFound.sum();
+    }
+
+    // lookups that got no usable answer (error responses, transport failures)
+    @JsonProperty("failures")
+    public long getFailures() {
+      return _failures.sum();
+    }
+  }
+
+  @JsonPropertyOrder({"count", "latency"})
+  public static class RecordStats {
+    private final LongAdder _count = new LongAdder();
+    private final SNACLatencyHistogram _latency = new SNACLatencyHistogram();
+
+    @JsonProperty("count")
+    public long getCount() {
+      return _count.sum();
+    }
+
+    @JsonProperty("latency")
+    public SNACLatencyHistogram getLatency() {
+      return _latency;
+    }
+  }
+
+  private static final SNACMetrics instance = new SNACMetrics();
+
+  public static SNACMetrics getInstance() {
+    return instance;
+  }
+
+  private long _started;
+
+  // api command => requests
+  private ConcurrentMap<String, RequestStats> _requests;
+
+  // term type => term cache lookups
+  private ConcurrentMap<String, TermStats> _terms;
+
+  // "constellation"/"resource" => existence checks (hits are answered from cache)
+  private ConcurrentMap<String, CacheStats> _existence;
+
+  // lookup name => requests avoided by sharing an identical in-flight lookup
+  private ConcurrentMap<String, LongAdder> _coalesced;
+
+  // bounded cache name => entries evicted to make room
+  private ConcurrentMap<String, LongAdder> _evictions;
+
+  // bounded cache name => entries held, as last reported by the cache
+  private ConcurrentMap<String, Long> _sizes;
+
+  // "page"/"record" => preview cache lookups
+  private ConcurrentMap<String, CacheStats> _previews;
+
+  // "validation"/"upload" => processed records
+  private ConcurrentMap<String, RecordStats> _records;
+
+  private SNACMetrics() {
+    reset();
+  }
+
+  public synchronized void reset() {
+    _started = System.currentTimeMillis();
+    _requests = new ConcurrentHashMap<String, RequestStats>();
+    _terms = new ConcurrentHashMap<String, TermStats>();
+    _existence = new ConcurrentHashMap<String, CacheStats>();
+    _coalesced = new ConcurrentHashMap<String, LongAdder>();
+    _evictions = new ConcurrentHashMap<String, LongAdder>();
+    _sizes = new ConcurrentHashMap<String, Long>();
+    _previews = new ConcurrentHashMap<String, CacheStats>();
+    _records = new ConcurrentHashMap<String, RecordStats>();
+  }
+
+  public void recordRequest(String command, long nanos, Boolean success) {
+    RequestStats stats = _requests.computeIfAbsent(command, c -> new RequestStats());
+
+    stats._count.increment();
+    stats._latency.record(nanos);
+    if (!success) {
+      stats._failures.increment();
+    }
+  }
+
+  public void recordTermLookup(String type, Boolean hit) {
+    CacheStats stats = _terms.computeIfAbsent(type, t -> new TermStats());
+
+    if (hit) {
+      stats._hits.increment();
+    } else {
+      stats._misses.increment();
+    }
+  }
+
+  public void recordTermNegativeHit(String type) {
+    recordTermLookup(type, true);
+    _terms.computeIfAbsent(type, t -> new TermStats())._negativeHits.increment();
+  }
+
+  public void recordTermNotFound(String type) {
+    _terms.computeIfAbsent(type, t -> new TermStats())._notFound.increment();
+  }
+
+  public void recordTermFailure(String type) {
+    _terms.computeIfAbsent(type, t -> new TermStats())._failures.increment();
+  }
+
+  public void recordExistenceCheck(String type, Boolean hit) {
+    CacheStats stats = _existence.computeIfAbsent(type, t -> new CacheStats());
+
+    if (hit) {
+      stats._hits.increment();
+    } else {
+      stats._misses.increment();
+    }
+  }
+
+  public void recordPreviewLookup(String level, Boolean hit) {
+    CacheStats stats = _previews.computeIfAbsent(level, l -> new CacheStats());
+
+    if (hit) {
+      stats._hits.increment();
+    } else {
+      stats._misses.increment();
+    }
+  }
+
+  public void recordCoalesced(String lookup) {
+    _coalesced.computeIfAbsent(lookup, l -> new LongAdder()).increment();
+  }
+
+  public void recordEviction(String cache) {
+    recordEvictions(cache, 1);
+  }
+
+  public void recordEvictions(String cache, long count) {
+    _evictions.computeIfAbsent(cache, c -> new LongAdder()).add(count);
+  }
+
+  public void recordSize(String cache, long size) {
+    _sizes.put(cache, size);
+  }
+
+  public void recordRecord(String operation, long nanos) {
+    RecordStats stats = _records.computeIfAbsent(operation, o -> new RecordStats());
+
+    stats._count.increment();
+    stats._latency.record(nanos);
+  }
+
+  private static Map<String, Long> sums(Map<String, LongAdder> counters) {
+    Map<String, Long> sums = new TreeMap<String, Long>();
+
+    for (Map.Entry<String, LongAdder> entry : counters.entrySet()) {
+      sums.put(entry.getKey(), entry.getValue().sum());
+    }
+
+    return sums;
+  }
+
+  @JsonProperty("uptime_ms")
+  public long getUptime() {
+    return System.currentTimeMillis() - _started;
+  }
+
+  @JsonProperty("requests")
+  public Map<String, RequestStats> getRequests() {
+    return new TreeMap<String, RequestStats>(_requests);
+  }
+
+  @JsonProperty("terms")
+  public Map<String, TermStats> getTerms() {
+    return new TreeMap<String, TermStats>(_terms);
+  }
+
+  @JsonProperty("existence")
+  public Map<String, CacheStats> getExistence() {
+    return new TreeMap<String, CacheStats>(_existence);
+  }
+
+  @JsonProperty("coalesced")
+  public Map<String, Long> getCoalesced() {
+    return sums(_coalesced);
+  }
+
+  @JsonProperty("evictions")
+  public Map<String, Long> getEvictions() {
+    return sums(_evictions);
+  }
+
+  @JsonProperty("sizes")
+  public Map<String, Long> getSizes() {
+    return new TreeMap<String, Long>(_sizes);
+  }
+
+  @JsonProperty("previews")
+  public Map<String, CacheStats> getPreviews() {
+    return new TreeMap<String, CacheStats>(_previews);
+  }
+
+  @JsonProperty("records")
+  public Map<String, RecordStats> getRecords() {
+    return new TreeMap<String, RecordStats>(_records);
+  }
+}
@@ -0,0 +1,64 @@
+package org.snaccooperative.openrefine.metrics;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.annotation.JsonPropertyOrder;
+import java.util.concurrent.atomic.AtomicInteger;
+
+@JsonPropertyOrder({"total", "done", "elapsed_ms", "records_per_second", "snac"})
+public class SNACProcessMetrics {
+
+  // Progress of one validation or upload process, reported alongside its
+  // progress percentage, together with the process-wide SNAC metrics.
+
+  private final String _operation;
+  private final long _started;
+  private volatile int _total;
+  private final AtomicInteger _done;
+
+  public SNACProcessMetrics(String operation) {
+    this._operation = operation;
+    this._started = System.nanoTime();
+    this._total = 0;
+    this._done = new AtomicInteger();
+  }
+
+  public void setTotal(int total) {
+    _total = total;
+  }
+
+  public void recordDone(long nanos) {
+    _done.incrementAndGet();
+    SNACMetrics.getInstance().recordRecord(_operation, nanos);
+  }
+
+  @JsonProperty("total")
+  public int getTotal() {
+    return _total;
+  }
+
+  @JsonProperty("done")
+  public int getDone() {
+    return _done.get();
+  }
+
+  @JsonProperty("elapsed_ms")
+  public long getElapsed() {
+    return (System.nanoTime() - _started) / 1000000;
+  }
+
+  @JsonProperty("records_per_second")
+  public double getRecordsPerSecond() {
+    long elapsed = getElapsed();
+
+    if (elapsed <= 0) {
+      return 0;
+    }
+
+    return _done.get() * 1000.0 / elapsed;
+  }
+
+  @JsonProperty("snac")
+  public SNACMetrics getMetrics() {
+    return SNACMetrics.getInstance();
+  }
+}
@@ -3,6 +3,7 @@ package org.snaccooperative.openrefine.model;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
+import java.util.Locale;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -44,6 +45,8 @@ public class SNACAbstractModel<E extends Enum<E> & SNACModelFieldType> {
   private ModelType _type;
   private List<SNACModelField<E>> _fieldList;
   private HashMap<E, SNACModelField<E>> _fieldMap;
+  // lowercased current and previous field names => field type
+  private HashMap<String, E> _nameMap;
   private E _defaultFieldType;
 
   public SNACAbstractModel(ModelType type, E defaultFieldType) {
@@ -52,11 +55,23 @@ public class SNACAbstractModel<E extends Enum<E> & SNACModelFieldType> {
 
     this._fieldList = new ArrayList<SNACModelField<E>>();
     this._fieldMap = new HashMap<E, SNACModelField<E>>();
+    this._nameMap = new HashMap<String, E>();
   }
 
   protected void addField(SNACModelField<E> field) {
     _fieldList.add(field);
     _fieldMap.put(field.getFieldType(), field);
+
+    // a current name always takes precedence over another field's previous name
+    _nameMap.put(normalizeName(field.getName()), field.getFieldType());
+
+    for (String previousName : field.getPreviousNames()) {
+      _nameMap.putIfAbsent(normalizeName(previousName), field.getFieldType());
+    }
+  }
+
+  private static String normalizeName(String s) {
+    return s.toLowerCase(Locale.ROOT);
   }
 
   public ModelType getType() {
@@ -85,13 +100,13 @@ public class SNACAbstractModel<E extends Enum<E> & SNACModelFieldType> {
       return _defaultFieldType;
     }
 
-    for (E fieldType : _fieldMap.keySet()) {
-      if (isNameForFieldType(fieldType, s)) {
-        return fieldType;
-      }
+    E fieldType = _nameMap.get(normalizeName(s));
+
+    if (fieldType == null) {
+      return _defaultFieldType;
     }
 
-    return _defaultFieldType;
+    return fieldType;
   }
 
   public SNACModelField<E> getModelField(E fieldType) {
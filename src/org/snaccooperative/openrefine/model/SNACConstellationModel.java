@@ -4,6 +4,7 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.snaccooperative.openrefine.cache.SNACLookupCache.TermType;
 import org.snaccooperative.openrefine.model.SNACModelField.FieldOccurence;
 import org.snaccooperative.openrefine.model.SNACModelField.FieldRequirement;
 import org.snaccooperative.openrefine.model.SNACModelField.FieldVocabulary;
@@ -70,6 +71,7 @@ public class SNACConstellationModel
                                 ConstellationFieldType.CPF_ID, FieldRelationType.OPTIONAL)))))
             .withSampleValues(
                 new ArrayList<String>(Arrays.asList("corporateBody", "person", "family")))
+            .withTermType(TermType.ENTITY_TYPE)
             .build());
 
     addField(
@@ -86,6 +88,7 @@ public class SNACConstellationModel
                         Arrays.asList(
                             new SNACModelFieldRelation<ConstellationFieldType>(
                                 ConstellationFieldType.CPF_TYPE, FieldRelationType.REQUIRED)))))
+            .withIdentifierType(ModelType.CONSTELLATION)
             .build());
 
     addField(
@@ -140,6 +143,7 @@ public class SNACConstellationModel
             .withSampleValues(
                 new ArrayList<String>(
                     Arrays.asList("Active", "Birth", "Death", "Establishment", "Disestablishment")))
+            .withTermType(TermType.DATE_TYPE)
             .build());
 
     addField(
@@ -164,6 +168,7 @@ public class SNACConstellationModel
                 FieldOccurence.MULTIPLE,
                 FieldVocabulary.CONTROLLED,
                 "Subject term associated with the CPF entity.")
+            .withTermType(TermType.SUBJECT)
             .build());
 
     addField(
@@ -199,6 +204,7 @@ public class SNACConstellationModel
             .withSampleValues(
                 new ArrayList<String>(
                     Arrays.asList("Birth", "Death", "Residence", "Citizenship", "Work")))
+            .withTermType(TermType.PLACE_ROLE)
             .build());
 
     addField(
@@ -216,6 +222,7 @@ public class SNACConstellationModel
                                 ConstellationFieldType.PLACE, FieldRelationType.REQUIRED)))))
             .withSampleValues(new ArrayList<String>(Arrays.asList("AssociatedPlace", "Address")))
             .withDefaultValue("AssociatedPlace")
+            .withTermType(TermType.PLACE_TYPE)
             .build());
 
     addField(
@@ -225,6 +232,7 @@ public class SNACConstellationModel
                 FieldOccurence.MULTIPLE,
                 FieldVocabulary.CONTROLLED,
                 "Occupation term associated with the CPF entity.")
+            .withTermType(TermType.OCCUPATION)
             .build());
 
     addField(
@@ -234,6 +242,7 @@ public class SNACConstellationModel
                 FieldOccurence.MULTIPLE,
                 FieldVocabulary.CONTROLLED,
                 "Activity term associated with the CPF entity.")
+            .withTermType(TermType.ACTIVITY)
             .build());
 
     addField(
@@ -250,6 +259,7 @@ public class SNACConstellationModel
                             new SNACModelFieldRelation<ConstellationFieldType>(
                                 ConstellationFieldType.SCRIPT_CODE, FieldRelationType.OPTIONAL)))))
             .withSampleValues(new ArrayList<String>(Arrays.asList("eng", "ger", "jpn")))
+            .withTermType(TermType.LANGUAGE_CODE)
             .build());
 
     addField(
@@ -267,6 +277,7 @@ public class SNACConstellationModel
                                 ConstellationFieldType.LANGUAGE_CODE,
                                 FieldRelationType.OPTIONAL)))))
             .withSampleValues(new ArrayList<String>(Arrays.asList("Latn", "Cyrl", "Grek")))
+            .withTermType(TermType.SCRIPT_CODE)
             .build());
 
     addField(
@@ -7,6 +7,8 @@ import java.util.ArrayList;
 import java.util.List;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.snaccooperative.openrefine.cache.SNACLookupCache.TermType;
+import org.snaccooperative.openrefine.model.SNACAbstractModel.ModelType;
 
 @JsonPropertyOrder({
   "name",
@@ -92,6 +94,8 @@ public class SNACModelField<E extends Enum<E> & SNACModelFieldType> {
   private final List<String> _sampleValues;
   private final String _defaultValue;
   private final String _tooltip;
+  private final TermType _termType;
+  private final ModelType _identifierType;
   private final SNACModelFieldRelations<E> _dependencies;
   private final SNACModelFieldRelations<E> _dependents;
 
@@ -104,6 +108,8 @@ public class SNACModelField<E extends Enum<E> & SNACModelFieldType> {
     _previousNames = builder._previousNames;
     _sampleValues = builder._sampleValues;
     _defaultValue = builder._defaultValue;
+    _termType = builder._termType;
+    _identifierType = builder._identifierType;
     _dependencies = builder._dependencies;
     _dependents = builder._dependents;
   }
@@ -119,6 +125,8 @@ public class SNACModelField<E extends Enum<E> & SNACModelFieldType> {
     private List<String> _previousNames = new ArrayList<String>();
     private List<String> _sampleValues = new ArrayList<String>();
     private String _defaultValue = "";
+    private TermType _termType = TermType.NONE;
+    private ModelType _identifierType = ModelType.NONE;
     private SNACModelFieldRelations<E> _dependencies = new SNACModelFieldRelations<E>();
     private SNACModelFieldRelations<E> _dependents = new SNACModelFieldRelations<E>();
 
@@ -161,6 +169,20 @@ public class SNACModelField<E extends Enum<E> & SNACModelFieldType> {
       return this;
     }
 
+    public Builder<E> withTermType(TermType termType) {
+      if (termType != null) {
+        this._termType = termType;
+      }
+      return this;
+    }
+
+    public Builder<E> withIdentifierType(ModelType identifierType) {
+      if (identifierType != null) {
+        this._identifierType = identifierType;
+      }
+      return this;
+    }
+
     public Builder<E> withDependencies(SNACModelFieldRelations<E> dependencies) {
       if (dependencies != null) {
         this._dependencies = dependencies;
@@ -230,6 +252,21 @@ public class SNACModelField<E extends Enum<E> & SNACModelFieldType> {
     return _vocabulary;
   }
 
+  @JsonIgnore
+  public List<String> getPreviousNames() {
+    return _previousNames;
+  }
+
+  @JsonIgnore
+  public TermType getTermType() {
+    return _termType;
+  }
+
+  @JsonIgnore
+  public ModelType getIdentifierType() {
+    return _identifierType;
+  }
+
   @JsonProperty("dependencies")
   public List<SNACModelFieldRelation<E>> getDependencies() {
     return _dependencies.getRelations();
@@ -4,6 +4,7 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.snaccooperative.openrefine.cache.SNACLookupCache.TermType;
 import org.snaccooperative.openrefine.model.SNACModelField.FieldOccurence;
 import org.snaccooperative.openrefine.model.SNACModelField.FieldRequirement;
 import org.snaccooperative.openrefine.model.SNACModelField.FieldVocabulary;
@@ -55,6 +56,7 @@ public class SNACRelationModel extends SNACAbstractModel<SNACRelationModel.Relat
                                 RelationFieldType.CPF_ID, FieldRelationType.OPTIONAL)))))
             .withSampleValues(
                 new ArrayList<String>(Arrays.asList("corporateBody", "person", "family")))
+            .withTermType(TermType.ENTITY_TYPE)
             .build());
 
     addField(
@@ -71,6 +73,7 @@ public class SNACRelationModel extends SNACAbstractModel<SNACRelationModel.Relat
                         Arrays.asList(
                             new SNACModelFieldRelation<RelationFieldType>(
                                 RelationFieldType.CPF_TYPE, FieldRelationType.REQUIRED)))))
+            .withIdentifierType(ModelType.CONSTELLATION)
             .build());
 
     addField(
@@ -88,6 +91,7 @@ public class SNACRelationModel extends SNACAbstractModel<SNACRelationModel.Relat
                                 RelationFieldType.RELATED_CPF_ID, FieldRelationType.REQUIRED)))))
             .withSampleValues(
                 new ArrayList<String>(Arrays.asList("associatedWith", "correspondedWith")))
+            .withTermType(TermType.RELATION_TYPE)
             .build());
 
     addField(
@@ -105,6 +109,7 @@ public class SNACRelationModel extends SNACAbstractModel<SNACRelationModel.Relat
                             new SNACModelFieldRelation<RelationFieldType>(
                                 RelationFieldType.CPF_TO_CPF_RELATION_TYPE,
                                 FieldRelationType.REQUIRED)))))
+            .withIdentifierType(ModelType.CONSTELLATION)
             .build());
 
     addField(
@@ -124,6 +129,7 @@ public class SNACRelationModel extends SNACAbstractModel<SNACRelationModel.Relat
             .withSampleValues(
                 new ArrayList<String>(
                     Arrays.asList("contributorOf", "creatorOf", "editorOf", "referencedIn")))
+            .withTermType(TermType.DOCUMENT_ROLE)
             .build());
 
     addField(
@@ -141,6 +147,7 @@ public class SNACRelationModel extends SNACAbstractModel<SNACRelationModel.Relat
                             new SNACModelFieldRelation<RelationFieldType>(
                                 RelationFieldType.CPF_TO_RESOURCE_RELATION_TYPE,
                                 FieldRelationType.REQUIRED)))))
+            .withIdentifierType(ModelType.RESOURCE)
             .build());
   }
 }
@@ -4,6 +4,7 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.snaccooperative.openrefine.cache.SNACLookupCache.TermType;
 import org.snaccooperative.openrefine.model.SNACModelField.FieldOccurence;
 import org.snaccooperative.openrefine.model.SNACModelField.FieldRequirement;
 import org.snaccooperative.openrefine.model.SNACModelField.FieldVocabulary;
@@ -58,6 +59,7 @@ public class SNACResourceModel extends SNACAbstractModel<SNACResourceModel.Resou
                         "BibliographicResource",
                         "DigitalArchivalResource",
                         "OralHistoryResource")))
+            .withTermType(TermType.DOCUMENT_TYPE)
             .build());
 
     addField(
@@ -68,6 +70,7 @@ public class SNACResourceModel extends SNACAbstractModel<SNACResourceModel.Resou
                 FieldVocabulary.IDENTIFIER,
                 "SNAC identifier for Resource Description.  Leave blank if Resource Description is NOT in SNAC.")
             .withPreviousNames(new ArrayList<String>(Arrays.asList("SNAC Resource ID")))
+            .withIdentifierType(ModelType.RESOURCE)
             .build());
 
     addField(
@@ -96,6 +99,7 @@ public class SNACResourceModel extends SNACAbstractModel<SNACResourceModel.Resou
                 FieldVocabulary.IDENTIFIER,
                 "SNAC identifier for the holding repository description.  The holding repository must be created in SNAC before adding Resource Descriptions.")
             .withPreviousNames(new ArrayList<String>(Arrays.asList("Holding Repository SNAC ID")))
+            .withIdentifierType(ModelType.CONSTELLATION)
             .build());
 
     addField(
@@ -139,6 +143,7 @@ public class SNACResourceModel extends SNACAbstractModel<SNACResourceModel.Resou
                             new SNACModelFieldRelation<ResourceFieldType>(
                                 ResourceFieldType.SCRIPT_CODE, FieldRelationType.OPTIONAL)))))
             .withSampleValues(new ArrayList<String>(Arrays.asList("eng", "ger", "jpn")))
+            .withTermType(TermType.LANGUAGE_CODE)
             .build());
 
     addField(
@@ -155,6 +160,7 @@ public class SNACResourceModel extends SNACAbstractModel<SNACResourceModel.Resou
                             new SNACModelFieldRelation<ResourceFieldType>(
                                 ResourceFieldType.LANGUAGE_CODE, FieldRelationType.OPTIONAL)))))
             .withSampleValues(new ArrayList<String>(Arrays.asList("Latn", "Cyrl", "Grek")))
+            .withTermType(TermType.SCRIPT_CODE)
             .build());
   }
 }
@@ -0,0 +1,127 @@
+package org.snaccooperative.openrefine.operations;
+
+import com.google.refine.browsing.Engine;
+import com.google.refine.model.Project;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
+import java.util.function.IntConsumer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.snaccooperative.openrefine.exporters.SNACAbstractItem;
+import org.snaccooperative.openrefine.schema.SNACItemVisitor;
+import org.snaccooperative.openrefine.schema.SNACSchema;
+
+public class SNACItemWorkers {
+
+  // Runs a task (e.g. validation or upload) on every item of a schema across a
+  // fixed number of workers.  Items are built on the calling thread as the
+  // records are visited, and at most a small window of them is built ahead of
+  // the workers, so that items are only built as fast as they are processed.
+  // A checkpoint (e.g. applying a chunk of results to the project) runs on the
+  // calling thread, between one record's item and the next and while waiting
+  // for the workers.  The records are still being iterated at that point, so a
+  // checkpoint must not change the record model: see SNACResultColumns.
+
+  static final Logger logger = LoggerFactory.getLogger(SNACItemWorkers.class);
+
+  private final String _name;
+  private final int _workers;
+
+  public SNACItemWorkers(String name, int workers) {
+    this._name = name;
+    this._workers = Math.max(1, workers);
+  }
+
+  public void run(
+      SNACSchema schema,
+      Project project,
+      Engine engine,
+      IntConsumer onStart,
+      Consumer<SNACAbstractItem> task,
+      Runnable checkpoint,
+      BooleanSupplier canceled) {
+    logger.info(_name + ": processing items using " + _workers + " workers");
+
+    ExecutorService executor = Executors.newFixedThreadPool(_workers);
+
+    Semaphore window = new Semaphore(_workers * 2);
+
+    schema.visitItems(
+        project,
+        engine,
+        0,
+        true,
+        new SNACItemVisitor() {
+          @Override
+          public void start(int records) {
+            onStart.accept(records);
+          }
+
+          @Override
+          public boolean visit(SNACAbstractItem item) {
+            try {
+              window.acquire();
+            } catch (InterruptedException e) {
+              // LongRunningProcess.cancel() interrupts this thread
+              return true;
+            }
+
+            checkpoint.run();
+
+            if (canceled.getAsBoolean()) {
+              window.release();
+              return true;
+            }
+
+            executor.execute(
+                () -> {
+                  try {
+                    task.accept(item);
+                  } catch (RuntimeException e) {
+                    // tasks record their own failures; this only keeps one that
+                    // escapes from disappearing along with the worker thread
+                    logger.error(
+                        _name + ": unhandled failure at row " + item.rowIndex() + ": [" + e + "]");
+                  } finally {
+                    window.release();
+                  }
+                });
+
+            return false;
+          }
+        });
+
+    executor.shutdown();
+
+    try {
+      while (!executor.awaitTermination(1, TimeUnit.SECONDS)) {
+        checkpoint.run();
+
+        if (canceled.getAsBoolean()) {
+          break;
+        }
+      }
+    } catch (InterruptedException e) {
+      // LongRunningProcess.cancel() interrupts this thread
+      logger.info(_name + ": interrupted");
+    }
+
+    if (canceled.getAsBoolean()) {
+      // discard any queued items, but let in-flight ones finish so that
+      // their results are not lost (http requests are not interruptible anyway)
+      logger.info(_name + ": canceled; waiting for in-flight items to finish");
+
+      executor.shutdownNow();
+
+      try {
+        executor.awaitTermination(10, TimeUnit.MINUTES);
+      } catch (InterruptedException e) {
+        logger.warn(_name + ": gave up waiting for in-flight items to finish");
+      }
+    }
+  }
+}
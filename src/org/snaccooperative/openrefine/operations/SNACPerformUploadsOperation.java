@@ -4,22 +4,23 @@ import com.fasterxml.jackson.annotation.JsonCreator;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import com.google.refine.browsing.Engine;
 import com.google.refine.browsing.EngineConfig;
-import com.google.refine.history.HistoryEntry;
-import com.google.refine.model.Cell;
 import com.google.refine.model.Project;
-import com.google.refine.model.changes.CellAtRow;
-import com.google.refine.model.changes.ColumnAdditionChange;
 import com.google.refine.operations.EngineDependentOperation;
 import com.google.refine.process.LongRunningProcess;
 import com.google.refine.process.Process;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Properties;
+import java.util.concurrent.atomic.AtomicInteger;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.snaccooperative.openrefine.api.SNACAPIResponse;
 import org.snaccooperative.openrefine.exporters.SNACAbstractItem;
+import org.snaccooperative.openrefine.metrics.SNACProcessMetrics;
 import org.snaccooperative.openrefine.preferences.SNACPreferencesManager;
+import org.snaccooperative.openrefine.schema.SNACItemVisitor;
 import org.snaccooperative.openrefine.schema.SNACSchema;
 
 public class SNACPerformUploadsOperation extends EngineDependentOperation {
@@ -28,15 +29,33 @@ public class SNACPerformUploadsOperation extends EngineDependentOperation {
 
   protected SNACPreferencesManager _prefsManager;
 
+  // when resuming, rows already uploaded successfully (per the upload journal) are skipped
+  private Boolean _resume;
+
+  public SNACPerformUploadsOperation(EngineConfig engineConfig) {
+    this(engineConfig, false);
+  }
+
   @JsonCreator
-  public SNACPerformUploadsOperation(@JsonProperty("engineConfig") EngineConfig engineConfig) {
+  public SNACPerformUploadsOperation(
+      @JsonProperty("engineConfig") EngineConfig engineConfig,
+      @JsonProperty("resume") Boolean resume) {
     super(engineConfig);
 
     _prefsManager = SNACPreferencesManager.getInstance();
+    _resume = (resume != null && resume);
+  }
+
+  @JsonProperty("resume")
+  public Boolean getResume() {
+    return _resume;
   }
 
   @Override
   protected String getBriefDescription(Project project) {
+    if (_resume) {
+      return "Resume upload of data to SNAC " + _prefsManager.getName();
+    }
     return "Upload data to SNAC " + _prefsManager.getName();
   }
 
@@ -54,11 +73,26 @@ public class SNACPerformUploadsOperation extends EngineDependentOperation {
     private Engine _engine;
     private SNACSchema _schema;
 
+    private final AtomicInteger _completed = new AtomicInteger();
+    private volatile int _total = -1;
+
+    private Boolean _includeAPIResponseColumn;
+    private SNACResultColumns _results;
+    private SNACUploadJournal _journal;
+    private Map<Integer, SNACUploadJournal.Entry> _committed;
+    private SNACProcessMetrics _metrics;
+
     public SNACPerformUploadsProcess(Project project, Engine engine, String description) {
       super(description);
       this._project = project;
       this._engine = engine;
       this._schema = (SNACSchema) project.overlayModels.get("snacSchema");
+      this._metrics = new SNACProcessMetrics("upload");
+    }
+
+    @JsonProperty("snac_metrics")
+    public SNACProcessMetrics getMetrics() {
+      return _metrics;
     }
 
     @Override
@@ -68,114 +102,207 @@ public class SNACPerformUploadsOperation extends EngineDependentOperation {
 
     @Override
     public void run() {
-      List<SNACAbstractItem> items = _schema.evaluateRecords(_project, _engine);
-
-      List<CellAtRow> results = new ArrayList<CellAtRow>(items.size());
-      List<CellAtRow> messages = new ArrayList<CellAtRow>(items.size());
-      List<CellAtRow> ids = new ArrayList<CellAtRow>(items.size());
-      List<CellAtRow> links = new ArrayList<CellAtRow>(items.size());
-      List<CellAtRow> responses = new ArrayList<CellAtRow>(items.size());
+      // items are built and uploaded one at a time (or a small window at a time,
+      // when uploading concurrently) rather than all being built up front
 
       SNACPreferencesManager prefsManager = SNACPreferencesManager.getInstance();
 
-      Boolean includeAPIResponseColumn = prefsManager.includeAPIResponse();
+      _includeAPIResponseColumn = prefsManager.includeAPIResponse();
 
-      for (int i = 0; i < items.size(); i++) {
-        SNACAbstractItem item = items.get(i);
-        int row = item.rowIndex();
+      // results are added to the project in chunks as uploads complete, so that they
+      // can be inspected while a long upload is still running
 
-        SNACAPIResponse uploadResponse = item.performUpload();
-        if (uploadResponse == null) {
-          uploadResponse = new SNACAPIResponse("unknown");
-        }
+      String snacPrefix = "*SNAC " + prefsManager.getName() + "*: ";
+
+      List<String> columnNames = new ArrayList<String>();
+      columnNames.add(snacPrefix + "Result");
+      columnNames.add(snacPrefix + "Message");
+      columnNames.add(snacPrefix + "ID");
+      columnNames.add(snacPrefix + "Link");
+      if (_includeAPIResponseColumn) {
+        columnNames.add(snacPrefix + "API Response");
+      }
 
-        logger.info(
-            "["
-                + (i + 1)
-                + "/"
-                + items.size()
-                + "] upload result: ["
-                + uploadResponse.getResult()
-                + "]");
-
-        results.add(new CellAtRow(row, new Cell(uploadResponse.getResult(), null)));
-        messages.add(new CellAtRow(row, new Cell(uploadResponse.getMessage(), null)));
-        ids.add(new CellAtRow(row, new Cell(uploadResponse.getIDString(), null)));
-        links.add(new CellAtRow(row, new Cell(uploadResponse.getURI(), null)));
-        if (includeAPIResponseColumn) {
-          String apiResponse = uploadResponse.getAPIResponse();
-          // attempt to filter out mocked API responses
-          if (apiResponse.equals(uploadResponse.getMessage())) {
-            apiResponse = "";
+      _results =
+          new SNACResultColumns(
+              _project,
+              SNACPerformUploadsOperation.this,
+              "SNAC Upload",
+              columnNames,
+              prefsManager.getResultsCommitRecords(),
+              prefsManager.getResultsCommitInterval());
+
+      // results are journaled as they arrive; when resuming, rows that the journal
+      // shows were already uploaded successfully are not uploaded again
+
+      _journal = SNACUploadJournal.getInstance(_project, prefsManager.getEnvironment().getKey());
+      _committed = new HashMap<Integer, SNACUploadJournal.Entry>();
+
+      if (_journal != null) {
+        if (_resume) {
+          for (SNACUploadJournal.Entry entry : _journal.load().values()) {
+            if (entry.isCommitted()) {
+              _committed.put(entry.getRow(), entry);
+            }
           }
-          responses.add(new CellAtRow(row, new Cell(apiResponse, null)));
+          logger.info("resuming upload; " + _committed.size() + " rows already uploaded");
         }
+        _journal.open(_resume);
+      }
 
-        _progress = i * 100 / items.size();
+      int workers = prefsManager.getUploadWorkers();
+
+      if (workers > 1) {
+        new SNACItemWorkers("upload", workers)
+            .run(
+                _schema,
+                _project,
+                _engine,
+                this::start,
+                this::performUpload,
+                _results::commitIfDue,
+                () -> _canceled);
+      } else {
+        _schema.visitItems(
+            _project,
+            _engine,
+            0,
+            true,
+            new SNACItemVisitor() {
+              @Override
+              public void start(int records) {
+                SNACPerformUploadsProcess.this.start(records);
+              }
+
+              @Override
+              public boolean visit(SNACAbstractItem item) {
+                performUpload(item);
+                _results.commitIfDue();
+                return _canceled;
+              }
+            });
+      }
 
-        if (_canceled) {
-          break;
-        }
+      if (_journal != null) {
+        _journal.close();
       }
 
+      // results of completed uploads are kept even if the upload was canceled
+      _results.commit();
+
       _progress = 100;
 
       if (!_canceled) {
-        String snacPrefix = "*SNAC " + prefsManager.getName() + "*: ";
-        String resultColumn = snacPrefix + "Result";
-        String messageColumn = snacPrefix + "Message";
-        String idColumn = snacPrefix + "ID";
-        String uriColumn = snacPrefix + "Link";
-        String responseColumn = snacPrefix + "API Response";
-
-        int i = 0;
-        boolean found = false;
-        String postfix = "";
-
-        while (!found) {
-          i++;
-          if (i == 1) {
-            postfix = "";
-          } else {
-            postfix = " " + i;
-          }
+        _project.processManager.onDoneProcess(this);
+      }
+    }
 
-          if ((_project.columnModel.getColumnByName(resultColumn + postfix) == null)
-              && (_project.columnModel.getColumnByName(messageColumn + postfix) == null)
-              && (_project.columnModel.getColumnByName(idColumn + postfix) == null)
-              && (_project.columnModel.getColumnByName(uriColumn + postfix) == null)
-              && (_project.columnModel.getColumnByName(responseColumn + postfix) == null)) {
-            found = true;
-            resultColumn = resultColumn + postfix;
-            messageColumn = messageColumn + postfix;
-            idColumn = idColumn + postfix;
-            uriColumn = uriColumn + postfix;
-            responseColumn = responseColumn + postfix;
-          }
+    private void addResult(int row, SNACAPIResponse uploadResponse) {
+      if (_includeAPIResponseColumn) {
+        String apiResponse = uploadResponse.getAPIResponse();
+        // attempt to filter out mocked API responses
+        if (apiResponse.equals(uploadResponse.getMessage())) {
+          apiResponse = "";
         }
 
-        addHistoryEntry(resultColumn, results);
-        addHistoryEntry(messageColumn, messages);
-        addHistoryEntry(idColumn, ids);
-        addHistoryEntry(uriColumn, links);
-        if (includeAPIResponseColumn) {
-          addHistoryEntry(responseColumn, responses);
-        }
+        _results.add(
+            row,
+            uploadResponse.getResult(),
+            uploadResponse.getMessage(),
+            uploadResponse.getIDString(),
+            uploadResponse.getURI(),
+            apiResponse);
+      } else {
+        _results.add(
+            row,
+            uploadResponse.getResult(),
+            uploadResponse.getMessage(),
+            uploadResponse.getIDString(),
+            uploadResponse.getURI());
+      }
+    }
 
-        _project.processManager.onDoneProcess(this);
+    private void start(int records) {
+      // -1 when no lookups were prefetched, as only that pass counts the records
+      _total = records;
+      _metrics.setTotal(Math.max(0, records));
+    }
+
+    private void performUpload(SNACAbstractItem item) {
+      int row = item.rowIndex();
+      String hash = item.contentHash();
+
+      SNACUploadJournal.Entry committed = _committed.get(row);
+
+      // only skip rows whose content is unchanged since they were uploaded
+      if (committed != null && committed.getHash().equals(hash)) {
+        int done = _completed.incrementAndGet();
+
+        logger.info("[" + done + "/" + totalLabel() + "] already uploaded; skipping row " + row);
+
+        updateProgress(done, row);
+
+        addResult(row, committed.toResponse());
+        return;
+      }
+
+      long start = System.nanoTime();
+
+      SNACAPIResponse uploadResponse;
+
+      try {
+        uploadResponse = item.performUpload();
+      } catch (RuntimeException e) {
+        // record the failure against this row rather than losing it in a worker
+        logger.warn("upload of row " + row + " failed: [" + e + "]");
+        uploadResponse = new SNACAPIResponse("exception", e.toString(), 0, 0, "");
+      }
+
+      if (uploadResponse == null) {
+        uploadResponse = new SNACAPIResponse("unknown");
       }
+
+      _metrics.recordDone(System.nanoTime() - start);
+
+      if (_journal != null) {
+        _journal.record(row, hash, uploadResponse);
+      }
+
+      int done = _completed.incrementAndGet();
+
+      logger.info(
+          "["
+              + done
+              + "/"
+              + totalLabel()
+              + "] upload result: ["
+              + uploadResponse.getResult()
+              + "]");
+
+      updateProgress(done, row);
+
+      addResult(row, uploadResponse);
     }
 
-    private void addHistoryEntry(String columnName, List<CellAtRow> cells) {
-      int columnIndex = _project.columnModel.columns.size();
+    private String totalLabel() {
+      return (_total >= 0 ? Integer.toString(_total) : "?");
+    }
 
-      _project.history.addEntry(
-          new HistoryEntry(
-              HistoryEntry.allocateID(),
-              _project,
-              "SNAC Upload: Add Column \"" + columnName + "\"",
-              SNACPerformUploadsOperation.this,
-              new ColumnAdditionChange(columnName, columnIndex, cells)));
+    private synchronized void updateProgress(int done, int row) {
+      // without a total, the row of the latest record shows how far through the
+      // project the upload has got
+      int progress;
+
+      if (_total > 0) {
+        progress = (int) (done * 100L / _total);
+      } else {
+        progress = (int) ((row + 1) * 100L / Math.max(1, _project.rows.size()));
+      }
+
+      // workers may finish out of order; never move the progress bar backwards
+      if (progress > _progress) {
+        _progress = progress;
+      }
     }
   }
 }
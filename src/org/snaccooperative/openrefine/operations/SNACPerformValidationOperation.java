@@ -4,22 +4,21 @@ import com.fasterxml.jackson.annotation.JsonCreator;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import com.google.refine.browsing.Engine;
 import com.google.refine.browsing.EngineConfig;
-import com.google.refine.history.HistoryEntry;
-import com.google.refine.model.Cell;
 import com.google.refine.model.Project;
-import com.google.refine.model.changes.CellAtRow;
-import com.google.refine.model.changes.ColumnAdditionChange;
 import com.google.refine.operations.EngineDependentOperation;
 import com.google.refine.process.LongRunningProcess;
 import com.google.refine.process.Process;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Properties;
+import java.util.concurrent.atomic.AtomicInteger;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.snaccooperative.openrefine.api.SNACAPIResponse;
 import org.snaccooperative.openrefine.exporters.SNACAbstractItem;
+import org.snaccooperative.openrefine.metrics.SNACProcessMetrics;
 import org.snaccooperative.openrefine.preferences.SNACPreferencesManager;
+import org.snaccooperative.openrefine.schema.SNACItemVisitor;
 import org.snaccooperative.openrefine.schema.SNACSchema;
 
 public class SNACPerformValidationOperation extends EngineDependentOperation {
@@ -53,12 +52,23 @@ public class SNACPerformValidationOperation extends EngineDependentOperation {
     private Project _project;
     private Engine _engine;
     private SNACSchema _schema;
+    private SNACProcessMetrics _metrics;
+
+    private final AtomicInteger _completed = new AtomicInteger();
+    private volatile int _total = -1;
+    private SNACResultColumns _results;
 
     public SNACPerformValidationProcess(Project project, Engine engine, String description) {
       super(description);
       this._project = project;
       this._engine = engine;
       this._schema = (SNACSchema) project.overlayModels.get("snacSchema");
+      this._metrics = new SNACProcessMetrics("validation");
+    }
+
+    @JsonProperty("snac_metrics")
+    public SNACProcessMetrics getMetrics() {
+      return _metrics;
     }
 
     @Override
@@ -68,85 +78,132 @@ public class SNACPerformValidationOperation extends EngineDependentOperation {
 
     @Override
     public void run() {
-      List<SNACAbstractItem> items = _schema.evaluateRecords(_project, _engine);
-
-      List<CellAtRow> results = new ArrayList<CellAtRow>(items.size());
-      List<CellAtRow> messages = new ArrayList<CellAtRow>(items.size());
+      // items are built and validated as they are visited rather than all up front,
+      // either one at a time or across a number of workers
 
       SNACPreferencesManager prefsManager = SNACPreferencesManager.getInstance();
 
-      for (int i = 0; i < items.size(); i++) {
-        SNACAbstractItem item = items.get(i);
-        int row = item.rowIndex();
+      // results are added to the project in chunks as validations complete, so that
+      // they can be inspected while a long validation is still running
 
-        SNACAPIResponse validationResponse = item.performValidation();
-        if (validationResponse == null) {
-          validationResponse = new SNACAPIResponse("unknown");
-        }
+      String snacPrefix = "*SNAC " + prefsManager.getName() + "*: ";
 
-        logger.info(
-            "["
-                + (i + 1)
-                + "/"
-                + items.size()
-                + "] validation result: ["
-                + validationResponse.getResult()
-                + "]");
+      List<String> columnNames = new ArrayList<String>();
+      columnNames.add(snacPrefix + "Validation Result");
+      columnNames.add(snacPrefix + "Validation Message");
 
-        results.add(new CellAtRow(row, new Cell(validationResponse.getResult(), null)));
-        messages.add(new CellAtRow(row, new Cell(validationResponse.getMessage(), null)));
-
-        _progress = i * 100 / items.size();
-
-        if (_canceled) {
-          break;
-        }
+      _results =
+          new SNACResultColumns(
+              _project,
+              SNACPerformValidationOperation.this,
+              "SNAC Validation",
+              columnNames,
+              prefsManager.getResultsCommitRecords(),
+              prefsManager.getResultsCommitInterval());
+
+      int workers = prefsManager.getValidationWorkers();
+
+      if (workers > 1) {
+        new SNACItemWorkers("validation", workers)
+            .run(
+                _schema,
+                _project,
+                _engine,
+                this::start,
+                this::performValidation,
+                _results::commitIfDue,
+                () -> _canceled);
+      } else {
+        _schema.visitItems(
+            _project,
+            _engine,
+            0,
+            true,
+            new SNACItemVisitor() {
+              @Override
+              public void start(int records) {
+                SNACPerformValidationProcess.this.start(records);
+              }
+
+              @Override
+              public boolean visit(SNACAbstractItem item) {
+                performValidation(item);
+                _results.commitIfDue();
+                return _canceled;
+              }
+            });
       }
 
+      // results of completed validations are kept even if the validation was canceled
+      _results.commit();
+
       _progress = 100;
 
       if (!_canceled) {
-        String snacPrefix = "*SNAC " + prefsManager.getName() + "*: ";
-        String resultColumn = snacPrefix + "Validation Result";
-        String messageColumn = snacPrefix + "Validation Message";
-
-        int i = 0;
-        boolean found = false;
-        String postfix = "";
-
-        while (!found) {
-          i++;
-          if (i == 1) {
-            postfix = "";
-          } else {
-            postfix = " " + i;
-          }
-
-          if ((_project.columnModel.getColumnByName(resultColumn + postfix) == null)
-              && (_project.columnModel.getColumnByName(messageColumn + postfix) == null)) {
-            found = true;
-            resultColumn = resultColumn + postfix;
-            messageColumn = messageColumn + postfix;
-          }
-        }
-
-        addHistoryEntry(resultColumn, results);
-        addHistoryEntry(messageColumn, messages);
-
         _project.processManager.onDoneProcess(this);
       }
     }
 
-    private void addHistoryEntry(String columnName, List<CellAtRow> cells) {
-      int columnIndex = _project.columnModel.columns.size();
+    private void start(int records) {
+      // the record count is a by-product of the lookup prefetch pass, when there is one
+      _total = records;
+      _metrics.setTotal(Math.max(0, records));
+    }
 
-      _project.history.addEntry(
-          new HistoryEntry(
-              HistoryEntry.allocateID(),
-              _project,
-              "SNAC Validation: Add Column \"" + columnName + "\"",
-              SNACPerformValidationOperation.this,
-              new ColumnAdditionChange(columnName, columnIndex, cells)));
+    private void performValidation(SNACAbstractItem item) {
+      int row = item.rowIndex();
+      long start = System.nanoTime();
+
+      SNACAPIResponse validationResponse;
+
+      try {
+        validationResponse = item.performValidation();
+      } catch (RuntimeException e) {
+        logger.warn("validation of row " + row + " failed: [" + e + "]");
+        validationResponse = new SNACAPIResponse("exception", e.toString(), 0, 0, "");
+      }
+
+      if (validationResponse == null) {
+        validationResponse = new SNACAPIResponse("unknown");
+      }
+
+      _metrics.recordDone(System.nanoTime() - start);
+
+      int done = _completed.incrementAndGet();
+
+      logger.info(
+          "["
+              + done
+              + "/"
+              + totalLabel()
+              + "] validation result: ["
+              + validationResponse.getResult()
+              + "]");
+
+      updateProgress(done, row);
+
+      _results.add(row, validationResponse.getResult(), validationResponse.getMessage());
+    }
+
+    private String totalLabel() {
+      return (_total >= 0 ? Integer.toString(_total) : "?");
+    }
+
+    private synchronized void updateProgress(int done, int row) {
+      // without a record count, progress is estimated from how far through the
+      // project's rows the latest record is
+      int progress;
+
+      if (_total > 0) {
+        progress = (int) (done * 100L / _total);
+      } else {
+        progress = (int) ((row + 1) * 100L / Math.max(1, _project.rows.size()));
+      }
+
+      // workers may finish out of order; never move the progress bar backwards
+      if (progress > _progress) {
+        _progress = progress;
+      }
     }
   }
 }
@@ -0,0 +1,202 @@
+package org.snaccooperative.openrefine.operations;
+
+import com.google.refine.history.Change;
+import com.google.refine.history.HistoryEntry;
+import com.google.refine.model.AbstractOperation;
+import com.google.refine.model.Cell;
+import com.google.refine.model.Column;
+import com.google.refine.model.Project;
+import com.google.refine.model.Row;
+import com.google.refine.model.changes.CellAtRow;
+import com.google.refine.model.changes.CellChange;
+import com.google.refine.model.changes.ColumnAdditionChange;
+import com.google.refine.model.changes.MassCellChange;
+import java.util.ArrayList;
+import java.util.List;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+public class SNACResultColumns {
+
+  // Collects per-row result values for a set of new columns (e.g. "Result",
+  // "Message") and applies them to the project in chunks, every so many rows
+  // or seconds, rather than all at once when a long-running process finishes.
+  // The first chunk adds the columns; later chunks fill in cells of those columns.
+  //
+  // Results may be added from any thread, but chunks are only applied by
+  // commit() and commitIfDue(), which must be called from the process thread.
+  // They are called between records while the process is still iterating over
+  // the project's filtered records, which is only safe because applying a chunk
+  // never changes the record model: columns are only ever appended, and cells
+  // only ever set in those new columns, without Project.update().  Changes that
+  // rebuild row or record dependencies must not be committed here.  Only the
+  // first history entry carries the operation, so that extracting and replaying
+  // the project's operations runs it once rather than once per chunk.
+
+  static final Logger logger = LoggerFactory.getLogger(SNACResultColumns.class);
+
+  private final Project _project;
+  private final AbstractOperation _operation;
+  private final String _description;
+  private final List<String> _columnNames;
+
+  private final int _commitRecords;
+  private final long _commitInterval;
+
+  // pending cells, per column
+  private List<List<CellAtRow>> _pending;
+  private int _pendingRows;
+  private long _lastCommit;
+  private Boolean _operationRecorded;
+
+  public SNACResultColumns(
+      Project project,
+      AbstractOperation operation,
+      String description,
+      List<String> columnNames,
+      int commitRecords,
+      long commitInterval) {
+    this._project = project;
+    this._operation = operation;
+    this._description = description;
+    this._columnNames = uniqueColumnNames(project, columnNames);
+    this._commitRecords = commitRecords;
+    this._commitInterval = commitInterval;
+
+    this._pending = newPending();
+    this._pendingRows = 0;
+    this._lastCommit = System.currentTimeMillis();
+    this._operationRecorded = false;
+  }
+
+  private static List<String> uniqueColumnNames(Project project, List<String> columnNames) {
+    // append the lowest numeric postfix for which none of the columns exist yet
+
+    int i = 0;
+    String postfix = "";
+
+    while (true) {
+      i++;
+      if (i == 1) {
+        postfix = "";
+      } else {
+        postfix = " " + i;
+      }
+
+      boolean found = true;
+
+      for (String name : columnNames) {
+        if (project.columnModel.getColumnByName(name + postfix) != null) {
+          found = false;
+          break;
+        }
+      }
+
+      if (found) {
+        break;
+      }
+    }
+
+    List<String> names = new ArrayList<String>(columnNames.size());
+
+    for (String name : columnNames) {
+      names.add(name + postfix);
+    }
+
+    return names;
+  }
+
+  private List<List<CellAtRow>> newPending() {
+    List<List<CellAtRow>> pending = new ArrayList<List<CellAtRow>>(_columnNames.size());
+
+    for (int i = 0; i < _columnNames.size(); i++) {
+      pending.add(new ArrayList<CellAtRow>());
+    }
+
+    return pending;
+  }
+
+  public synchronized void add(int row, String... values) {
+    // one value per column, in the same order as the column names
+
+    for (int i = 0; i < _columnNames.size(); i++) {
+      _pending.get(i).add(new CellAtRow(row, new Cell(values[i], null)));
+    }
+
+    _pendingRows++;
+  }
+
+  private synchronized Boolean isDue() {
+    return (_commitRecords > 0 && _pendingRows >= _commitRecords)
+        || (_commitInterval > 0 && System.currentTimeMillis() - _lastCommit >= _commitInterval);
+  }
+
+  public void commitIfDue() {
+    if (isDue()) {
+      commit();
+    }
+  }
+
+  public void commit() {
+    List<List<CellAtRow>> pending;
+    int pendingRows;
+
+    // take the pending results, so that workers can keep adding while they are applied
+    synchronized (this) {
+      _lastCommit = System.currentTimeMillis();
+
+      if (_pendingRows == 0) {
+        return;
+      }
+
+      pending = _pending;
+      pendingRows = _pendingRows;
+
+      _pending = newPending();
+      _pendingRows = 0;
+    }
+
+    logger.info("committing results for " + pendingRows + " rows");
+
+    List<CellChange> cellChanges = new ArrayList<CellChange>();
+
+    for (int i = 0; i < _columnNames.size(); i++) {
+      String columnName = _columnNames.get(i);
+      List<CellAtRow> cells = pending.get(i);
+
+      Column column = _project.columnModel.getColumnByName(columnName);
+
+      // first chunk (or the column was since removed): add the column with these cells
+      if (column == null) {
+        addHistoryEntry(
+            _description + ": Add Column \"" + columnName + "\"",
+            new ColumnAdditionChange(columnName, _project.columnModel.columns.size(), cells));
+        continue;
+      }
+
+      int cellIndex = column.getCellIndex();
+
+      for (CellAtRow cell : cells) {
+        Row row = _project.rows.get(cell.row);
+        cellChanges.add(new CellChange(cell.row, cellIndex, row.getCell(cellIndex), cell.cell));
+      }
+    }
+
+    // later chunks: fill in the existing columns with a single history entry.
+    // row context dependencies must not be updated, as that rebuilds the record
+    // model under the record iteration that is committing this chunk
+    if (cellChanges.size() > 0) {
+      addHistoryEntry(
+          _description + ": Add Results for " + pendingRows + " Rows",
+          new MassCellChange(cellChanges, null, false));
+    }
+  }
+
+  private void addHistoryEntry(String description, Change change) {
+    AbstractOperation operation = (_operationRecorded ? null : _operation);
+    _operationRecorded = true;
+
+    _project.history.addEntry(
+        new HistoryEntry(HistoryEntry.allocateID(), _project, description, operation, change));
+  }
+}
@@ -0,0 +1,190 @@
+package org.snaccooperative.openrefine.operations;
+
+import com.google.refine.ProjectManager;
+import com.google.refine.io.FileProjectManager;
+import com.google.refine.model.Project;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Map;
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.snaccooperative.openrefine.api.SNACAPIResponse;
+
+public class SNACUploadJournal {
+
+  // Durable, append-only record of upload results for one project and SNAC
+  // environment, kept in the project directory.  Each line is a small JSON object:
+  //
+  //   {"row": <row index>, "hash": "<record content hash>", "result": "...",
+  //    "message": "...", "id": <SNAC ID>, "version": <SNAC version>, "uri": "...",
+  //    "time": <epoch millis>}
+  //
+  // Entries are flushed as each upload completes, so that an interrupted upload
+  // (canceled, or OpenRefine restarted) can be resumed without re-uploading rows
+  // that SNAC has already accepted.
+
+  static final Logger logger = LoggerFactory.getLogger(SNACUploadJournal.class);
+
+  private static final String FILE_PREFIX = "snac-upload-journal-";
+  private static final String FILE_EXTENSION = ".jsonl";
+
+  private final File _file;
+  private BufferedWriter _writer;
+
+  public SNACUploadJournal(File file) {
+    this._file = file;
+    this._writer = null;
+  }
+
+  public static SNACUploadJournal getInstance(Project project, String envKey) {
+    if (!(ProjectManager.singleton instanceof FileProjectManager)) {
+      return null;
+    }
+
+    File dir = ((FileProjectManager) ProjectManager.singleton).getProjectDir(project.id);
+
+    return new SNACUploadJournal(new File(dir, FILE_PREFIX + envKey + FILE_EXTENSION));
+  }
+
+  public static class Entry {
+    private final int _row;
+    private final String _hash;
+    private final String _result;
+    private final String _message;
+    private final int _id;
+    private final int _version;
+    private final String _uri;
+
+    private Entry(JSONObject entry) {
+      this._row = entry.getInt("row");
+      this._hash = entry.optString("hash", "");
+      this._result = entry.optString("result", "");
+      this._message = entry.optString("message", "");
+      this._id = entry.optInt("id", 0);
+      this._version = entry.optInt("version", 0);
+      this._uri = entry.optString("uri", "");
+    }
+
+    public int getRow() {
+      return _row;
+    }
+
+    public String getHash() {
+      return _hash;
+    }
+
+    public Boolean isCommitted() {
+      return _result.toLowerCase().contains("success");
+    }
+
+    public SNACAPIResponse toResponse() {
+      return new SNACAPIResponse(_result, _message, _id, _version, _uri);
+    }
+  }
+
+  public synchronized Map<Integer, Entry> load() {
+    // returns the most recent entry for each row index
+
+    Map<Integer, Entry> entries = new HashMap<Integer, Entry>();
+
+    if (!_file.exists()) {
+      return entries;
+    }
+
+    try (BufferedReader reader = Files.newBufferedReader(_file.toPath(), StandardCharsets.UTF_8)) {
+      String line;
+      while ((line = reader.readLine()) != null) {
+        if (line.trim().equals("")) {
+          continue;
+        }
+
+        try {
+          Entry entry = new Entry(new JSONObject(line));
+          entries.put(entry.getRow(), entry);
+        } catch (JSONException e) {
+          // most likely a partially-written line from an interrupted run
+          logger.warn("skipping unreadable upload journal entry in [" + _file + "]");
+        }
+      }
+    } catch (IOException e) {
+      logger.warn("unable to read upload journal [" + _file + "]: [" + e + "]");
+    }
+
+    logger.info("loaded " + entries.size() + " upload journal entries from [" + _file + "]");
+
+    return entries;
+  }
+
+  public synchronized void open(Boolean resume) {
+    // a fresh (non-resumed) upload starts a new journal
+
+    try {
+      if (resume) {
+        _writer =
+            Files.newBufferedWriter(
+                _file.toPath(),
+                StandardCharsets.UTF_8,
+                StandardOpenOption.CREATE,
+                StandardOpenOption.APPEND);
+      } else {
+        _writer =
+            Files.newBufferedWriter(
+                _file.toPath(),
+                StandardCharsets.UTF_8,
+                StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING,
+                StandardOpenOption.WRITE);
+      }
+    } catch (IOException e) {
+      logger.warn("unable to open upload journal [" + _file + "]: [" + e + "]");
+      _writer = null;
+    }
+  }
+
+  public synchronized void record(int row, String hash, SNACAPIResponse response) {
+    if (_writer == null) {
+      return;
+    }
+
+    JSONObject entry = new JSONObject();
+
+    entry.put("row", row);
+    entry.put("hash", hash);
+    entry.put("result", response.getResult());
+    entry.put("message", response.getMessage());
+    entry.put("id", response.getID());
+    entry.put("version", response.getVersion());
+    entry.put("uri", response.getURI());
+    entry.put("time", System.currentTimeMillis());
+
+    try {
+      _writer.write(entry.toString());
+      _writer.newLine();
+      _writer.flush();
+    } catch (IOException e) {
+      logger.warn("unable to append to upload journal [" + _file + "]: [" + e + "]");
+    }
+  }
+
+  public synchronized void close() {
+    if (_writer == null) {
+      return;
+    }
+
+    try {
+      _writer.close();
+    } catch (IOException e) {
+      logger.warn("unable to close upload journal [" + _file + "]: [" + e + "]");
+    }
+
+    _writer = null;
+  }
+}
@@ -13,12 +13,16 @@ public class SNACEnvironment {
   private String _apiURL;
   private String _apiKey;
 
+  // the api url this environment was defined with, before any override
+  private String _baseAPIURL;
+
   public SNACEnvironment(String id, String name, String webURL, String apiURL) {
     this._id = id;
     this._name = name;
     this._webURL = webURL;
     this._apiURL = apiURL;
     this._apiKey = "";
+    this._baseAPIURL = apiURL;
   }
 
   public SNACEnvironment(SNACEnvironment env) {
@@ -27,6 +31,7 @@ public class SNACEnvironment {
     this._webURL = env.getWebURL();
     this._apiURL = env.getAPIURL();
     this._apiKey = env.getAPIKey();
+    this._baseAPIURL = env._baseAPIURL;
   }
 
   public Boolean isProd() {
@@ -41,6 +46,19 @@ public class SNACEnvironment {
     _id = id;
   }
 
+  public String getKey() {
+    // identifies the server behind this environment, for keying state kept per
+    // server (connections, persistent terms, validation results, journals).
+    // an environment pointed at another api url gets a key of its own, so that
+    // nothing learned from that server is ever served for the real one
+
+    if (_apiURL.equals(_baseAPIURL)) {
+      return _id;
+    }
+
+    return _id + "-" + Integer.toHexString(_apiURL.hashCode());
+  }
+
   public String getName() {
     return _name;
   }
@@ -3,10 +3,14 @@ package org.snaccooperative.openrefine.preferences;
 import com.fasterxml.jackson.databind.node.ArrayNode;
 import com.fasterxml.jackson.databind.node.ObjectNode;
 import com.google.refine.ProjectManager;
+import com.google.refine.io.FileProjectManager;
 import com.google.refine.preference.PreferenceStore;
+import java.io.File;
 import java.util.HashMap;
+import java.util.concurrent.TimeUnit;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.snaccooperative.openrefine.api.SNACHttpTransport;
 
 public class SNACPreferencesManager {
 
@@ -20,9 +24,57 @@ public class SNACPreferencesManager {
   private static final String PREF_STORE_KEY_APIKEY_PREFIX = "snac.apikey.";
   private static final String PREF_STORE_KEY_MAX_PREVIEW_ITEMS = "snac.preview.max_items";
   private static final String PREF_STORE_KEY_INCLUDE_API_RESPONSE = "snac.upload.api_response";
+  private static final String PREF_STORE_KEY_UPLOAD_WORKERS = "snac.upload.workers";
+
+  // advanced http tuning; not exposed in the preferences dialog, but can be set
+  // through the openrefine preferences page, and are re-read on every use
+  private static final String PREF_STORE_KEY_HTTP_MAX_CONNECTIONS_PER_ROUTE =
+      "snac.http.max_connections_per_route";
+  private static final String PREF_STORE_KEY_HTTP_CONNECT_TIMEOUT = "snac.http.connect_timeout";
+  private static final String PREF_STORE_KEY_HTTP_SOCKET_TIMEOUT = "snac.http.socket_timeout";
+  private static final String PREF_STORE_KEY_HTTP_RATE_LIMIT = "snac.http.rate_limit";
+  private static final String PREF_STORE_KEY_HTTP_RATE_BURST = "snac.http.rate_burst";
+  private static final String PREF_STORE_KEY_HTTP_MAX_RETRIES = "snac.http.max_retries";
+  private static final String PREF_STORE_KEY_HTTP_RETRY_BASE_DELAY = "snac.http.retry_base_delay";
+  private static final String PREF_STORE_KEY_HTTP_RETRY_MAX_DELAY = "snac.http.retry_max_delay";
+  private static final String PREF_STORE_KEY_LOOKUP_WORKERS = "snac.lookup.workers";
+  private static final String PREF_STORE_KEY_VALIDATION_WORKERS = "snac.validation.workers";
+  private static final String PREF_STORE_KEY_TERM_STORE = "snac.cache.persistent_terms";
+  private static final String PREF_STORE_KEY_TERM_STORE_TTL =
+      "snac.cache.persistent_terms_ttl_days";
+  private static final String PREF_STORE_KEY_VALIDATION_CACHE_TTL =
+      "snac.cache.validation_ttl_minutes";
+  private static final String PREF_STORE_KEY_NEGATIVE_TERM_CACHE_TTL =
+      "snac.cache.missing_terms_ttl_minutes";
+  private static final String PREF_STORE_KEY_RESULTS_COMMIT_RECORDS =
+      "snac.results.commit_interval_records";
+  private static final String PREF_STORE_KEY_RESULTS_COMMIT_SECONDS =
+      "snac.results.commit_interval_seconds";
+  private static final String PREF_STORE_KEY_EXPORT_RETENTION = "snac.export.retention_days";
 
   private static final Integer SNAC_DEFAULT_MAX_PREVIEW_ITEMS = 10;
   private static final Boolean SNAC_DEFAULT_INCLUDE_API_RESPONSE = false;
+  private static final Integer SNAC_DEFAULT_UPLOAD_WORKERS = 1;
+  private static final Integer SNAC_MAX_UPLOAD_WORKERS = 16;
+  private static final Integer SNAC_DEFAULT_LOOKUP_WORKERS = 4;
+  private static final Integer SNAC_DEFAULT_VALIDATION_WORKERS = 4;
+  private static final Integer SNAC_MAX_VALIDATION_WORKERS = 16;
+  private static final Integer SNAC_DEFAULT_TERM_STORE_TTL_DAYS = 7;
+  private static final Integer SNAC_DEFAULT_VALIDATION_CACHE_TTL_MINUTES = 60;
+  private static final Integer SNAC_DEFAULT_NEGATIVE_TERM_CACHE_TTL_MINUTES = 60;
+  private static final Integer SNAC_DEFAULT_RESULTS_COMMIT_RECORDS = 500;
+  private static final Integer SNAC_DEFAULT_RESULTS_COMMIT_SECONDS = 60;
+  private static final Integer SNAC_DEFAULT_EXPORT_RETENTION_DAYS = 7;
+
+  private static final String SNAC_CACHE_DIR = "snac-cache";
+  private static final String SNAC_EXPORT_DIR = "snac-exports";
+
+  // per-environment url overrides, for tests only: these are system properties
+  // rather than preferences, so that a preference can never point an environment
+  // (and its api key) at another server: -Dsnac.env.<id>.web_url / .api_url
+  private static final String SYSTEM_PROPERTY_ENV_PREFIX = "snac.env.";
+  private static final String SYSTEM_PROPERTY_ENV_WEB_URL_SUFFIX = ".web_url";
+  private static final String SYSTEM_PROPERTY_ENV_API_URL_SUFFIX = ".api_url";
 
   private static final String SNAC_ENV_DEV_ID = "dev";
   private static final String SNAC_ENV_DEV_NAME = "Development";
@@ -39,6 +91,7 @@ public class SNACPreferencesManager {
   private SNACEnvironment _prod;
   private Integer _maxPreviewItems;
   private Boolean _includeAPIResponse;
+  private Integer _uploadWorkers;
 
   private HashMap<String, String> _current;
   private HashMap<String, SNACEnvironment> _env;
@@ -94,6 +147,101 @@ public class SNACPreferencesManager {
     return val;
   }
 
+  private Integer intPreference(String key, Integer fallback) {
+    // tolerate values entered by hand through the openrefine preferences page
+    Object val = prefStore.get(key);
+
+    if (val instanceof Number) {
+      return ((Number) val).intValue();
+    }
+
+    if (val instanceof String) {
+      try {
+        return Integer.valueOf(((String) val).trim());
+      } catch (NumberFormatException e) {
+        logger.warn("ignoring invalid value for preference [" + key + "]: [" + val + "]");
+      }
+    }
+
+    return fallback;
+  }
+
+  private double doublePreference(String key, double fallback) {
+    Object val = prefStore.get(key);
+
+    if (val instanceof Number) {
+      return ((Number) val).doubleValue();
+    }
+
+    if (val instanceof String) {
+      try {
+        return Double.parseDouble(((String) val).trim());
+      } catch (NumberFormatException e) {
+        logger.warn("ignoring invalid value for preference [" + key + "]: [" + val + "]");
+      }
+    }
+
+    return fallback;
+  }
+
+  private String systemProperty(String key) {
+    String val = System.getProperty(key);
+
+    if (val == null || val.trim().equals("")) {
+      return null;
+    }
+
+    return val.trim();
+  }
+
+  private SNACEnvironment env(String id) {
+    // url overrides are re-read on every use, so tests can set and clear them.
+    // an overridden environment is a copy, so the shared one always keeps its
+    // own urls and is never written to by concurrent lookups; the copy also has
+    // its own key, so its state is kept apart from the real server's
+
+    SNACEnvironment env = _env.get(id);
+
+    if (env == null) {
+      return null;
+    }
+
+    String prefix = SYSTEM_PROPERTY_ENV_PREFIX + id;
+
+    String webURL = systemProperty(prefix + SYSTEM_PROPERTY_ENV_WEB_URL_SUFFIX);
+    String apiURL = systemProperty(prefix + SYSTEM_PROPERTY_ENV_API_URL_SUFFIX);
+
+    if (webURL == null && apiURL == null) {
+      return env;
+    }
+
+    SNACEnvironment overridden = new SNACEnvironment(env);
+
+    if (webURL != null) {
+      overridden.setWebURL(webURL);
+    }
+
+    if (apiURL != null) {
+      overridden.setAPIURL(apiURL);
+    }
+
+    return overridden;
+  }
+
+  private Boolean booleanPreference(String key, Boolean fallback) {
+    Object val = prefStore.get(key);
+
+    if (val instanceof Boolean) {
+      return (Boolean) val;
+    }
+
+    if (val instanceof String) {
+      return Boolean.valueOf(((String) val).trim());
+    }
+
+    return fallback;
+  }
+
   private String getLegacyKey() {
     ArrayNode array = (ArrayNode) prefStore.get(LEGACY_PREF_STORE_KEY);
 
@@ -132,6 +280,12 @@ public class SNACPreferencesManager {
                 prefStore.get(PREF_STORE_KEY_INCLUDE_API_RESPONSE),
                 SNAC_DEFAULT_INCLUDE_API_RESPONSE);
 
+    _uploadWorkers =
+        clampUploadWorkers(
+            (Integer)
+                valueWithFallback(
+                    prefStore.get(PREF_STORE_KEY_UPLOAD_WORKERS), SNAC_DEFAULT_UPLOAD_WORKERS));
+
     // logPreferences();
   }
 
@@ -140,7 +294,8 @@ public class SNACPreferencesManager {
       String devKey,
       String prodKey,
       String maxPreviewItemsStr,
-      String includeAPIResponseStr) {
+      String includeAPIResponseStr,
+      String uploadWorkersStr) {
     // logger.info("saving preferences...");
 
     // only check the ones that must be non-null
@@ -171,12 +326,24 @@ public class SNACPreferencesManager {
       return;
     }
 
+    Integer uploadWorkers = _uploadWorkers;
+    if (uploadWorkersStr != null) {
+      try {
+        uploadWorkers = clampUploadWorkers(Integer.valueOf(uploadWorkersStr));
+      } catch (NumberFormatException e) {
+        logger.warn(
+            "cannot save preferences: invalid value for uploadWorkers: [" + uploadWorkersStr + "]");
+        return;
+      }
+    }
+
     // save new info locally
     _id = id.trim().toLowerCase();
     _env.get(SNAC_ENV_DEV_ID).setAPIKey(devKey.trim());
     _env.get(SNAC_ENV_PROD_ID).setAPIKey(prodKey.trim());
     _maxPreviewItems = maxPreviewItems;
     _includeAPIResponse = includeAPIResponse;
+    _uploadWorkers = uploadWorkers;
 
     // write to openrefine preferences store
     prefStore.put(PREF_STORE_KEY_ENVIRONMENT, _id);
@@ -185,6 +352,7 @@ public class SNACPreferencesManager {
     }
     prefStore.put(PREF_STORE_KEY_MAX_PREVIEW_ITEMS, _maxPreviewItems);
     prefStore.put(PREF_STORE_KEY_INCLUDE_API_RESPONSE, _includeAPIResponse);
+    prefStore.put(PREF_STORE_KEY_UPLOAD_WORKERS, _uploadWorkers);
 
     // remove old legacy api key preference now that user has saved new preferences
     prefStore.put(LEGACY_PREF_STORE_KEY, null);
@@ -192,6 +360,14 @@ public class SNACPreferencesManager {
     // logPreferences();
   }
 
+  private Integer clampUploadWorkers(Integer workers) {
+    if (workers == null || workers < 1) {
+      return 1;
+    }
+
+    return Math.min(workers, SNAC_MAX_UPLOAD_WORKERS);
+  }
+
   public String[] getIDs() {
     return _env.keySet().toArray(new String[0]);
   }
@@ -249,7 +425,7 @@ public class SNACPreferencesManager {
   }
 
   public String getWebURL(String id) {
-    return _env.get(id).getWebURL();
+    return env(id).getWebURL();
   }
 
   public String getDevWebURL() {
@@ -265,7 +441,7 @@ public class SNACPreferencesManager {
   }
 
   public String getAPIURL(String id) {
-    return _env.get(id).getAPIURL();
+    return env(id).getAPIURL();
   }
 
   public String getDevAPIURL() {
@@ -297,7 +473,7 @@ public class SNACPreferencesManager {
   }
 
   public SNACEnvironment getEnvironment(String id) {
-    return _env.get(id);
+    return env(id);
   }
 
   public SNACEnvironment getDevEnvironment() {
@@ -315,4 +491,124 @@ public class SNACPreferencesManager {
   public Boolean includeAPIResponse() {
     return _includeAPIResponse;
   }
+
+  public Integer getUploadWorkers() {
+    return _uploadWorkers;
+  }
+
+  public Integer getMaxUploadWorkers() {
+    return SNAC_MAX_UPLOAD_WORKERS;
+  }
+
+  public Integer getMaxConnectionsPerRoute() {
+    // always allow at least one connection per upload or validation worker
+    return Math.max(
+        intPreference(
+            PREF_STORE_KEY_HTTP_MAX_CONNECTIONS_PER_ROUTE,
+            SNACHttpTransport.DEFAULT_MAX_CONNECTIONS_PER_ROUTE),
+        Math.max(_uploadWorkers, getValidationWorkers()));
+  }
+
+  public Integer getConnectTimeout() {
+    return intPreference(
+        PREF_STORE_KEY_HTTP_CONNECT_TIMEOUT, SNACHttpTransport.DEFAULT_CONNECT_TIMEOUT);
+  }
+
+  public Integer getSocketTimeout() {
+    return intPreference(
+        PREF_STORE_KEY_HTTP_SOCKET_TIMEOUT, SNACHttpTransport.DEFAULT_SOCKET_TIMEOUT);
+  }
+
+  public double getRateLimit() {
+    // requests per second, per environment; zero or less disables rate limiting
+    return doublePreference(PREF_STORE_KEY_HTTP_RATE_LIMIT, SNACHttpTransport.DEFAULT_RATE_LIMIT);
+  }
+
+  public Integer getRateLimitBurst() {
+    return intPreference(PREF_STORE_KEY_HTTP_RATE_BURST, SNACHttpTransport.DEFAULT_RATE_BURST);
+  }
+
+  public Integer getMaxRetries() {
+    return intPreference(PREF_STORE_KEY_HTTP_MAX_RETRIES, SNACHttpTransport.DEFAULT_MAX_RETRIES);
+  }
+
+  public Integer getRetryBaseDelay() {
+    return intPreference(
+        PREF_STORE_KEY_HTTP_RETRY_BASE_DELAY, SNACHttpTransport.DEFAULT_RETRY_BASE_DELAY);
+  }
+
+  public Integer getRetryMaxDelay() {
+    return intPreference(
+        PREF_STORE_KEY_HTTP_RETRY_MAX_DELAY, SNACHttpTransport.DEFAULT_RETRY_MAX_DELAY);
+  }
+
+  public Integer getLookupWorkers() {
+    return Math.max(1, intPreference(PREF_STORE_KEY_LOOKUP_WORKERS, SNAC_DEFAULT_LOOKUP_WORKERS));
+  }
+
+  public Integer getValidationWorkers() {
+    // validation only reads from SNAC, so it runs concurrently by default
+    return Math.min(
+        Math.max(
+            1, intPreference(PREF_STORE_KEY_VALIDATION_WORKERS, SNAC_DEFAULT_VALIDATION_WORKERS)),
+        SNAC_MAX_VALIDATION_WORKERS);
+  }
+
+  public Boolean usePersistentTermStore() {
+    return booleanPreference(PREF_STORE_KEY_TERM_STORE, true) && getCacheDirectory() != null;
+  }
+
+  public long getTermStoreTTL() {
+    // zero or less means terms never expire
+    return TimeUnit.DAYS.toMillis(
+        intPreference(PREF_STORE_KEY_TERM_STORE_TTL, SNAC_DEFAULT_TERM_STORE_TTL_DAYS));
+  }
+
+  public long getValidationCacheTTL() {
+    // zero or less disables reuse of earlier validation results during upload
+    return TimeUnit.MINUTES.toMillis(
+        intPreference(
+            PREF_STORE_KEY_VALIDATION_CACHE_TTL, SNAC_DEFAULT_VALIDATION_CACHE_TTL_MINUTES));
+  }
+
+  public long getNegativeTermCacheTTL() {
+    // zero or less means terms not found in SNAC are looked up again every time
+    return TimeUnit.MINUTES.toMillis(
+        intPreference(
+            PREF_STORE_KEY_NEGATIVE_TERM_CACHE_TTL, SNAC_DEFAULT_NEGATIVE_TERM_CACHE_TTL_MINUTES));
+  }
+
+  public Integer getResultsCommitRecords() {
+    // zero or less means results are not committed based on record count
+    return intPreference(
+        PREF_STORE_KEY_RESULTS_COMMIT_RECORDS, SNAC_DEFAULT_RESULTS_COMMIT_RECORDS);
+  }
+
+  public long getResultsCommitInterval() {
+    // zero or less means results are not committed based on elapsed time
+    return TimeUnit.SECONDS.toMillis(
+        intPreference(PREF_STORE_KEY_RESULTS_COMMIT_SECONDS, SNAC_DEFAULT_RESULTS_COMMIT_SECONDS));
+  }
+
+  public long getExportRetention() {
+    // zero or less means workspace exports are never removed
+    return TimeUnit.DAYS.toMillis(
+        intPreference(PREF_STORE_KEY_EXPORT_RETENTION, SNAC_DEFAULT_EXPORT_RETENTION_DAYS));
+  }
+
+  private File getWorkspaceDirectory(String name) {
+    if (!(ProjectManager.singleton instanceof FileProjectManager)) {
+      return null;
+    }
+
+    return new File(((FileProjectManager) ProjectManager.singleton).getWorkspaceDir(), name);
+  }
+
+  public File getCacheDirectory() {
+    return getWorkspaceDirectory(SNAC_CACHE_DIR);
+  }
+
+  public File getExportDirectory() {
+    return getWorkspaceDirectory(SNAC_EXPORT_DIR);
+  }
 }
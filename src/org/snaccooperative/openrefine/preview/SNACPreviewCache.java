@@ -0,0 +1,154 @@
+package org.snaccooperative.openrefine.preview;
+
+import com.google.refine.history.HistoryEntry;
+import com.google.refine.model.Project;
+import java.util.Collections;
+import java.util.List;
+import org.snaccooperative.openrefine.cache.SNACBoundedCache;
+
+public class SNACPreviewCache {
+
+  // Rendered preview items, so that reopening the schema dialog or switching
+  // back to the preview tab does not rebuild every item.  Whole pages are keyed
+  // on the project's last history entry (any edit or undo moves it), the engine
+  // config, the schema fingerprint and the page bounds.  Below that, single
+  // records are keyed on the schema fingerprint and a hash of the record's
+  // mapped cells, so that after an edit only the records it touched are rebuilt.
+  // The filtered record indices are kept per history entry and engine config,
+  // so that any page (however deep) is rendered without refiltering the project.
+
+  private static final int MAX_PAGES = 200;
+  private static final int MAX_RECORDS = 20000;
+
+  // rendered items vary widely in size, so both caches are also bounded by the
+  // total number of characters they hold (pages mostly share their item strings
+  // with the record cache, but are bounded on their own in case they do not)
+  private static final long MAX_PAGE_CHARS = 16L * 1024 * 1024;
+  private static final long MAX_RECORD_CHARS = 16L * 1024 * 1024;
+
+  private static final int MAX_INDEX_LISTS = 20;
+  private static final long MAX_INDICES = 4L * 1024 * 1024;
+
+  private static final SNACPreviewCache instance = new SNACPreviewCache();
+
+  public static SNACPreviewCache getInstance() {
+    return instance;
+  }
+
+  public static class Page {
+    private final List<String> _items;
+    private final int _total;
+
+    public Page(List<String> items, int total) {
+      this._items = Collections.unmodifiableList(items);
+      this._total = total;
+    }
+
+    public List<String> getItems() {
+      return _items;
+    }
+
+    // number of filtered records
+    public int getTotal() {
+      return _total;
+    }
+
+    // number of characters across all items
+    public long getLength() {
+      long length = 0;
+      for (String item : _items) {
+        length += item.length();
+      }
+      return length;
+    }
+  }
+
+  private final SNACBoundedCache<String, Page> _pages;
+  private final SNACBoundedCache<String, String> _records;
+  private final SNACBoundedCache<String, int[]> _indices;
+
+  private SNACPreviewCache() {
+    this._pages =
+        new SNACBoundedCache<String, Page>(
+            "preview_pages", MAX_PAGES, MAX_PAGE_CHARS, Page::getLength);
+    this._records =
+        new SNACBoundedCache<String, String>(
+            "preview_records", MAX_RECORDS, MAX_RECORD_CHARS, String::length);
+    this._indices =
+        new SNACBoundedCache<String, int[]>(
+            "preview_indices", MAX_INDEX_LISTS, MAX_INDICES, indices -> indices.length);
+  }
+
+  public static long getHistoryID(Project project) {
+    // id of the last applied history entry, or 0 for an unmodified project
+
+    List<HistoryEntry> entries = project.history.getLastPastEntries(1);
+
+    if (entries == null || entries.isEmpty()) {
+      return 0;
+    }
+
+    return entries.get(0).id;
+  }
+
+  public static String pageKey(
+      Project project,
+      String envKey,
+      String schemaFingerprint,
+      String engineConfig,
+      int offset,
+      int limit) {
+    return project.id
+        + "\0"
+        + getHistoryID(project)
+        + "\0"
+        + envKey
+        + "\0"
+        + schemaFingerprint
+        + "\0"
+        + engineConfig
+        + "\0"
+        + offset
+        + "\0"
+        + limit;
+  }
+
+  public static String indicesKey(Project project, String engineConfig) {
+    return project.id + "\0" + getHistoryID(project) + "\0" + engineConfig;
+  }
+
+  public static String recordKey(String envKey, String schemaFingerprint, String recordHash) {
+    // previews link to the environment's web site, so they depend on it too
+    return envKey + "\0" + schemaFingerprint + "\0" + recordHash;
+  }
+
+  public Page getPage(String key) {
+    return _pages.get(key);
+  }
+
+  public void putPage(String key, Page page) {
+    _pages.put(key, page);
+  }
+
+  public int[] getIndices(String key) {
+    return _indices.get(key);
+  }
+
+  public void putIndices(String key, int[] indices) {
+    _indices.put(key, indices);
+  }
+
+  public String getRecord(String key) {
+    return _records.get(key);
+  }
+
+  public void putRecord(String key, String preview) {
+    _records.put(key, preview);
+  }
+
+  public void clear() {
+    _pages.clear();
+    _records.clear();
+    _indices.clear();
+  }
+}
@@ -0,0 +1,181 @@
+package org.snaccooperative.openrefine.preview;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.annotation.JsonPropertyOrder;
+import com.google.refine.browsing.Engine;
+import com.google.refine.model.Project;
+import java.util.ArrayList;
+import java.util.List;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.snaccooperative.openrefine.schema.SNACSchema;
+
+@JsonPropertyOrder({"job_id", "status", "offset", "limit", "total", "count", "error"})
+public class SNACPreviewJob implements Runnable {
+
+  // Renders one page of schema preview items (filtered records [offset,
+  // offset + limit)) in the background.  Items become available as they are
+  // rendered, so a client can poll for them before the page is complete.
+
+  static final Logger logger = LoggerFactory.getLogger(SNACPreviewJob.class);
+
+  public enum Status {
+    PENDING,
+    RUNNING,
+    DONE,
+    CANCELED,
+    FAILED
+  }
+
+  private final String _id;
+  private final Project _project;
+  private final SNACPreviewRenderer _renderer;
+  private final int _offset;
+  private final int _limit;
+
+  private final List<String> _items;
+
+  private volatile Status _status;
+  private volatile Boolean _canceled;
+  private volatile int _total;
+  private volatile String _error;
+
+  public SNACPreviewJob(
+      String id,
+      Project project,
+      Engine engine,
+      String engineConfig,
+      SNACSchema schema,
+      int offset,
+      int limit) {
+    this._id = id;
+    this._project = project;
+    this._renderer = new SNACPreviewRenderer(project, engine, engineConfig, schema);
+    this._offset = offset;
+    this._limit = limit;
+    this._items = new ArrayList<String>();
+    this._status = Status.PENDING;
+    this._canceled = false;
+    this._total = -1;
+    this._error = null;
+  }
+
+  @JsonProperty("job_id")
+  public String getID() {
+    return _id;
+  }
+
+  public long getProjectID() {
+    return _project.id;
+  }
+
+  @JsonProperty("status")
+  public String getStatusName() {
+    return _status.name().toLowerCase();
+  }
+
+  public Status getStatus() {
+    return _status;
+  }
+
+  public Boolean isFinished() {
+    return _status != Status.PENDING && _status != Status.RUNNING;
+  }
+
+  @JsonProperty("offset")
+  public int getOffset() {
+    return _offset;
+  }
+
+  @JsonProperty("limit")
+  public int getLimit() {
+    return _limit;
+  }
+
+  // number of filtered records, or -1 until counted
+  @JsonProperty("total")
+  public int getTotal() {
+    return _total;
+  }
+
+  // number of items rendered so far
+  @JsonProperty("count")
+  public int getCount() {
+    synchronized (_items) {
+      return _items.size();
+    }
+  }
+
+  @JsonProperty("error")
+  public String getError() {
+    return _error;
+  }
+
+  public List<String> getItems(int from) {
+    // rendered items from the given index (within this page) on
+    synchronized (_items) {
+      if (from >= _items.size()) {
+        return new ArrayList<String>();
+      }
+
+      return new ArrayList<String>(_items.subList(Math.max(0, from), _items.size()));
+    }
+  }
+
+  public void cancel() {
+    _canceled = true;
+
+    if (_status == Status.PENDING) {
+      _status = Status.CANCELED;
+    }
+  }
+
+  @Override
+  public void run() {
+    if (_canceled) {
+      _status = Status.CANCELED;
+      return;
+    }
+
+    _status = Status.RUNNING;
+
+    long start = System.currentTimeMillis();
+
+    try {
+      SNACPreviewCache.Page page =
+          _renderer.render(
+              _offset,
+              _limit,
+              item -> {
+                synchronized (_items) {
+                  _items.add(item);
+                }
+              },
+              () -> _canceled);
+
+      if (page == null) {
+        _status = Status.CANCELED;
+      } else {
+        _total = page.getTotal();
+        _status = Status.DONE;
+      }
+
+      logger.info(
+          "preview job ["
+              + _id
+              + "]: "
+              + _status.name().toLowerCase()
+              + " after rendering "
+              + getCount()
+              + " items from offset "
+              + _offset
+              + " in "
+              + (System.currentTimeMillis() - start)
+              + " ms");
+    } catch (Exception e) {
+      logger.error("preview job [" + _id + "]: exception: [" + e + "]");
+      _error = e.toString();
+      _status = Status.FAILED;
+    }
+  }
+}
@@ -0,0 +1,105 @@
+package org.snaccooperative.openrefine.preview;
+
+import com.google.refine.browsing.Engine;
+import com.google.refine.model.Project;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.snaccooperative.openrefine.cache.SNACBoundedCache;
+import org.snaccooperative.openrefine.schema.SNACSchema;
+
+public class SNACPreviewJobs {
+
+  // Runs preview jobs off the servlet threads, and keeps the most recent ones
+  // around for clients to poll.  Starting a preview for a project cancels any
+  // earlier preview of that project that is still rendering, since the schema
+  // dialog only ever shows the latest one.
+
+  static final Logger logger = LoggerFactory.getLogger(SNACPreviewJobs.class);
+
+  private static final int MAX_JOBS = 100;
+  private static final int WORKERS = 2;
+
+  private static final SNACPreviewJobs instance = new SNACPreviewJobs();
+
+  public static SNACPreviewJobs getInstance() {
+    return instance;
+  }
+
+  private final ExecutorService _executor;
+  private final SNACBoundedCache<String, SNACPreviewJob> _jobs;
+
+  // project id => latest job started for it, while that job is still running
+  private final Map<Long, SNACPreviewJob> _latest;
+
+  private SNACPreviewJobs() {
+    this._executor =
+        Executors.newFixedThreadPool(
+            WORKERS,
+            r -> {
+              Thread t = new Thread(r, "snac-preview");
+              t.setDaemon(true);
+              return t;
+            });
+    this._jobs = new SNACBoundedCache<String, SNACPreviewJob>("preview_jobs", MAX_JOBS);
+    this._latest = new ConcurrentHashMap<Long, SNACPreviewJob>();
+  }
+
+  public SNACPreviewJob start(
+      Project project,
+      Engine engine,
+      String engineConfig,
+      SNACSchema schema,
+      int offset,
+      int limit) {
+    SNACPreviewJob job =
+        new SNACPreviewJob(
+            UUID.randomUUID().toString(), project, engine, engineConfig, schema, offset, limit);
+
+    SNACPreviewJob previous = _latest.put(project.id, job);
+
+    if (previous != null && !previous.isFinished()) {
+      logger.info("canceling superseded preview job [" + previous.getID() + "]");
+      previous.cancel();
+    }
+
+    _jobs.put(job.getID(), job);
+
+    // a finished job has nothing left to cancel, so it is dropped from _latest
+    // rather than keeping its project reachable for the life of the server
+    _executor.execute(
+        () -> {
+          try {
+            job.run();
+          } finally {
+            _latest.remove(project.id, job);
+          }
+        });
+
+    return job;
+  }
+
+  public SNACPreviewJob get(String id) {
+    if (id == null) {
+      return null;
+    }
+
+    return _jobs.get(id);
+  }
+
+  public Boolean cancel(String id) {
+    SNACPreviewJob job = get(id);
+
+    if (job == null) {
+      return false;
+    }
+
+    job.cancel();
+
+    return true;
+  }
+}
@@ -0,0 +1,146 @@
+package org.snaccooperative.openrefine.preview;
+
+import com.google.refine.browsing.Engine;
+import com.google.refine.model.Project;
+import com.google.refine.model.Record;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
+import org.snaccooperative.openrefine.api.SNACAPIClient;
+import org.snaccooperative.openrefine.cache.SNACLookupCache;
+import org.snaccooperative.openrefine.exporters.SNACAbstractItem;
+import org.snaccooperative.openrefine.metrics.SNACMetrics;
+import org.snaccooperative.openrefine.schema.SNACSchema;
+import org.snaccooperative.openrefine.schema.SNACSchemaPlan;
+
+public class SNACPreviewRenderer {
+
+  // Renders one page of preview items (filtered records [offset, offset + limit))
+  // through the preview cache: a cached page is returned as is; otherwise the
+  // page's records are read straight from the cached filtered record indices,
+  // and only records whose mapped cells are not already cached are built.
+
+  private final Project _project;
+  private final Engine _engine;
+  private final String _engineConfig;
+  private final SNACSchema _schema;
+
+  public SNACPreviewRenderer(
+      Project project, Engine engine, String engineConfig, SNACSchema schema) {
+    this._project = project;
+    this._engine = engine;
+    this._engineConfig = (engineConfig == null ? "" : engineConfig);
+    this._schema = schema;
+  }
+
+  public SNACPreviewCache.Page render(
+      int offset, int limit, Consumer<String> onItem, BooleanSupplier canceled) {
+    // items are also handed to onItem as they are rendered.  returns null if canceled.
+    // the project is locked throughout, as changes are applied under the same lock,
+    // so that a page is never rendered from a project that is being modified
+
+    synchronized (_project) {
+      return renderLocked(offset, limit, onItem, canceled);
+    }
+  }
+
+  private SNACPreviewCache.Page renderLocked(
+      int offset, int limit, Consumer<String> onItem, BooleanSupplier canceled) {
+    SNACPreviewCache previewCache = SNACPreviewCache.getInstance();
+
+    SNACAPIClient client = new SNACAPIClient();
+    SNACSchemaPlan plan = new SNACSchemaPlan(_project, _schema);
+
+    String pageKey =
+        SNACPreviewCache.pageKey(
+            _project, client.key(), plan.getFingerprint(), _engineConfig, offset, limit);
+
+    SNACPreviewCache.Page page = previewCache.getPage(pageKey);
+
+    SNACMetrics.getInstance().recordPreviewLookup("page", page != null);
+
+    if (page != null) {
+      page.getItems().forEach(onItem);
+      return page;
+    }
+
+    int[] indices = getFilteredIndices();
+
+    List<String> items = new ArrayList<String>();
+
+    // items are built verbatim, so the lookup cache is never queried
+    SNACLookupCache lookupCache = new SNACLookupCache(client);
+
+    int end = (int) Math.min((long) offset + limit, indices.length);
+
+    for (int i = Math.max(0, offset); i < end; i++) {
+      if (canceled.getAsBoolean()) {
+        return null;
+      }
+
+      Record record = _project.recordModel.getRecord(indices[i]);
+
+      String recordKey =
+          SNACPreviewCache.recordKey(
+              client.key(), plan.getFingerprint(), plan.getRecordHash(record));
+
+      String preview = previewCache.getRecord(recordKey);
+
+      SNACMetrics.getInstance().recordPreviewLookup("record", preview != null);
+
+      if (preview == null) {
+        SNACAbstractItem item = SNACSchema.newItem(plan, client, lookupCache, record);
+
+        if (item == null) {
+          continue;
+        }
+
+        preview = item.getPreviewText();
+        previewCache.putRecord(recordKey, preview);
+      }
+
+      items.add(preview);
+      onItem.accept(preview);
+    }
+
+    page = new SNACPreviewCache.Page(items, indices.length);
+    previewCache.putPage(pageKey, page);
+
+    return page;
+  }
+
+  private int[] getFilteredIndices() {
+    // indices of the filtered records, filtering the project only once per
+    // history entry and engine config; any page is then a slice of these
+
+    SNACPreviewCache previewCache = SNACPreviewCache.getInstance();
+
+    String key = SNACPreviewCache.indicesKey(_project, _engineConfig);
+
+    int[] indices = previewCache.getIndices(key);
+
+    SNACMetrics.getInstance().recordPreviewLookup("indices", indices != null);
+
+    if (indices != null) {
+      return indices;
+    }
+
+    List<Integer> filtered = new ArrayList<Integer>();
+
+    _schema.visitRecords(
+        _project,
+        _engine,
+        0,
+        0,
+        record -> {
+          filtered.add(record.recordIndex);
+          return false;
+        });
+
+    indices = filtered.stream().mapToInt(Integer::intValue).toArray();
+    previewCache.putIndices(key, indices);
+
+    return indices;
+  }
+}
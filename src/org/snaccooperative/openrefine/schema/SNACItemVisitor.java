@@ -0,0 +1,17 @@
+package org.snaccooperative.openrefine.schema;
+
+import org.snaccooperative.openrefine.exporters.SNACAbstractItem;
+
+public interface SNACItemVisitor {
+
+  // Receives each item built from the filtered records, in record order.
+  // Items are not retained once visited, so a visitor that hands items off
+  // elsewhere controls how many of them are alive at once.
+
+  // called once before the first item, with the number of records that will be
+  // visited, or -1 if that is not known without an extra pass over the records
+  public default void start(int records) {}
+
+  // return true to stop visiting any further records
+  public boolean visit(SNACAbstractItem item);
+}
@@ -0,0 +1,188 @@
+package org.snaccooperative.openrefine.schema;
+
+import com.google.refine.browsing.RecordVisitor;
+import com.google.refine.model.Project;
+import com.google.refine.model.Record;
+import com.google.refine.model.Row;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.snaccooperative.openrefine.cache.SNACLookupCache;
+import org.snaccooperative.openrefine.cache.SNACLookupCache.TermType;
+import org.snaccooperative.openrefine.model.SNACAbstractModel;
+import org.snaccooperative.openrefine.model.SNACAbstractModel.ModelType;
+import org.snaccooperative.openrefine.model.SNACConstellationModel;
+import org.snaccooperative.openrefine.model.SNACModelField;
+import org.snaccooperative.openrefine.model.SNACRelationModel;
+import org.snaccooperative.openrefine.model.SNACResourceModel;
+
+public class SNACLookupPrefetcher implements RecordVisitor {
+
+  // Collects the distinct values of every mapped controlled vocabulary column,
+  // and every mapped constellation or resource ID column, across the filtered
+  // records, so that they can be resolved in bulk before any items are built
+  // against SNAC.
+
+  static final Logger logger = LoggerFactory.getLogger(SNACLookupPrefetcher.class);
+
+  private SNACSchema _schema;
+  private SNACSchemaUtilities _utils;
+
+  // column name => term type, for controlled vocabulary columns only
+  private Map<String, TermType> _termColumns;
+
+  // term type => (lowercased value => value)
+  private Map<TermType, Map<String, String>> _terms;
+
+  // column name => model type, for constellation/resource identifier columns only
+  private Map<String, ModelType> _idColumns;
+
+  private Set<Integer> _constellationIDs;
+  private Set<Integer> _resourceIDs;
+
+  public SNACLookupPrefetcher(SNACSchema schema) {
+    this._schema = schema;
+    this._termColumns = new LinkedHashMap<String, TermType>();
+    this._terms = new EnumMap<TermType, Map<String, String>>(TermType.class);
+    this._idColumns = new LinkedHashMap<String, ModelType>();
+    this._constellationIDs = new LinkedHashSet<Integer>();
+    this._resourceIDs = new LinkedHashSet<Integer>();
+
+    SNACAbstractModel<?> model = getModel(ModelType.fromString(_schema.getSchemaType()));
+
+    if (model == null) {
+      return;
+    }
+
+    for (Map.Entry<String, String> entry : _schema.getColumnMappings().entrySet()) {
+      SNACModelField<?> modelField = model.getModelField(entry.getValue());
+
+      if (modelField == null) {
+        continue;
+      }
+
+      ModelType idType = modelField.getIdentifierType();
+
+      if (idType == ModelType.CONSTELLATION || idType == ModelType.RESOURCE) {
+        _idColumns.put(entry.getKey(), idType);
+        continue;
+      }
+
+      if (!modelField.isControlled()) {
+        continue;
+      }
+
+      TermType termType = modelField.getTermType();
+
+      if (termType == TermType.NONE) {
+        continue;
+      }
+
+      _termColumns.put(entry.getKey(), termType);
+
+      // default values (e.g. place type) are substituted for empty cells when building
+      if (!modelField.getDefaultValue().equals("")) {
+        addTerm(termType, modelField.getDefaultValue());
+      }
+    }
+  }
+
+  private SNACAbstractModel<?> getModel(ModelType modelType) {
+    if (modelType == null) {
+      return null;
+    }
+
+    switch (modelType) {
+      case CONSTELLATION:
+        return new SNACConstellationModel();
+
+      case RELATION:
+        return new SNACRelationModel();
+
+      case RESOURCE:
+        return new SNACResourceModel();
+
+      default:
+        return null;
+    }
+  }
+
+  private void addTerm(TermType termType, String value) {
+    _terms
+        .computeIfAbsent(termType, t -> new LinkedHashMap<String, String>())
+        .putIfAbsent(value.toLowerCase(), value);
+  }
+
+  private void addIdentifier(ModelType idType, String value) {
+    // malformed IDs are reported by the validator; they need no lookup
+    try {
+      Integer id = Integer.parseInt(value);
+
+      if (id <= 0) {
+        return;
+      }
+
+      if (idType == ModelType.CONSTELLATION) {
+        _constellationIDs.add(id);
+      } else {
+        _resourceIDs.add(id);
+      }
+    } catch (NumberFormatException e) {
+      logger.debug("skipping prefetch of malformed id: [" + value + "]");
+    }
+  }
+
+  public Boolean hasLookups() {
+    return _termColumns.size() > 0 || _idColumns.size() > 0;
+  }
+
+  @Override
+  public void start(Project project) {
+    _utils = new SNACSchemaUtilities(project, _schema);
+  }
+
+  @Override
+  public boolean visit(Project project, Record record) {
+    for (int i = record.fromRowIndex; i < record.toRowIndex; i++) {
+      Row row = project.rows.get(i);
+
+      for (Map.Entry<String, TermType> entry : _termColumns.entrySet()) {
+        String cellValue = _utils.getCellValueForRowByColumnName(row, entry.getKey());
+
+        if (cellValue.equals("")) {
+          continue;
+        }
+
+        addTerm(entry.getValue(), cellValue);
+      }
+
+      for (Map.Entry<String, ModelType> entry : _idColumns.entrySet()) {
+        String cellValue = _utils.getCellValueForRowByColumnName(row, entry.getKey());
+
+        if (cellValue.equals("")) {
+          continue;
+        }
+
+        addIdentifier(entry.getValue(), cellValue);
+      }
+    }
+
+    return false;
+  }
+
+  @Override
+  public void end(Project project) {}
+
+  public void prefetch(SNACLookupCache cache, int workers) {
+    for (Map.Entry<TermType, Map<String, String>> entry : _terms.entrySet()) {
+      cache.prefetchTerms(entry.getKey(), entry.getValue().values(), workers);
+    }
+
+    cache.prefetchConstellations(_constellationIDs, workers);
+    cache.prefetchResources(_resourceIDs, workers);
+  }
+}
@@ -0,0 +1,13 @@
+package org.snaccooperative.openrefine.schema;
+
+import com.google.refine.model.Record;
+
+public interface SNACRecordVisitor {
+
+  // Receives each filtered record within the requested range, in record order,
+  // for callers that need the records themselves rather than built items
+  // (e.g. to render previews, or to collect lookups ahead of building).
+
+  // return true to stop visiting any further records
+  public boolean visit(Record record);
+}
@@ -28,7 +28,6 @@ import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import com.google.refine.browsing.Engine;
 import com.google.refine.browsing.Engine.Mode;
-import com.google.refine.browsing.FilteredRecords;
 import com.google.refine.browsing.RecordVisitor;
 import com.google.refine.model.OverlayModel;
 import com.google.refine.model.Project;
@@ -43,11 +42,13 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.snaccooperative.openrefine.api.SNACAPIClient;
 import org.snaccooperative.openrefine.cache.SNACLookupCache;
+import org.snaccooperative.openrefine.cache.SNACValidationCache;
 import org.snaccooperative.openrefine.exporters.SNACAbstractItem;
 import org.snaccooperative.openrefine.exporters.SNACConstellationItem;
 import org.snaccooperative.openrefine.exporters.SNACRelationItem;
 import org.snaccooperative.openrefine.exporters.SNACResourceItem;
 import org.snaccooperative.openrefine.model.SNACAbstractModel.ModelType;
+import org.snaccooperative.openrefine.preferences.SNACPreferencesManager;
 
 @JsonIgnoreProperties(ignoreUnknown = true)
 public class SNACSchema implements OverlayModel {
@@ -91,94 +92,208 @@ public class SNACSchema implements OverlayModel {
   }
 
   public List<SNACAbstractItem> evaluateRecords(Project project, Engine engine, int maxRecords) {
-    Mode prevMode = engine.getMode();
-    engine.setMode(Mode.RecordBased);
+    return evaluateRecords(project, engine, maxRecords, false);
+  }
 
+  public List<SNACAbstractItem> evaluateRecords(
+      Project project, Engine engine, int maxRecords, Boolean prefetchLookups) {
     List<SNACAbstractItem> items = new ArrayList<SNACAbstractItem>();
-    FilteredRecords filteredRecords = engine.getFilteredRecords();
-    filteredRecords.accept(project, new SNACRecordVisitor(items, this, maxRecords));
 
-    engine.setMode(prevMode);
+    visitItems(
+        project,
+        engine,
+        maxRecords,
+        prefetchLookups,
+        item -> {
+          items.add(item);
+          return false;
+        });
 
     return items;
   }
 
-  public String getColumnFromSNACField(String field) {
-    for (Map.Entry<String, String> entry : _columnMappings.entrySet()) {
-      String val = entry.getValue();
-      if (val.equals(field)) {
-        return entry.getKey();
-      }
-    }
+  public List<SNACAbstractItem> evaluateRecordPage(
+      Project project, Engine engine, int offset, int limit) {
+    // items for filtered records [offset, offset + limit), e.g. one page of a preview
+    List<SNACAbstractItem> items = new ArrayList<SNACAbstractItem>();
 
-    return null;
+    visitItems(
+        project,
+        engine,
+        offset,
+        limit,
+        false,
+        item -> {
+          items.add(item);
+          return false;
+        });
+
+    return items;
   }
 
-  public String getSNACFieldFromColumn(String column) {
-    return _columnMappings.get(column);
+  public void visitItems(
+      Project project,
+      Engine engine,
+      int maxRecords,
+      Boolean prefetchLookups,
+      SNACItemVisitor visitor) {
+    visitItems(project, engine, 0, maxRecords, prefetchLookups, visitor);
   }
 
-  private class SNACRecordVisitor implements RecordVisitor {
+  public void visitItems(
+      Project project,
+      Engine engine,
+      int offset,
+      int maxRecords,
+      Boolean prefetchLookups,
+      SNACItemVisitor visitor) {
+    // builds one item per filtered record and hands it straight to the visitor,
+    // so that callers can process items as they are built instead of holding
+    // every item for the whole project in memory
 
-    final Logger logger = LoggerFactory.getLogger(SNACRecordVisitor.class);
+    SNACPreferencesManager prefsManager = SNACPreferencesManager.getInstance();
 
-    private List<SNACAbstractItem> _items;
-    private SNACSchema _schema;
-    private SNACAPIClient _client;
-    private SNACLookupCache _cache;
-    private int _maxRecords;
+    SNACAPIClient client = new SNACAPIClient();
+    SNACLookupCache cache = new SNACLookupCache(client);
 
-    public SNACRecordVisitor(List<SNACAbstractItem> items, SNACSchema schema) {
-      this(items, schema, 0);
+    if (prefsManager.usePersistentTermStore()) {
+      cache.usePersistentTerms(prefsManager.getCacheDirectory(), prefsManager.getTermStoreTTL());
     }
 
-    public SNACRecordVisitor(List<SNACAbstractItem> items, SNACSchema schema, int maxRecords) {
-      this._items = items;
-      this._schema = schema;
-      this._maxRecords = maxRecords;
-
-      this._client = new SNACAPIClient();
-      this._cache = new SNACLookupCache(this._client);
+    cache.setNegativeTermTTL(prefsManager.getNegativeTermCacheTTL());
+
+    SNACValidationCache.getInstance().setTTL(prefsManager.getValidationCacheTTL());
+
+    // when items will be validated against SNAC, warm the lookup cache first with a
+    // single pass over the records, so that item building only ever hits the cache.
+    // that pass also counts the records, for progress reporting
+    int records = -1;
+
+    if (prefetchLookups) {
+      SNACLookupPrefetcher prefetcher = new SNACLookupPrefetcher(this);
+      if (prefetcher.hasLookups()) {
+        int[] count = {0};
+
+        prefetcher.start(project);
+        visitRecords(
+            project,
+            engine,
+            0,
+            0,
+            record -> {
+              count[0]++;
+              return prefetcher.visit(project, record);
+            });
+        prefetcher.prefetch(cache, prefsManager.getLookupWorkers());
+
+        records = Math.max(0, count[0] - Math.max(0, offset));
+        if (maxRecords > 0) {
+          records = Math.min(records, maxRecords);
+        }
+      }
     }
 
-    @Override
-    public void start(Project project) {}
+    visitor.start(records);
 
-    @Override
-    @SuppressWarnings("deprecation")
-    public boolean visit(Project project, Record record) {
-      if (_maxRecords > 0 && _items.size() >= _maxRecords) {
-        return true;
-      }
+    // column mappings are resolved against the project once, not per item
+    SNACSchemaPlan plan = new SNACSchemaPlan(project, this);
 
-      SNACAbstractItem item;
+    visitRecords(
+        project,
+        engine,
+        offset,
+        maxRecords,
+        record -> {
+          SNACAbstractItem item = newItem(plan, client, cache, record);
 
-      ModelType modelType = ModelType.fromString(_schema.getSchemaType());
+          if (item == null) {
+            return false;
+          }
 
-      switch (modelType) {
-        case CONSTELLATION:
-          item = new SNACConstellationItem(project, _schema, _client, _cache, record);
-          break;
+          return visitor.visit(item);
+        });
+  }
 
-        case RELATION:
-          item = new SNACRelationItem(project, _schema, _client, _cache, record);
-          break;
+  public void visitRecords(
+      Project project, Engine engine, int offset, int maxRecords, SNACRecordVisitor visitor) {
+    // hands the filtered records [offset, offset + maxRecords) to the visitor;
+    // a maxRecords of zero or less means no limit.  records before the offset
+    // are only filtered, never handed over
 
-        case RESOURCE:
-          item = new SNACResourceItem(project, _schema, _client, _cache, record);
-          break;
+    Mode prevMode = engine.getMode();
+    engine.setMode(Mode.RecordBased);
 
-        default:
-          return false;
-      }
+    try {
+      engine
+          .getFilteredRecords()
+          .accept(
+              project,
+              new RecordVisitor() {
+                private int _skipped = 0;
+                private int _visited = 0;
+
+                @Override
+                public void start(Project project) {}
+
+                @Override
+                public boolean visit(Project project, Record record) {
+                  if (maxRecords > 0 && _visited >= maxRecords) {
+                    return true;
+                  }
+
+                  if (_skipped < offset) {
+                    _skipped++;
+                    return false;
+                  }
+
+                  _visited++;
+
+                  return visitor.visit(record);
+                }
+
+                @Override
+                public void end(Project project) {}
+              });
+    } finally {
+      engine.setMode(prevMode);
+    }
+  }
 
-      _items.add(item);
+  @SuppressWarnings("deprecation")
+  public static SNACAbstractItem newItem(
+      SNACSchemaPlan plan, SNACAPIClient client, SNACLookupCache cache, Record record) {
+    // builds the item for one record, or null for an unknown schema type
 
-      return false;
+    ModelType modelType = ModelType.fromString(plan.getSchema().getSchemaType());
+
+    switch (modelType) {
+      case CONSTELLATION:
+        return new SNACConstellationItem(plan, client, cache, record);
+
+      case RELATION:
+        return new SNACRelationItem(plan, client, cache, record);
+
+      case RESOURCE:
+        return new SNACResourceItem(plan, client, cache, record);
+
+      default:
+        return null;
     }
+  }
 
-    @Override
-    public void end(Project project) {}
+  public String getColumnFromSNACField(String field) {
+    for (Map.Entry<String, String> entry : _columnMappings.entrySet()) {
+      String val = entry.getValue();
+      if (val.equals(field)) {
+        return entry.getKey();
+      }
+    }
+
+    return null;
+  }
+
+  public String getSNACFieldFromColumn(String column) {
+    return _columnMappings.get(column);
   }
 
   public static SNACSchema reconstruct(String json) throws IOException {
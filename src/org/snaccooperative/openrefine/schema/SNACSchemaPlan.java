@@ -0,0 +1,244 @@
+package org.snaccooperative.openrefine.schema;
+
+import com.google.refine.model.Column;
+import com.google.refine.model.Project;
+import com.google.refine.model.Record;
+import com.google.refine.model.Row;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import org.snaccooperative.openrefine.model.SNACAbstractModel;
+import org.snaccooperative.openrefine.model.SNACAbstractModel.ModelType;
+import org.snaccooperative.openrefine.model.SNACModelFieldType;
+
+public class SNACSchemaPlan {
+
+  // Column mappings of a schema resolved against a project's columns, built once
+  // per evaluation so that item building reads cells by index, and finds the
+  // column for a SNAC field, without any per-cell column model or mapping scans.
+
+  public static class Mapping {
+    private final String _column;
+    private final String _field;
+    private final int _cellIndex;
+
+    private Mapping(String column, String field, int cellIndex) {
+      this._column = column;
+      this._field = field;
+      this._cellIndex = cellIndex;
+    }
+
+    public String getColumn() {
+      return _column;
+    }
+
+    public String getField() {
+      return _field;
+    }
+
+    public int getCellIndex() {
+      return _cellIndex;
+    }
+  }
+
+  private final Project _project;
+  private final SNACSchema _schema;
+
+  // in schema mapping order
+  private final List<Mapping> _mappings;
+
+  // column name => cell index, for mapped columns that exist in the project
+  private final Map<String, Integer> _cellIndexByColumn;
+
+  // SNAC field name (as mapped) => column name
+  private final Map<String, String> _columnByField;
+
+  // model type => field type of each mapping (in mapping order), resolved on first use
+  private final Map<ModelType, List<?>> _fieldTypesByModel;
+
+  // mappings sorted by column name, for hashing
+  private final List<Mapping> _sortedMappings;
+
+  private volatile String _fingerprint;
+
+  public SNACSchemaPlan(Project project, SNACSchema schema) {
+    this._project = project;
+    this._schema = schema;
+
+    this._mappings = new ArrayList<Mapping>();
+    this._cellIndexByColumn = new HashMap<String, Integer>();
+    this._columnByField = new HashMap<String, String>();
+    this._fieldTypesByModel = new ConcurrentHashMap<ModelType, List<?>>();
+    this._sortedMappings = new ArrayList<Mapping>();
+
+    if (schema.getColumnMappings() == null) {
+      return;
+    }
+
+    for (Map.Entry<String, String> entry : schema.getColumnMappings().entrySet()) {
+      String column = entry.getKey();
+      String field = entry.getValue();
+
+      Column projectColumn = project.columnModel.getColumnByName(column);
+      int cellIndex = (projectColumn == null ? -1 : projectColumn.getCellIndex());
+
+      _mappings.add(new Mapping(column, field, cellIndex));
+
+      if (cellIndex >= 0) {
+        _cellIndexByColumn.put(column, cellIndex);
+      }
+
+      // same as SNACSchema.getColumnFromSNACField(): first mapping wins
+      _columnByField.putIfAbsent(field, column);
+    }
+
+    _sortedMappings.addAll(_mappings);
+    _sortedMappings.sort((a, b) -> a.getColumn().compareTo(b.getColumn()));
+  }
+
+  public Project getProject() {
+    return _project;
+  }
+
+  public SNACSchema getSchema() {
+    return _schema;
+  }
+
+  public String getFingerprint() {
+    // hash of the schema type and its column mappings, identifying results
+    // (e.g. validations) that only hold for this exact schema
+
+    if (_fingerprint == null) {
+      _fingerprint = computeFingerprint();
+    }
+
+    return _fingerprint;
+  }
+
+  private String computeFingerprint() {
+    MessageDigest digest = newDigest();
+
+    digest.update(String.valueOf(_schema.getSchemaType()).getBytes(StandardCharsets.UTF_8));
+    digest.update((byte) '\n');
+
+    for (Mapping mapping : _sortedMappings) {
+      digest.update(mapping.getColumn().getBytes(StandardCharsets.UTF_8));
+      digest.update((byte) 0);
+      digest.update(mapping.getField().getBytes(StandardCharsets.UTF_8));
+      digest.update((byte) '\n');
+    }
+
+    return toHex(digest.digest());
+  }
+
+  public String getRecordHash(Record record) {
+    // hash of the record's values in every mapped column; records with equal
+    // hashes under the same fingerprint build identical items
+
+    MessageDigest digest = newDigest();
+
+    for (int i = record.fromRowIndex; i < record.toRowIndex; i++) {
+      Row row = _project.rows.get(i);
+
+      for (Mapping mapping : _sortedMappings) {
+        digest.update(mapping.getColumn().getBytes(StandardCharsets.UTF_8));
+        digest.update((byte) 0);
+        digest.update(getCellValue(row, mapping.getCellIndex()).getBytes(StandardCharsets.UTF_8));
+        digest.update((byte) 0);
+      }
+
+      digest.update((byte) '\n');
+    }
+
+    return toHex(digest.digest());
+  }
+
+  private static MessageDigest newDigest() {
+    try {
+      return MessageDigest.getInstance("SHA-256");
+    } catch (NoSuchAlgorithmException e) {
+      // every Java platform is required to support SHA-256
+      throw new IllegalStateException(e);
+    }
+  }
+
+  private static String toHex(byte[] bytes) {
+    StringBuilder hex = new StringBuilder(bytes.length * 2);
+
+    for (byte b : bytes) {
+      hex.append(Character.forDigit((b >> 4) & 0xf, 16));
+      hex.append(Character.forDigit(b & 0xf, 16));
+    }
+
+    return hex.toString();
+  }
+
+  public List<Mapping> getMappings() {
+    return Collections.unmodifiableList(_mappings);
+  }
+
+  @SuppressWarnings("unchecked")
+  public <E extends Enum<E> & SNACModelFieldType> List<E> getFieldTypes(
+      SNACAbstractModel<E> model) {
+    // field types of the mappings, parallel to getMappings()
+
+    return (List<E>)
+        _fieldTypesByModel.computeIfAbsent(
+            model.getType(),
+            type -> {
+              List<E> fieldTypes = new ArrayList<E>(_mappings.size());
+
+              for (Mapping mapping : _mappings) {
+                fieldTypes.add(model.getFieldType(mapping.getField()));
+              }
+
+              return Collections.unmodifiableList(fieldTypes);
+            });
+  }
+
+  public int getCellIndex(String column) {
+    if (column == null) {
+      return -1;
+    }
+
+    Integer cellIndex = _cellIndexByColumn.get(column);
+
+    if (cellIndex == null) {
+      return -1;
+    }
+
+    return cellIndex;
+  }
+
+  public String getColumnForField(String field) {
+    return _columnByField.get(field);
+  }
+
+  public int getCellIndexForField(String field) {
+    return getCellIndex(getColumnForField(field));
+  }
+
+  public String getCellValue(Row row, int cellIndex) {
+    if (cellIndex < 0) {
+      return "";
+    }
+
+    Object cellValue = row.getCellValue(cellIndex);
+
+    if (cellValue == null) {
+      return "";
+    }
+
+    return cellValue.toString().trim();
+  }
+
+  public String getCellValue(Row row, String column) {
+    return getCellValue(row, getCellIndex(column));
+  }
+}
@@ -1,6 +1,5 @@
 package org.snaccooperative.openrefine.schema;
 
-import com.google.refine.model.Column;
 import com.google.refine.model.Project;
 import com.google.refine.model.Row;
 import org.slf4j.Logger;
@@ -10,47 +9,33 @@ public class SNACSchemaUtilities {
 
   static final Logger logger = LoggerFactory.getLogger(SNACSchemaUtilities.class);
 
-  private Project _project;
-  private SNACSchema _schema;
+  private SNACSchemaPlan _plan;
 
   public SNACSchemaUtilities(Project project, SNACSchema schema) {
-    this._project = project;
-    this._schema = schema;
+    this(new SNACSchemaPlan(project, schema));
   }
 
-  // openrefine row/column/cell helpers
-
-  private int getCellIndexForRowByColumnName(Row row, String name) {
-    Column column = _project.columnModel.getColumnByName(name);
-
-    if (column == null) {
-      return -1;
-    }
-
-    return column.getCellIndex();
+  public SNACSchemaUtilities(SNACSchemaPlan plan) {
+    this._plan = plan;
   }
 
-  private String getCellValueForRowByCellIndex(Row row, int cellIndex) {
-    if (cellIndex < 0) {
-      return "";
-    }
-
-    Object cellValue = row.getCellValue(cellIndex);
+  public SNACSchemaPlan getPlan() {
+    return _plan;
+  }
 
-    if (cellValue == null) {
-      return "";
-    }
+  // openrefine row/column/cell helpers
 
-    return cellValue.toString().trim();
+  public String getCellValueForRowByCellIndex(Row row, int cellIndex) {
+    return _plan.getCellValue(row, cellIndex);
   }
 
   public String getCellValueForRowByColumnName(Row row, String name) {
-    int cellIndex = getCellIndexForRowByColumnName(row, name);
+    return _plan.getCellValue(row, name);
+  }
 
-    if (cellIndex < 0) {
-      return "";
-    }
+  // schema helpers
 
-    return getCellValueForRowByCellIndex(row, cellIndex);
+  public String getColumnForField(String field) {
+    return _plan.getColumnForField(field);
   }
 }
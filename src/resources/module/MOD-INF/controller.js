@@ -35,12 +35,14 @@ function init() {
      */
     RefineServlet.registerCommand(module, "save-schema", new SNACSaveSchemaCommand());
     RefineServlet.registerCommand(module, "preview-schema", new SNACPreviewSchemaCommand());
+    RefineServlet.registerCommand(module, "preview-job", new SNACPreviewJobCommand());
     RefineServlet.registerCommand(module, "migrate-schema", new SNACMigrateSchemaCommand());
     RefineServlet.registerCommand(module, "perform-uploads", new SNACPerformUploadsCommand());
     RefineServlet.registerCommand(module, "perform-validation", new SNACPerformValidationCommand());
     RefineServlet.registerCommand(module, "export-json", new SNACExportJSONCommand());
     RefineServlet.registerCommand(module, "preferences", new SNACPreferencesCommand());
     RefineServlet.registerCommand(module, "get-model", new SNACGetModelCommand());
+    RefineServlet.registerCommand(module, "metrics", new SNACMetricsCommand());
 
     /*
      * Resources
@@ -109,6 +109,7 @@ SNACManagePreferencesDialog.display = function(data, callback) {
   this._elmts.snacKeyProd.attr("placeholder", $.i18n('snac-preferences/key-placeholder').replace('{environment}', data.prod.name));
   this._elmts.snacLabelMaxPreviewItems.text($.i18n('snac-preferences/max-preview-items'));
   this._elmts.snacLabelIncludeAPIResponse.text($.i18n('snac-preferences/include-api-response'));
+  this._elmts.snacLabelUploadWorkers.text($.i18n('snac-preferences/upload-workers'));
   this._elmts.snacExtensionVersion.text($.i18n('snac-preferences/extension-version'));
   this._elmts.cancelButton.text($.i18n('snac-preferences/close'));
   this._elmts.saveButton.text($.i18n('snac-preferences/save'));
@@ -152,6 +153,10 @@ SNACManagePreferencesDialog.display = function(data, callback) {
 
   elmts.snacIncludeAPIResponse.prop('checked', data.upload.api_response);
 
+  elmts.snacUploadWorkers
+    .attr('max', data.upload.max_workers)
+    .val(data.upload.workers);
+
   this._level = DialogSystem.showDialog(frame);
 
   $('input[name="snacenv"]').on('change', function() {
@@ -41,6 +41,7 @@ SNACManageUploadDialog.display = function(data, callback) {
   );
   this._elmts.uploadExplanation.html($.i18n('snac-upload/upload-explanation'));
   this._elmts.uploadDetails.html($.i18n('snac-upload/upload-details'));
+  this._elmts.snacUploadResumeLabel.text($.i18n('snac-upload/resume'));
   this._elmts.cancelButton.text($.i18n('snac-upload/close'));
   this._elmts.uploadButton.text($.i18n('snac-upload/upload'));
 
@@ -59,7 +60,7 @@ SNACManageUploadDialog.display = function(data, callback) {
     Refine.postProcess(
       "snac",
       "perform-uploads",
-      {},
+      { resume: elmts.snacUploadResume.is(':checked') },
       {},
       { includeEngine: true, cellsChanged: true, columnStatsChanged: true },
       { onDone:
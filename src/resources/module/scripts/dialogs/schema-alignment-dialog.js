@@ -299,8 +299,19 @@ SNACSchemaAlignmentDialog.setupTabs = function() {
    var previewElmts = this._previewElmts = DOM.bind(previewTab);
    previewElmts.reloadPreviewButton
       .text($.i18n('snac-schema/reload-preview-button'))
-      .on('click', function() { _this.preview(); });
-   this.updateItemPreviewText("item", 0, 0);
+      .on('click', function() { _this.preview(_this._previewOffset); });
+   previewElmts.previousPreviewButton
+      .text($.i18n('snac-schema/previous-preview-button'))
+      .on('click', function() { _this.preview(_this._previewOffset - _this._previewLimit); });
+   previewElmts.nextPreviewButton
+      .text($.i18n('snac-schema/next-preview-button'))
+      .on('click', function() { _this.preview(_this._previewOffset + _this._previewLimit); });
+   this._previewOffset = 0;
+   this._previewLimit = 0;
+   this._previewJob = null;
+   this._previewGeneration = 0;
+   this.updatePreviewPaging(0);
+   this.updateItemPreviewText("item", 0, 0, 0);
 
    this._previewPanes = $('.snac-schema-alignment-dialog-preview');
 
@@ -868,24 +879,52 @@ SNACSchemaAlignmentDialog.hasChanged = function() {
    this.evaluateCurrentSchema(true);
 }
 
-SNACSchemaAlignmentDialog.updateItemPreviewText = function(itemType, itemCount, totalCount) {
+SNACSchemaAlignmentDialog.updateItemPreviewText = function(itemType, offset, itemCount, totalCount) {
    snacDebug(`***** [ updateItemPreviewText ] *****`);
 
+   var explanation;
+
+   if (offset > 0 && itemCount > 0) {
+      explanation = $.i18n('snac-schema/preview-page-explanation')
+         .replace('{first}', offset + 1)
+         .replace('{last}', offset + itemCount);
+   } else {
+      explanation = $.i18n('snac-schema/preview-explanation')
+         .replace('{preview_count}', itemCount);
+   }
+
    this._previewElmts.previewExplanation.text(
-      $.i18n('snac-schema/preview-explanation')
+      explanation
          .replace('{preview_type}', itemType)
-         .replace('{preview_count}', itemCount)
          .replace('{total_count}', totalCount));
    this._previewElmts.previewNote.html($.i18n('snac-schema/preview-note'));
 }
 
-SNACSchemaAlignmentDialog.preview = function() {
+SNACSchemaAlignmentDialog.updatePreviewPaging = function(totalCount) {
+   var hasPrevious = this._previewOffset > 0;
+   var hasNext = this._previewLimit > 0 && this._previewOffset + this._previewLimit < totalCount;
+
+   this._previewElmts.previousPreviewButton
+      .prop('disabled', !hasPrevious)
+      .toggleClass('disabled', !hasPrevious);
+   this._previewElmts.nextPreviewButton
+      .prop('disabled', !hasNext)
+      .toggleClass('disabled', !hasNext);
+}
+
+SNACSchemaAlignmentDialog.preview = function(offset) {
    snacDebug(`***** [ preview ] *****`);
 
    var _this = this;
 
+   // stop polling for the previous page; the server cancels its job when this one starts
+   this._previewJob = null;
+   var generation = ++this._previewGeneration;
+
+   this._previewOffset = Math.max(0, offset || 0);
    this._previewPanes.empty();
-   this.updateItemPreviewText("item", 0, 0);
+   this.updatePreviewPaging(0);
+   this.updateItemPreviewText("item", 0, 0, 0);
 //   this.issueSpinner.show();
    this.previewSpinner.show();
    var schema = this.getSchema();
@@ -893,29 +932,89 @@ SNACSchemaAlignmentDialog.preview = function() {
       return;
    }
 
-   Refine.postCSRF(
-      "command/snac/preview-schema?" + $.param({ project: theProject.id }),
-      { schema: JSON.stringify(schema), engine: JSON.stringify(ui.browsingEngine.getJSON()) },
-      function(data) {
-         //_this.issueSpinner.hide();
-         _this.previewSpinner.hide();
+   // rendering runs as a background job on the server; its items are fetched
+   // as they are rendered, until the job has finished
 
-         if ('preview' in data) {
-            var previewContainer = _this._previewPanes[0];
+   var previewContainer = this._previewPanes[0];
+   var count = 0;
 
-            data.preview.forEach(function(item) {
-              $('<hr>').appendTo(previewContainer);
-              $('<p></p>').html(item).appendTo(previewContainer);
-            });
+   var showItems = function(job) {
+      job.preview.forEach(function(item) {
+        $('<hr>').appendTo(previewContainer);
+        $('<p></p>').html(item).appendTo(previewContainer);
+      });
+
+      count += job.preview.length;
+
+      snacDebug(`preview(): added ${job.preview.length} items`);
+   };
+
+   var poll = function(job) {
+      if (_this._previewJob === null || _this._previewJob.job_id !== job.job_id) {
+         // superseded by a newer preview
+         return;
+      }
+
+      $.getJSON(
+         "command/snac/preview-job",
+         { job_id: job.job_id, from: count },
+         function(data) {
+            if (_this._previewJob === null || _this._previewJob.job_id !== job.job_id) {
+               return;
+            }
 
-            $('<hr>').appendTo(previewContainer);
+            if (data.code === 'error') {
+               _this._previewJob = null;
+               _this.previewSpinner.hide();
+               return;
+            }
 
-            _this.updateItemPreviewText(schema.schemaType, data.preview.length, data.total);
+            _this._previewJob = data;
+
+            showItems(data);
+
+            if (data.status === 'pending' || data.status === 'running') {
+               setTimeout(function() { poll(data); }, 250);
+               return;
+            }
+
+            //_this.issueSpinner.hide();
+            _this.previewSpinner.hide();
+
+            if (count > 0) {
+               $('<hr>').appendTo(previewContainer);
+            }
+
+            _this.updateItemPreviewText(schema.schemaType, data.offset, count, data.total);
+            _this.updatePreviewPaging(data.total);
+
+            //_this.updateWarnings([], 0);
+         }
+      );
+   };
+
+   Refine.postCSRF(
+      "command/snac/preview-job?" + $.param({ project: theProject.id }),
+      {
+         schema: JSON.stringify(schema),
+         engine: JSON.stringify(ui.browsingEngine.getJSON()),
+         offset: this._previewOffset
+      },
+      function(data) {
+         if (generation !== _this._previewGeneration) {
+            // superseded by a newer preview
+            return;
+         }
+
+         if (!('job_id' in data)) {
+            _this.previewSpinner.hide();
+            return;
          }
 
-         snacDebug(`preview(): added ${data.preview.length} items`);
+         _this._previewLimit = data.limit;
+         _this._previewJob = data;
 
-         //_this.updateWarnings([], 0);
+         poll(data);
       },
       "json"
    );
@@ -29,12 +29,18 @@ ExporterManager.MenuItems.push(
             label: $.i18n('snac-extension/export-to-json'),
             click: function() { SNACExporterMenuBar.checkSchemaAndExport(); }
         });
+ExporterManager.MenuItems.push(
+        {
+            id:"exportSNACNDJson",
+            label: $.i18n('snac-extension/export-to-ndjson'),
+            click: function() { SNACExporterMenuBar.checkSchemaAndExport(SNACExporterMenuBar.exportNDJSON); }
+        });
 
 SNACExporterMenuBar = {};
 
-SNACExporterMenuBar.checkSchemaAndExport = function() {
+SNACExporterMenuBar.checkSchemaAndExport = function(exporter) {
   var onSaved = function(callback) {
-     SNACExporterMenuBar.exportJSON();
+     (exporter || SNACExporterMenuBar.exportJSON)();
   };
 
   if (!SNACSchemaAlignmentDialog.isSetUp()) {
@@ -75,6 +81,35 @@ SNACExporterMenuBar.exportJSON = function() {
    );
 }
 
+SNACExporterMenuBar.exportNDJSON = function() {
+   var schema = theProject.overlayModels.snacSchema;
+
+   if (!schema) {
+      alert("Cannot export until a SNAC schema is saved");
+      return;
+   }
+
+   // submit a form rather than an ajax request, so that the browser streams
+   // the (possibly very large) compressed export straight to a file
+   var form = $('<form></form>')
+      .css("display", "none")
+      .attr("method", "post")
+      .attr("action", "command/snac/export-json?" + $.param({ project: theProject.id }));
+
+   var addField = function(name, value) {
+      $('<input />').attr("type", "hidden").attr("name", name).val(value).appendTo(form);
+   };
+
+   addField("schema", JSON.stringify(schema));
+   addField("engine", JSON.stringify(ui.browsingEngine.getJSON()));
+   addField("format", "ndjson");
+   addField("gzip", "true");
+
+   form.appendTo(document.body);
+   form[0].submit();
+   form.remove();
+}
+
 //extend the column header menu
 $(function(){
     ExtensionBar.MenuItems.push(
@@ -108,6 +143,11 @@ $(function(){
                     label: $.i18n('snac-extension/export-to-json'),
                     click: function() { SNACExporterMenuBar.checkSchemaAndExport(); }
                 },
+                {
+                    id:"snac/export-schema-ndjson",
+                    label: $.i18n('snac-extension/export-to-ndjson'),
+                    click: function() { SNACExporterMenuBar.checkSchemaAndExport(SNACExporterMenuBar.exportNDJSON); }
+                },
             ]
         }
     );
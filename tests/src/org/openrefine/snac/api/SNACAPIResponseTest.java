@@ -0,0 +1,311 @@
+package org.openrefine.snac.api;
+
+import java.util.ArrayList;
+import java.util.List;
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.snaccooperative.data.Term;
+import org.snaccooperative.openrefine.api.SNACAPIClient;
+import org.snaccooperative.openrefine.api.SNACAPIResponse;
+import org.snaccooperative.openrefine.preferences.SNACEnvironment;
+import org.testng.Assert;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+public class SNACAPIResponseTest {
+
+  private final SNACAPIClient _client =
+      new SNACAPIClient(
+          new SNACEnvironment(
+              "dev", "Development", "https://snac-dev.example.org/", "https://api.example.org/"));
+
+  private SNACAPIResponse parse(String apiResponse) {
+    return new SNACAPIResponse(_client, apiResponse);
+  }
+
+  @Test
+  public void testSuccessWithMessage() {
+    SNACAPIResponse response =
+        parse("{\"result\": \"success-notice\", \"message\": {\"text\": \"Published\"}}");
+
+    Assert.assertEquals(response.getResult(), "success-notice");
+    Assert.assertEquals(response.getMessage(), "Published");
+    Assert.assertTrue(response.isSuccess());
+    Assert.assertNull(response.getHitCount());
+    Assert.assertNull(response.getTerms());
+  }
+
+  @Test
+  public void testErrorTypeAndMessage() {
+    SNACAPIResponse response =
+        parse("{\"error\": {\"type\": \"Permission Error\", \"message\": \"not allowed\"}}");
+
+    Assert.assertEquals(response.getResult(), "error");
+    Assert.assertEquals(response.getMessage(), "Permission Error - not allowed");
+    Assert.assertFalse(response.isSuccess());
+  }
+
+  @Test
+  public void testErrorMessageOnly() {
+    SNACAPIResponse response = parse("{\"error\": {\"message\": \"not allowed\"}}");
+
+    Assert.assertEquals(response.getResult(), "error");
+    Assert.assertEquals(response.getMessage(), "not allowed");
+  }
+
+  @Test
+  public void testElasticHitCount() {
+    SNACAPIResponse response =
+        parse("{\"results\": {\"took\": 3, \"hits\": {\"total\": {\"value\": 7}, \"hits\": []}}}");
+
+    Assert.assertEquals(response.getResult(), "success");
+    Assert.assertEquals(response.getHitCount(), Integer.valueOf(7));
+  }
+
+  @Test
+  public void testElasticLegacyHitCount() {
+    SNACAPIResponse response = parse("{\"results\": {\"hits\": {\"total\": 2}}}");
+
+    Assert.assertEquals(response.getHitCount(), Integer.valueOf(2));
+  }
+
+  @Test
+  public void testVocabularyTerms() {
+    SNACAPIResponse response =
+        parse(
+            "{\"result\": \"success\", \"results\": ["
+                + "{\"id\": \"400479\", \"type\": \"entity_type\", \"term\": \"person\","
+                + " \"description\": null},"
+                + " 17,"
+                + " {\"type\": \"entity_type\", \"term\": \"family\", \"extra\": {\"a\": [1]}}]}");
+
+    Assert.assertEquals(response.getResult(), "success");
+
+    List<Term> terms = response.getTerms();
+
+    Assert.assertEquals(terms.size(), 3);
+    Assert.assertEquals(terms.get(0).getType(), "entity_type");
+    Assert.assertEquals(terms.get(0).getTerm(), "person");
+    Assert.assertNull(terms.get(1));
+    Assert.assertEquals(terms.get(2).getTerm(), "family");
+  }
+
+  @Test
+  public void testRelatedConstellationsImpliesSuccess() {
+    SNACAPIResponse response = parse("{\"related_constellations\": []}");
+
+    Assert.assertEquals(response.getResult(), "success");
+    Assert.assertNull(response.getResource());
+    Assert.assertEquals(response.getID(), 0);
+  }
+
+  @Test
+  public void testUnknownResult() {
+    SNACAPIResponse response = parse("{\"timing\": 12}");
+
+    Assert.assertEquals(response.getResult(), "unknown");
+    Assert.assertEquals(response.getMessage(), "Unable to determine result");
+  }
+
+  @Test
+  public void testExceptionText() {
+    String text = "java.net.SocketTimeoutException: Read timed out";
+
+    SNACAPIResponse response = parse(text);
+
+    Assert.assertEquals(response.getResult(), "exception");
+    Assert.assertEquals(response.getMessage(), text);
+    Assert.assertEquals(response.getAPIResponse(), text);
+  }
+
+  @Test
+  public void testWithoutClient() {
+    SNACAPIResponse response = new SNACAPIResponse("{\"result\": \"success\"}");
+
+    Assert.assertEquals(response.getResult(), "{\"result\": \"success\"}");
+  }
+
+  // Golden comparison against the org.json reading of responses that the
+  // streaming parser replaced: result and message as SNACAPIResponse derived
+  // them, plus the elastic hit count and vocabulary terms as the lookup caches
+  // extracted them.
+
+  private static String legacySummary(String apiResponse) {
+    JSONObject json;
+
+    try {
+      json = new JSONObject(apiResponse);
+    } catch (JSONException e) {
+      return summary("exception", apiResponse, null, null);
+    }
+
+    String result;
+    String message = "";
+
+    Object resultField = json.opt("result");
+    Object messageField = json.opt("message");
+    Object errorField = json.opt("error");
+
+    if (resultField instanceof String) {
+      result = resultField.toString();
+      if (messageField instanceof JSONObject) {
+        message = ((JSONObject) messageField).optString("text", "");
+      }
+    } else if (errorField instanceof JSONObject) {
+      String errorType = ((JSONObject) errorField).optString("type", "");
+      String errorMessage = ((JSONObject) errorField).optString("message", "");
+
+      result = "error";
+      if (!errorType.equals("")) {
+        message = errorType;
+        if (!errorMessage.equals("")) {
+          message += " - " + errorMessage;
+        }
+      } else {
+        message = errorMessage;
+      }
+    } else if ((json.opt("results") instanceof JSONObject)
+        || (json.opt("related_constellations") instanceof JSONArray)) {
+      result = "success";
+    } else {
+      result = "unknown";
+      message = "Unable to determine result";
+    }
+
+    Integer hitCount = null;
+
+    if (result.toLowerCase().contains("success")) {
+      try {
+        JSONObject results = (JSONObject) json.get("results");
+        JSONObject hits = (JSONObject) results.get("hits");
+        JSONObject total = (JSONObject) hits.get("total");
+        hitCount = ((Number) total.get("value")).intValue();
+      } catch (JSONException | ClassCastException e) {
+        hitCount = null;
+      }
+    }
+
+    List<String> terms = null;
+    JSONArray results = json.optJSONArray("results");
+
+    if (results != null) {
+      terms = new ArrayList<String>();
+      for (int i = 0; i < results.length(); i++) {
+        JSONObject term = results.optJSONObject(i);
+        if (term == null) {
+          terms.add(null);
+        } else {
+          terms.add(
+              term.optString("type", null)
+                  + "/"
+                  + term.optString("term", null)
+                  + "/"
+                  + term.optString("description", null));
+        }
+      }
+    }
+
+    return summary(result, message, hitCount, terms);
+  }
+
+  private String streamingSummary(String apiResponse) {
+    SNACAPIResponse response = parse(apiResponse);
+
+    List<String> terms = null;
+
+    if (response.getTerms() != null) {
+      terms = new ArrayList<String>();
+      for (Term term : response.getTerms()) {
+        if (term == null) {
+          terms.add(null);
+        } else {
+          terms.add(term.getType() + "/" + term.getTerm() + "/" + term.getDescription());
+        }
+      }
+    }
+
+    Integer hitCount = (response.isSuccess() ? response.getHitCount() : null);
+
+    return summary(response.getResult(), response.getMessage(), hitCount, terms);
+  }
+
+  private static String summary(
+      String result, String message, Integer hitCount, List<String> terms) {
+    return "result=["
+        + result
+        + "] message=["
+        + message
+        + "] hits=["
+        + hitCount
+        + "] terms="
+        + terms;
+  }
+
+  @DataProvider(name = "goldenResponses")
+  public Object[][] goldenResponses() {
+    return new Object[][] {
+      {"{\"result\": \"success\", \"message\": {\"text\": \"Saved\"}}"},
+      {"{\"result\": \"success-notice\"}"},
+      {"{\"result\": \"success\", \"message\": \"not an object\"}"},
+      {"{\"result\": \"success\", \"message\": {\"text\": null}}"},
+      {"{\"result\": \"success\", \"message\": {\"text\": \"caf\\u00e9 \\\"q\\\"\"}}"},
+      {"{\"result\": \"error\", \"error\": {\"type\": \"ignored\"}}"},
+      {"{\"result\": 5}"},
+      {"{\"error\": {\"type\": \"Permission Error\", \"message\": \"not allowed\"}}"},
+      {"{\"error\": {\"message\": \"only a message\"}}"},
+      {"{\"error\": {\"type\": \"only a type\", \"message\": null}}"},
+      {"{\"error\": \"not an object\"}"},
+      {"{\"results\": {\"took\": 1, \"hits\": {\"total\": {\"value\": 3, \"relation\": \"eq\"}}}}"},
+      {"{\"results\": {\"hits\": {\"total\": {\"value\": 0}, \"hits\": [{\"_id\": 1}]}}}"},
+      {"{\"results\": {\"aggregations\": {}}}"},
+      {
+        "{\"result\": \"success\", \"results\": ["
+            + "{\"id\": \"1\", \"type\": \"entity_type\", \"term\": \"person\","
+            + " \"description\": \"A person\"},"
+            + " {\"id\": \"2\", \"term\": \"family\", \"description\": null},"
+            + " null, \"x\", [1]]}"
+      },
+      {"{\"result\": \"success\", \"results\": []}"},
+      {"{\"related_constellations\": []}"},
+      {"{\"related_constellations\": {}}"},
+      {"{}"},
+      {
+        "{\"result\": \"success\", \"extra\": [{\"a\": [1, {\"b\": 2}]}],"
+            + " \"message\": {\"extra\": {\"x\": 1}, \"text\": \"ok\"}}"
+      },
+      {"{\"a\": 1, \"a\": 2}"},
+      {"{\"result\": \"success\", \"message\": {\"text\": \"a\", \"text\": \"b\"}}"},
+      {"[\"not\", \"an\", \"object\"]"},
+      {"{\"result\": \"success\""},
+      {"java.net.ConnectException: Connection refused"},
+      {""}
+    };
+  }
+
+  @Test(dataProvider = "goldenResponses")
+  public void testMatchesLegacyParser(String apiResponse) {
+    Assert.assertEquals(streamingSummary(apiResponse), legacySummary(apiResponse));
+  }
+
+  @Test
+  public void testDuplicateKeysAreRejected() {
+    SNACAPIResponse response = parse("{\"result\": \"success\", \"result\": \"error\"}");
+
+    Assert.assertEquals(response.getResult(), "exception");
+  }
+
+  @Test
+  public void testTrailingContentIsRejected() {
+    // org.json ignored anything after the response object
+    SNACAPIResponse response = parse("{\"result\": \"success\"} <br />Warning: ...");
+
+    Assert.assertEquals(response.getResult(), "exception");
+    Assert.assertEquals(response.getMessage(), "{\"result\": \"success\"} <br />Warning: ...");
+  }
+
+  @Test
+  public void testTrailingWhitespaceIsAccepted() {
+    Assert.assertEquals(parse("{\"result\": \"success\"}\n  ").getResult(), "success");
+  }
+}
@@ -0,0 +1,56 @@
+package org.openrefine.snac.cache;
+
+import org.snaccooperative.openrefine.cache.SNACBoundedCache;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+public class SNACBoundedCacheTest {
+
+  @Test
+  public void testEvictsLeastRecentlyUsedEntry() {
+    SNACBoundedCache<String, String> cache = new SNACBoundedCache<String, String>("test", 2);
+
+    cache.put("a", "1");
+    cache.put("b", "2");
+    cache.get("a");
+    cache.put("c", "3");
+
+    Assert.assertEquals(cache.get("a"), "1");
+    Assert.assertNull(cache.get("b"));
+    Assert.assertEquals(cache.get("c"), "3");
+  }
+
+  @Test
+  public void testEvictsByWeight() {
+    SNACBoundedCache<String, String> cache =
+        new SNACBoundedCache<String, String>("test", 100, 10, String::length);
+
+    cache.put("a", "1234");
+    cache.put("b", "1234");
+    cache.put("c", "1234");
+
+    Assert.assertNull(cache.get("a"));
+    Assert.assertEquals(cache.size(), 2);
+    Assert.assertEquals(cache.weight(), 8);
+
+    // replacing an entry accounts for the weight of the old value
+    cache.put("b", "1");
+    Assert.assertEquals(cache.weight(), 5);
+
+    cache.remove("c");
+    Assert.assertEquals(cache.weight(), 1);
+  }
+
+  @Test
+  public void testDropsEntryLargerThanBound() {
+    SNACBoundedCache<String, String> cache =
+        new SNACBoundedCache<String, String>("test", 100, 10, String::length);
+
+    cache.put("a", "1234");
+    cache.put("b", "123456789012");
+
+    Assert.assertNull(cache.get("a"));
+    Assert.assertNull(cache.get("b"));
+    Assert.assertEquals(cache.weight(), 0);
+  }
+}
@@ -0,0 +1,95 @@
+package org.openrefine.snac.cache;
+
+import org.snaccooperative.openrefine.cache.SNACExistenceSet;
+import org.snaccooperative.openrefine.metrics.SNACMetrics;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+public class SNACExistenceSetTest {
+
+  @Test
+  public void testUnknownKnownAndMissing() {
+    SNACExistenceSet set = new SNACExistenceSet("test");
+
+    set.put(0, true);
+    set.put(12, false);
+    set.put(Integer.MAX_VALUE, true);
+
+    Assert.assertTrue(set.get(0));
+    Assert.assertFalse(set.get(12));
+    Assert.assertTrue(set.get(Integer.MAX_VALUE));
+    Assert.assertNull(set.get(13));
+    Assert.assertFalse(set.contains(13));
+    Assert.assertEquals(set.size(), 3);
+  }
+
+  @Test
+  public void testOverwrite() {
+    SNACExistenceSet set = new SNACExistenceSet("test");
+
+    set.put(7, false);
+    set.put(7, true);
+
+    Assert.assertTrue(set.get(7));
+    Assert.assertEquals(set.size(), 1);
+  }
+
+  @Test
+  public void testIgnoresInvalidEntries() {
+    SNACExistenceSet set = new SNACExistenceSet("test");
+
+    set.put(-1, true);
+    set.put(5, null);
+
+    Assert.assertNull(set.get(-1));
+    Assert.assertNull(set.get(5));
+    Assert.assertEquals(set.size(), 0);
+  }
+
+  @Test
+  public void testGrowsWithEntries() {
+    SNACExistenceSet set = new SNACExistenceSet("test");
+
+    // sparse, widely spread ids, as seen across large projects
+    for (int i = 0; i < 100000; i++) {
+      set.put(i * 20011, i % 3 != 0);
+    }
+
+    Assert.assertEquals(set.size(), 100000);
+
+    for (int i = 0; i < 100000; i++) {
+      Assert.assertEquals(set.get(i * 20011), (Boolean) (i % 3 != 0));
+    }
+
+    Assert.assertNull(set.get(20010));
+  }
+
+  @Test
+  public void testEmptiedWhenFull() {
+    SNACExistenceSet set = new SNACExistenceSet("test.bounded", 100);
+
+    for (int i = 0; i < 100; i++) {
+      set.put(i, true);
+    }
+
+    // known ids can still be updated without making room
+    set.put(50, false);
+    Assert.assertEquals(set.size(), 100);
+    Assert.assertFalse(set.get(50));
+
+    long evictions = evictions("test.bounded");
+
+    set.put(100, true);
+
+    Assert.assertEquals(set.size(), 1);
+    Assert.assertTrue(set.get(100));
+    Assert.assertNull(set.get(0));
+    Assert.assertEquals(evictions("test.bounded") - evictions, 100);
+    Assert.assertEquals(SNACMetrics.getInstance().getSizes().get("test.bounded"), (Long) 1L);
+  }
+
+  private long evictions(String name) {
+    Long evictions = SNACMetrics.getInstance().getEvictions().get(name);
+    return evictions == null ? 0 : evictions;
+  }
+}
@@ -0,0 +1,213 @@
+package org.openrefine.snac.cache;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import org.json.JSONArray;
+import org.json.JSONObject;
+import org.snaccooperative.openrefine.api.SNACAPIClient;
+import org.snaccooperative.openrefine.api.SNACAPIResponse;
+import org.snaccooperative.openrefine.cache.SNACLookupCache;
+import org.snaccooperative.openrefine.preferences.SNACEnvironment;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+public class SNACLookupCacheTest {
+
+  // Batched constellation existence checks: chunks whose hit count does not
+  // match their size are split until each id is resolved or left for an
+  // individual lookup.
+
+  private static class ElasticClient extends SNACAPIClient {
+
+    // answers elastic ids queries from a fixed set of existing ids, recording
+    // the ids of every query it receives
+
+    private final Set<Integer> _existing;
+    private final Map<Integer, Integer> _hitsOverride = new HashMap<Integer, Integer>();
+    private final List<List<Integer>> _queries = Collections.synchronizedList(new ArrayList<>());
+    private volatile Boolean _failing = false;
+
+    ElasticClient(Integer... existing) {
+      super(new SNACEnvironment("test", "Test", "http://localhost/", "http://localhost/api/"));
+      this._existing = new HashSet<Integer>(Arrays.asList(existing));
+    }
+
+    ElasticClient withHits(int id, int hits) {
+      _hitsOverride.put(id, hits);
+      return this;
+    }
+
+    ElasticClient failing() {
+      _failing = true;
+      return this;
+    }
+
+    List<List<Integer>> getQueries() {
+      return _queries;
+    }
+
+    @Override
+    public SNACAPIResponse post(JSONObject req) {
+      Assert.assertEquals(req.getString("command"), "elastic");
+
+      JSONArray values = req.getJSONObject("query").getJSONObject("ids").getJSONArray("values");
+
+      List<Integer> ids = new ArrayList<Integer>();
+      int hits = 0;
+
+      for (int i = 0; i < values.length(); i++) {
+        int id = values.getInt(i);
+        ids.add(id);
+
+        if (_hitsOverride.containsKey(id)) {
+          hits += _hitsOverride.get(id);
+        } else if (_existing.contains(id)) {
+          hits++;
+        }
+      }
+
+      _queries.add(ids);
+
+      if (_failing) {
+        return new SNACAPIResponse(
+            this, "{\"error\":{\"type\":\"Server Error\",\"message\":\"unavailable\"}}");
+      }
+
+      JSONObject total = new JSONObject().put("value", hits);
+      JSONObject results = new JSONObject().put("hits", new JSONObject().put("total", total));
+
+      return new SNACAPIResponse(this, new JSONObject().put("results", results).toString());
+    }
+  }
+
+  private static class ResourceClient extends SNACAPIClient {
+
+    // answers every read_resource as SNAC does for a resource it cannot return
+
+    private int _requests = 0;
+
+    ResourceClient() {
+      super(new SNACEnvironment("test", "Test", "http://localhost/", "http://localhost/api/"));
+    }
+
+    int getRequests() {
+      return _requests;
+    }
+
+    @Override
+    public SNACAPIResponse post(JSONObject req) {
+      Assert.assertEquals(req.getString("command"), "read_resource");
+      _requests++;
+      return new SNACAPIResponse(this, "{\"related_constellations\": []}");
+    }
+  }
+
+  private List<Integer> range(int from, int to) {
+    List<Integer> ids = new ArrayList<Integer>();
+    for (int i = from; i <= to; i++) {
+      ids.add(i);
+    }
+    return ids;
+  }
+
+  @Test
+  public void testPrefetchResolvesEveryId() {
+    List<Integer> ids = range(1, 600);
+
+    List<Integer> existing = new ArrayList<Integer>();
+    for (int id : ids) {
+      if (id % 7 != 0) {
+        existing.add(id);
+      }
+    }
+
+    ElasticClient client = new ElasticClient(existing.toArray(new Integer[0]));
+    SNACLookupCache cache = new SNACLookupCache(client);
+
+    cache.prefetchConstellations(ids, 4);
+
+    int queries = client.getQueries().size();
+
+    for (int id : ids) {
+      Assert.assertEquals(cache.constellationExists(id), (Boolean) (id % 7 != 0), "id " + id);
+    }
+
+    // everything was answered by the prefetch
+    Assert.assertEquals(client.getQueries().size(), queries);
+
+    for (List<Integer> query : client.getQueries()) {
+      Assert.assertFalse(query.isEmpty(), "empty elastic query");
+    }
+  }
+
+  @Test
+  public void testPrefetchSplitsMixedChunks() {
+    ElasticClient client = new ElasticClient(1, 3);
+    SNACLookupCache cache = new SNACLookupCache(client);
+
+    cache.prefetchConstellations(Arrays.asList(1, 2, 3), 1);
+
+    // [1, 2, 3] => 2 hits; split into [1] and [2, 3]; [2, 3] => 1 hit; split again
+    Assert.assertEquals(
+        new HashSet<List<Integer>>(client.getQueries()),
+        new HashSet<List<Integer>>(
+            Arrays.asList(
+                Arrays.asList(1, 2, 3),
+                Arrays.asList(1),
+                Arrays.asList(2, 3),
+                Arrays.asList(2),
+                Arrays.asList(3))));
+
+    Assert.assertTrue(cache.constellationExists(1));
+    Assert.assertFalse(cache.constellationExists(2));
+    Assert.assertTrue(cache.constellationExists(3));
+    Assert.assertEquals(client.getQueries().size(), 5);
+  }
+
+  @Test
+  public void testPrefetchLeavesUnexpectedSingleIdUnresolved() {
+    // e.g. an id indexed twice: the chunk cannot be split any further
+    ElasticClient client = new ElasticClient().withHits(42, 2);
+    SNACLookupCache cache = new SNACLookupCache(client);
+
+    cache.prefetchConstellations(Collections.singletonList(42), 1);
+
+    Assert.assertEquals(client.getQueries().size(), 1);
+
+    // left for an individual lookup, which requires exactly one hit
+    Assert.assertFalse(cache.constellationExists(42));
+    Assert.assertEquals(client.getQueries().size(), 2);
+  }
+
+  @Test
+  public void testPrefetchFailureLeavesIdsUnresolved() {
+    ElasticClient client = new ElasticClient(1, 2).failing();
+    SNACLookupCache cache = new SNACLookupCache(client);
+
+    cache.prefetchConstellations(Arrays.asList(1, 2), 1);
+
+    Assert.assertEquals(client.getQueries().size(), 1);
+
+    // failed lookups are not cached, so each check asks again
+    cache.constellationExists(1);
+    cache.constellationExists(1);
+    Assert.assertEquals(client.getQueries().size(), 3);
+  }
+
+  @Test
+  public void testMissingResourceIsCached() {
+    ResourceClient client = new ResourceClient();
+    SNACLookupCache cache = new SNACLookupCache(client);
+
+    // "does not exist" is a definitive answer, so later checks are served from the cache
+    Assert.assertFalse(cache.resourceExists(5));
+    Assert.assertFalse(cache.resourceExists(5));
+    Assert.assertEquals(client.getRequests(), 1);
+  }
+}
@@ -0,0 +1,297 @@
+package org.openrefine.snac.operations;
+
+import com.google.refine.ProjectManager;
+import com.google.refine.RefineTest;
+import com.google.refine.browsing.EngineConfig;
+import com.google.refine.model.Column;
+import com.google.refine.model.Project;
+import com.google.refine.preference.PreferenceStore;
+import com.google.refine.process.Process;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Properties;
+import org.openrefine.snac.testing.SNACMockAPIServer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.snaccooperative.openrefine.operations.SNACPerformUploadsOperation;
+import org.snaccooperative.openrefine.operations.SNACPerformValidationOperation;
+import org.snaccooperative.openrefine.preferences.SNACPreferencesManager;
+import org.snaccooperative.openrefine.schema.SNACSchema;
+import org.testng.Assert;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+public class SNACThroughputTest extends RefineTest {
+
+  // End-to-end throughput of validation and upload against the mock SNAC API.
+  // Sizes and server behavior can be raised for real load tests, e.g.
+  //   -Dsnac.throughput.records=10000 -Dsnac.throughput.latency=50
+
+  static final Logger logger = LoggerFactory.getLogger(SNACThroughputTest.class);
+
+  private static final int RECORDS = Integer.getInteger("snac.throughput.records", 200);
+  private static final int LATENCY = Integer.getInteger("snac.throughput.latency", 5);
+  private static final int WORKERS = Integer.getInteger("snac.throughput.workers", 8);
+
+  private static final String RECORD_ENGINE_CONFIG = "{\"mode\":\"record-based\",\"facets\":[]}";
+
+  // global settings changed by this test, restored once it is done so that later
+  // test classes in the same jvm see the environment they started with
+  private static final String[] SYSTEM_PROPERTIES = {
+    "snac.env.dev.api_url", "snac.env.dev.web_url"
+  };
+  private static final String[] PREFERENCES = {
+    "snac.environment",
+    "snac.apikey.dev",
+    "snac.apikey.prod",
+    "snac_apikey",
+    "snac.preview.max_items",
+    "snac.upload.api_response",
+    "snac.upload.workers",
+    "snac.http.rate_limit",
+    "snac.http.retry_base_delay",
+    "snac.http.retry_max_delay",
+    "snac.cache.persistent_terms"
+  };
+
+  private SNACMockAPIServer _server;
+  private SNACPreferencesManager _prefsManager;
+
+  private HashMap<String, String> _savedSystemProperties;
+  private HashMap<String, Object> _savedPreferences;
+  private String[] _savedManagerState;
+
+  @BeforeClass
+  public void startServer() throws Exception {
+    _server =
+        new SNACMockAPIServer()
+            .withLatency(LATENCY, LATENCY)
+            .withVocabulary("entity_type", "person", "corporateBody", "family")
+            .withVocabulary("document_type", "ArchivalResource", "BibliographicResource")
+            .start();
+
+    PreferenceStore prefStore = ProjectManager.singleton.getPreferenceStore();
+
+    _prefsManager = SNACPreferencesManager.getInstance();
+
+    _savedSystemProperties = new HashMap<String, String>();
+    for (String key : SYSTEM_PROPERTIES) {
+      _savedSystemProperties.put(key, System.getProperty(key));
+    }
+
+    _savedPreferences = new HashMap<String, Object>();
+    for (String key : PREFERENCES) {
+      _savedPreferences.put(key, prefStore.get(key));
+    }
+
+    _savedManagerState =
+        new String[] {
+          _prefsManager.getID(),
+          _prefsManager.getDevAPIKey(),
+          _prefsManager.getProdAPIKey(),
+          _prefsManager.getMaxPreviewItems().toString(),
+          _prefsManager.includeAPIResponse().toString(),
+          _prefsManager.getUploadWorkers().toString()
+        };
+
+    System.setProperty("snac.env.dev.api_url", _server.getAPIURL());
+    System.setProperty("snac.env.dev.web_url", _server.getWebURL());
+
+    prefStore.put("snac.http.rate_limit", "0");
+    prefStore.put("snac.http.retry_base_delay", "10");
+    prefStore.put("snac.http.retry_max_delay", "100");
+    prefStore.put("snac.cache.persistent_terms", "false");
+  }
+
+  @AfterClass
+  public void stopServer() {
+    _server.stop();
+
+    // the manager writes its state back to the preference store when saved, so
+    // it is restored first, and the store's original values then put back over it
+
+    _prefsManager.savePreferences(
+        _savedManagerState[0],
+        _savedManagerState[1],
+        _savedManagerState[2],
+        _savedManagerState[3],
+        _savedManagerState[4],
+        _savedManagerState[5]);
+
+    PreferenceStore prefStore = ProjectManager.singleton.getPreferenceStore();
+
+    for (Map.Entry<String, Object> entry : _savedPreferences.entrySet()) {
+      prefStore.put(entry.getKey(), entry.getValue());
+    }
+
+    for (Map.Entry<String, String> entry : _savedSystemProperties.entrySet()) {
+      if (entry.getValue() == null) {
+        System.clearProperty(entry.getKey());
+      } else {
+        System.setProperty(entry.getKey(), entry.getValue());
+      }
+    }
+  }
+
+  @BeforeMethod
+  public void resetServer() {
+    _server.resetCounts();
+    _server.withErrorRate(0);
+  }
+
+  private void setWorkers(int workers) {
+    _prefsManager.savePreferences("dev", "test-key", "", "10", "false", Integer.toString(workers));
+  }
+
+  private Project constellationProject() {
+    StringBuilder csv = new StringBuilder("cpf type,name,subject,exist date,exist date type\n");
+
+    for (int i = 0; i < RECORDS; i++) {
+      csv.append("person,Person ").append(i).append(",Subject ").append(i % 50);
+      csv.append(",1900,Birth\n");
+      csv.append(",,Subject ").append((i + 1) % 50).append(",1970,Death\n");
+    }
+
+    Project project = createCSVProject("snac constellations", csv.toString());
+
+    HashMap<String, String> mappings = new HashMap<String, String>();
+    mappings.put("cpf type", "CPF Type");
+    mappings.put("name", "Name Entry");
+    mappings.put("subject", "Subject");
+    mappings.put("exist date", "Exist Date");
+    mappings.put("exist date type", "Exist Date Type");
+
+    project.overlayModels.put("snacSchema", new SNACSchema("constellation", mappings));
+
+    return project;
+  }
+
+  private Project resourceProject() {
+    StringBuilder csv = new StringBuilder("resource type,title,holding repository id,extent\n");
+
+    for (int i = 0; i < RECORDS; i++) {
+      csv.append("ArchivalResource,Papers ").append(i).append(",");
+      csv.append(1000 + (i % 20)).append(",1 box\n");
+    }
+
+    Project project = createCSVProject("snac resources", csv.toString());
+
+    HashMap<String, String> mappings = new HashMap<String, String>();
+    mappings.put("resource type", "Resource Type");
+    mappings.put("title", "Title");
+    mappings.put("holding repository id", "Holding Repository ID");
+    mappings.put("extent", "Extent");
+
+    project.overlayModels.put("snacSchema", new SNACSchema("resource", mappings));
+
+    return project;
+  }
+
+  private long run(Process process) {
+    long start = System.nanoTime();
+    ((Runnable) process).run();
+    return (System.nanoTime() - start) / 1000000;
+  }
+
+  private int countCells(Project project, String column, String value) {
+    Column col =
+        project.columnModel.getColumnByName("*SNAC " + _prefsManager.getName() + "*: " + column);
+    Assert.assertNotNull(col, "missing result column [" + column + "]");
+
+    int count = 0;
+    for (int i = 0; i < project.rows.size(); i++) {
+      Object cell = project.rows.get(i).getCellValue(col.getCellIndex());
+      if (cell != null && (value == null || value.equals(cell.toString()))) {
+        count++;
+      }
+    }
+
+    return count;
+  }
+
+  private void report(String what, long millis) {
+    logger.info(
+        what
+            + ": "
+            + RECORDS
+            + " records in "
+            + millis
+            + " ms ("
+            + (RECORDS * 1000L / Math.max(1, millis))
+            + " records/s); "
+            + _server.getRequestCount()
+            + " requests, "
+            + _server.getErrorCount()
+            + " injected errors");
+  }
+
+  @Test
+  public void testValidationThroughput() throws Exception {
+    Project project = constellationProject();
+
+    SNACPerformValidationOperation op =
+        new SNACPerformValidationOperation(EngineConfig.reconstruct(RECORD_ENGINE_CONFIG));
+
+    long millis = run(op.createProcess(project, new Properties()));
+    report("validation", millis);
+
+    Assert.assertEquals(countCells(project, "Validation Result", "success"), RECORDS);
+
+    // terms are looked up once each, not once per record
+    Assert.assertTrue(_server.getRequestCount("vocabulary") < RECORDS);
+  }
+
+  @Test
+  public void testSequentialUploadThroughput() throws Exception {
+    setWorkers(1);
+
+    Project project = constellationProject();
+
+    SNACPerformUploadsOperation op =
+        new SNACPerformUploadsOperation(EngineConfig.reconstruct(RECORD_ENGINE_CONFIG), false);
+
+    long millis = run(op.createProcess(project, new Properties()));
+    report("sequential constellation upload", millis);
+
+    Assert.assertEquals(countCells(project, "Result", "success"), RECORDS);
+    Assert.assertEquals(_server.getRequestCount("insert_and_publish_constellation"), RECORDS);
+  }
+
+  @Test
+  public void testConcurrentUploadThroughput() throws Exception {
+    setWorkers(WORKERS);
+
+    Project project = resourceProject();
+
+    SNACPerformUploadsOperation op =
+        new SNACPerformUploadsOperation(EngineConfig.reconstruct(RECORD_ENGINE_CONFIG), false);
+
+    long millis = run(op.createProcess(project, new Properties()));
+    report("concurrent resource upload (" + WORKERS + " workers)", millis);
+
+    Assert.assertEquals(countCells(project, "Result", "success"), RECORDS);
+    Assert.assertEquals(countCells(project, "ID", null), RECORDS);
+    Assert.assertEquals(_server.getRequestCount("insert_resource"), RECORDS);
+  }
+
+  @Test
+  public void testUploadThroughputWithTransientErrors() throws Exception {
+    // injected 503s are retried, so every record is still uploaded exactly once
+
+    setWorkers(WORKERS);
+    _server.withErrorRate(0.1);
+
+    Project project = resourceProject();
+
+    SNACPerformUploadsOperation op =
+        new SNACPerformUploadsOperation(EngineConfig.reconstruct(RECORD_ENGINE_CONFIG), false);
+
+    long millis = run(op.createProcess(project, new Properties()));
+    report("concurrent resource upload with errors", millis);
+
+    Assert.assertEquals(countCells(project, "Result", "success"), RECORDS);
+    Assert.assertTrue(_server.getErrorCount() > 0);
+  }
+}
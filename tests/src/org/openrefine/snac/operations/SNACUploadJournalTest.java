@@ -0,0 +1,151 @@
+package org.openrefine.snac.operations;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.Map;
+import org.snaccooperative.openrefine.api.SNACAPIResponse;
+import org.snaccooperative.openrefine.operations.SNACUploadJournal;
+import org.snaccooperative.openrefine.operations.SNACUploadJournal.Entry;
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+public class SNACUploadJournalTest {
+
+  private File _file;
+
+  @BeforeMethod
+  public void setUp() throws IOException {
+    _file = File.createTempFile("snac-upload-journal-", ".jsonl");
+    _file.delete();
+  }
+
+  @AfterMethod
+  public void tearDown() {
+    _file.delete();
+  }
+
+  private SNACAPIResponse success(int id) {
+    return new SNACAPIResponse("success", "", id, 1, "https://snaccooperative.org/view/" + id);
+  }
+
+  private SNACAPIResponse failure(String message) {
+    return new SNACAPIResponse("error", message, 0, 0, "");
+  }
+
+  @Test
+  public void testLoadMissingJournal() {
+    Assert.assertTrue(new SNACUploadJournal(_file).load().isEmpty());
+  }
+
+  @Test
+  public void testLoadKeepsLatestEntryPerRow() {
+    SNACUploadJournal journal = new SNACUploadJournal(_file);
+
+    journal.open(false);
+    journal.record(0, "a", failure("timed out"));
+    journal.record(1, "b", success(101));
+    journal.record(0, "a", success(100));
+    journal.close();
+
+    Map<Integer, Entry> entries = new SNACUploadJournal(_file).load();
+
+    Assert.assertEquals(entries.size(), 2);
+
+    Entry first = entries.get(0);
+    Assert.assertEquals(first.getRow(), 0);
+    Assert.assertEquals(first.getHash(), "a");
+    Assert.assertTrue(first.isCommitted());
+    Assert.assertEquals(first.toResponse().getID(), 100);
+
+    Assert.assertEquals(entries.get(1).getHash(), "b");
+    Assert.assertEquals(
+        entries.get(1).toResponse().getURI(), "https://snaccooperative.org/view/101");
+  }
+
+  @Test
+  public void testFailedUploadIsNotCommitted() {
+    SNACUploadJournal journal = new SNACUploadJournal(_file);
+
+    journal.open(false);
+    journal.record(3, "c", failure("Constellation not found"));
+    journal.close();
+
+    Entry entry = new SNACUploadJournal(_file).load().get(3);
+
+    Assert.assertFalse(entry.isCommitted());
+    Assert.assertEquals(entry.toResponse().getMessage(), "Constellation not found");
+  }
+
+  @Test
+  public void testLoadSkipsPartialLine() throws IOException {
+    SNACUploadJournal journal = new SNACUploadJournal(_file);
+
+    journal.open(false);
+    journal.record(0, "a", success(100));
+    journal.close();
+
+    // an interrupted write leaves a truncated final line
+    Files.write(
+        _file.toPath(),
+        "{\"row\": 1, \"hash\": \"b\", \"res".getBytes(StandardCharsets.UTF_8),
+        StandardOpenOption.APPEND);
+
+    Map<Integer, Entry> entries = new SNACUploadJournal(_file).load();
+
+    Assert.assertEquals(entries.size(), 1);
+    Assert.assertTrue(entries.get(0).isCommitted());
+  }
+
+  @Test
+  public void testResumeAppends() {
+    SNACUploadJournal journal = new SNACUploadJournal(_file);
+
+    journal.open(false);
+    journal.record(0, "a", success(100));
+    journal.close();
+
+    journal.open(true);
+    journal.record(1, "b", success(101));
+    journal.close();
+
+    Map<Integer, Entry> entries = journal.load();
+
+    Assert.assertEquals(entries.size(), 2);
+    Assert.assertTrue(entries.get(0).isCommitted());
+    Assert.assertTrue(entries.get(1).isCommitted());
+  }
+
+  @Test
+  public void testFreshUploadTruncates() {
+    SNACUploadJournal journal = new SNACUploadJournal(_file);
+
+    journal.open(false);
+    journal.record(0, "a", success(100));
+    journal.record(1, "b", success(101));
+    journal.close();
+
+    journal.open(false);
+    journal.record(1, "b2", failure("Constellation not found"));
+    journal.close();
+
+    Map<Integer, Entry> entries = journal.load();
+
+    Assert.assertEquals(entries.size(), 1);
+    Assert.assertEquals(entries.get(1).getHash(), "b2");
+    Assert.assertFalse(entries.get(1).isCommitted());
+  }
+
+  @Test
+  public void testRecordWithoutOpenIsIgnored() {
+    SNACUploadJournal journal = new SNACUploadJournal(_file);
+
+    journal.record(0, "a", success(100));
+
+    Assert.assertFalse(_file.exists());
+  }
+}
@@ -0,0 +1,305 @@
+package org.openrefine.snac.testing;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+public class SNACMockAPIServer {
+
+  // Embedded stand-in for the SNAC REST API, for load testing the extension
+  // without touching a shared SNAC server.  It answers the commands the
+  // extension sends (vocabulary, elastic, read_resource, edit, insert_resource,
+  // insert_and_publish_constellation) with minimal but well-formed responses,
+  // after a configurable latency.  A configurable fraction of requests fails with
+  // HTTP 503, as an overloaded server would.
+  //
+  // Point an environment at it through the test-only url override system
+  // properties, e.g.
+  //
+  //   System.setProperty("snac.env.dev.api_url", server.getAPIURL())
+  //   System.setProperty("snac.env.dev.web_url", server.getWebURL())
+
+  static final Logger logger = LoggerFactory.getLogger(SNACMockAPIServer.class);
+
+  private HttpServer _server;
+  private ExecutorService _executor;
+
+  private volatile long _latency = 0;
+  private volatile long _latencyJitter = 0;
+  private volatile double _errorRate = 0;
+
+  // vocabulary type => known terms; types without a corpus accept any term
+  private final Map<String, List<String>> _vocabulary = new ConcurrentHashMap<>();
+
+  private final Map<String, AtomicInteger> _requests = new ConcurrentHashMap<>();
+  private final AtomicInteger _errors = new AtomicInteger();
+  private final AtomicInteger _nextID = new AtomicInteger(100000);
+
+  public SNACMockAPIServer withLatency(long millis, long jitterMillis) {
+    this._latency = millis;
+    this._latencyJitter = jitterMillis;
+    return this;
+  }
+
+  public SNACMockAPIServer withErrorRate(double errorRate) {
+    this._errorRate = errorRate;
+    return this;
+  }
+
+  public SNACMockAPIServer withVocabulary(String type, String... terms) {
+    this._vocabulary.put(type, new ArrayList<String>(Arrays.asList(terms)));
+    return this;
+  }
+
+  public SNACMockAPIServer start() throws IOException {
+    _server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+    _executor = Executors.newCachedThreadPool();
+
+    _server.setExecutor(_executor);
+    _server.createContext("/", this::handle);
+    _server.start();
+
+    logger.info("mock SNAC API listening at [" + getAPIURL() + "]");
+
+    return this;
+  }
+
+  public void stop() {
+    if (_server != null) {
+      _server.stop(0);
+      _executor.shutdownNow();
+      _server = null;
+    }
+  }
+
+  public String getWebURL() {
+    return "http://localhost:" + _server.getAddress().getPort() + "/";
+  }
+
+  public String getAPIURL() {
+    return getWebURL() + "api/";
+  }
+
+  public int getRequestCount(String command) {
+    AtomicInteger count = _requests.get(command);
+    return (count == null ? 0 : count.get());
+  }
+
+  public int getRequestCount() {
+    int total = 0;
+    for (AtomicInteger count : _requests.values()) {
+      total += count.get();
+    }
+    return total;
+  }
+
+  public int getErrorCount() {
+    return _errors.get();
+  }
+
+  public void resetCounts() {
+    _requests.clear();
+    _errors.set(0);
+  }
+
+  private void handle(HttpExchange exchange) throws IOException {
+    try {
+      String body;
+      try (InputStream in = exchange.getRequestBody()) {
+        body = new String(in.readAllBytes(), StandardCharsets.UTF_8);
+      }
+
+      JSONObject req;
+      try {
+        req = new JSONObject(body);
+      } catch (JSONException e) {
+        send(exchange, 400, error("Invalid Request", "request is not valid JSON"));
+        return;
+      }
+
+      String command = req.optString("command", "");
+      _requests.computeIfAbsent(command, c -> new AtomicInteger()).incrementAndGet();
+
+      delay();
+
+      if (_errorRate > 0 && ThreadLocalRandom.current().nextDouble() < _errorRate) {
+        _errors.incrementAndGet();
+        send(exchange, 503, error("Service Unavailable", "injected failure"));
+        return;
+      }
+
+      send(exchange, 200, respond(command, req));
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    } finally {
+      exchange.close();
+    }
+  }
+
+  private void delay() throws InterruptedException {
+    long latency = _latency;
+
+    if (_latencyJitter > 0) {
+      latency += ThreadLocalRandom.current().nextLong(_latencyJitter + 1);
+    }
+
+    if (latency > 0) {
+      TimeUnit.MILLISECONDS.sleep(latency);
+    }
+  }
+
+  private void send(HttpExchange exchange, int status, JSONObject response) throws IOException {
+    byte[] bytes = response.toString().getBytes(StandardCharsets.UTF_8);
+
+    exchange.getResponseHeaders().set("Content-Type", "application/json; charset=UTF-8");
+    exchange.sendResponseHeaders(status, bytes.length);
+
+    try (OutputStream out = exchange.getResponseBody()) {
+      out.write(bytes);
+    }
+  }
+
+  private JSONObject respond(String command, JSONObject req) {
+    switch (command) {
+      case "vocabulary":
+        return vocabulary(req.optString("type", ""), req.optString("query_string", ""));
+
+      case "elastic":
+        return elastic(req);
+
+      case "read_resource":
+        return success("resource", entity(req.optInt("resourceid", 0), 1));
+
+      case "edit":
+        return success("constellation", entity(req.optInt("constellationid", 0), 1));
+
+      case "insert_resource":
+        return success("resource", inserted(req.optJSONObject("resource")));
+
+      case "insert_and_publish_constellation":
+        return success("constellation", inserted(req.optJSONObject("constellation")));
+
+      default:
+        return error("Unknown Command", "unsupported command: [" + command + "]");
+    }
+  }
+
+  private JSONObject vocabulary(String type, String query) {
+    JSONArray results = new JSONArray();
+
+    List<String> terms = _vocabulary.get(type);
+
+    if (terms == null) {
+      results.put(term(type, query, 1));
+    } else {
+      String q = query.toLowerCase();
+      for (int i = 0; i < terms.size() && results.length() < 10; i++) {
+        if (terms.get(i).toLowerCase().contains(q)) {
+          results.put(term(type, terms.get(i), i + 1));
+        }
+      }
+    }
+
+    return new JSONObject().put("results", results);
+  }
+
+  private JSONObject term(String type, String term, int id) {
+    JSONObject result = new JSONObject();
+
+    result.put("id", Integer.toString(id));
+    result.put("type", type);
+    result.put("term", term);
+    result.put("description", term);
+
+    return result;
+  }
+
+  private JSONObject elastic(JSONObject req) {
+    // every positive id exists
+
+    int found = 0;
+
+    JSONObject query = req.optJSONObject("query");
+    JSONObject ids = (query == null ? null : query.optJSONObject("ids"));
+    JSONArray values = (ids == null ? null : ids.optJSONArray("values"));
+
+    if (values != null) {
+      for (int i = 0; i < values.length(); i++) {
+        if (values.optInt(i, 0) > 0) {
+          found++;
+        }
+      }
+    }
+
+    JSONObject hits = new JSONObject().put("total", new JSONObject().put("value", found));
+
+    return new JSONObject().put("results", new JSONObject().put("hits", hits));
+  }
+
+  private JSONObject entity(int id, int version) {
+    JSONObject entity = new JSONObject();
+
+    entity.put("id", Integer.toString(id));
+    entity.put("version", Integer.toString(version));
+
+    return entity;
+  }
+
+  private JSONObject inserted(JSONObject entity) {
+    // new entities get the next id; updated ones a new version
+
+    if (entity == null) {
+      entity = new JSONObject();
+    }
+
+    int id = entity.optInt("id", 0);
+    int version = entity.optInt("version", 0);
+
+    if (id <= 0) {
+      id = _nextID.incrementAndGet();
+    }
+
+    entity.put("id", Integer.toString(id));
+    entity.put("version", Integer.toString(version + 1));
+
+    return entity;
+  }
+
+  private JSONObject success(String key, JSONObject data) {
+    JSONObject response = new JSONObject();
+
+    response.put("result", "success");
+    response.put(key, data);
+
+    return response;
+  }
+
+  private JSONObject error(String type, String message) {
+    JSONObject error = new JSONObject();
+
+    error.put("type", type);
+    error.put("message", message);
+
+    return new JSONObject().put("error", error);
+  }
+}